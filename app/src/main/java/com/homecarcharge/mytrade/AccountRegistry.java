@@ -0,0 +1,101 @@
+package com.homecarcharge.mytrade;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * The list of trading accounts and which one is being viewed. Each account's
+ * entries live in their own SharedPreferences partition, see Ledger.
+ */
+public class AccountRegistry {
+
+    // Pseudo account id for the merged all-accounts view
+    public static final String COMBINED_ID = "*";
+
+    private static final String PREFS_NAME = "TraderDiaryAccounts";
+    private static final String KEY_ACCOUNTS = "accounts";
+    private static final String KEY_SELECTED_ACCOUNT = "selected_account";
+    private static final String KEY_DEVICE_ID = "device_id";
+
+    private final SharedPreferences prefs;
+    private final Gson gson = new Gson();
+    private List<Account> accounts;
+
+    public AccountRegistry(Context context) {
+        prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+
+        String accountsJson = prefs.getString(KEY_ACCOUNTS, null);
+        if (accountsJson != null) {
+            Type accountListType = new TypeToken<ArrayList<Account>>() {}.getType();
+            accounts = gson.fromJson(accountsJson, accountListType);
+        }
+        if (accounts == null || accounts.isEmpty()) {
+            // The original single diary becomes the first account
+            accounts = new ArrayList<>();
+            accounts.add(new Account(Ledger.DEFAULT_ACCOUNT_ID, "Main"));
+            saveAccounts();
+        }
+    }
+
+    public List<Account> getAccounts() {
+        return accounts;
+    }
+
+    public Account getAccount(String id) {
+        for (Account account : accounts) {
+            if (account.getId().equals(id)) {
+                return account;
+            }
+        }
+        return null;
+    }
+
+    public Account addAccount(String name) {
+        Account account = new Account(UUID.randomUUID().toString(), name);
+        accounts.add(account);
+        saveAccounts();
+        return account;
+    }
+
+    // Registers an account under a known id (e.g. from a backup) if it is not present yet
+    public void ensureAccount(String id, String name) {
+        if (getAccount(id) == null) {
+            accounts.add(new Account(id, name));
+            saveAccounts();
+        }
+    }
+
+    public String getSelectedId() {
+        String selectedId = prefs.getString(KEY_SELECTED_ACCOUNT, Ledger.DEFAULT_ACCOUNT_ID);
+        if (!COMBINED_ID.equals(selectedId) && getAccount(selectedId) == null) {
+            return Ledger.DEFAULT_ACCOUNT_ID;
+        }
+        return selectedId;
+    }
+
+    public void setSelectedId(String id) {
+        prefs.edit().putString(KEY_SELECTED_ACCOUNT, id).apply();
+    }
+
+    // Random per install; tells this device's edits apart from other devices' when syncing
+    public String getDeviceId() {
+        String deviceId = prefs.getString(KEY_DEVICE_ID, null);
+        if (deviceId == null) {
+            deviceId = UUID.randomUUID().toString();
+            prefs.edit().putString(KEY_DEVICE_ID, deviceId).apply();
+        }
+        return deviceId;
+    }
+
+    private void saveAccounts() {
+        prefs.edit().putString(KEY_ACCOUNTS, gson.toJson(accounts)).apply();
+    }
+}
@@ -0,0 +1,336 @@
+package com.homecarcharge.mytrade;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UTFDataFormatException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Compact binary backup of all accounts.
+ *
+ * Layout: magic, version, account count, then for each account a header of its id, name
+ * and the CRC32 of both, followed by blocks of fixed-size records and an empty block as
+ * terminator, then an end magic. Each block is [record count][CRC32 of count and payload]
+ * [payload] and holds up to BLOCK_RECORDS records of (epoch millis, amount, profit flag).
+ * Since version 3 each account's entries are followed by its trades: the symbol count, the
+ * symbol names and the CRC32 of both, then blocks of up to {@link TradeBook#BLOCK_TRADES}
+ * records of (epoch day, symbol id, quantity, side, P&L), again ending with an empty block.
+ * Version 2 files have no trades and are still read. Writing buffers only one block. A restore makes two passes over the file: {@link #validate}
+ * checks all of it holding one block, then {@link #read} hands the accounts over one at a
+ * time, so no more than one account's entries are in memory.
+ */
+public final class BackupSnapshot {
+
+    public static final String FILE_EXTENSION = ".tdbk";
+    public static final String MIME_TYPE = "application/octet-stream";
+
+    private static final int MAGIC = 0x5444424B;      // "TDBK"
+    private static final int END_MAGIC = 0x54444E44;  // "TDND"
+    private static final int VERSION = 3;
+    // The first version with a trade section per account
+    private static final int TRADES_VERSION = 3;
+    private static final int MIN_VERSION = 2;
+    private static final int RECORD_SIZE = 8 + 8 + 1;
+    private static final int TRADE_RECORD_SIZE = 4 + 4 + 4 + 1 + 8;
+    private static final int BLOCK_RECORDS = 4096;
+    private static final int MAX_ACCOUNTS = 1024;
+    private static final int MAX_SYMBOLS = 1 << 20;
+
+    public static class AccountData {
+        public final String id;
+        public final String name;
+        public final List<Transaction> transactions;
+        // Null if the backup predates trades
+        public final TradeBook trades;
+
+        AccountData(String id, String name, List<Transaction> transactions, TradeBook trades) {
+            this.id = id;
+            this.name = name;
+            this.transactions = transactions;
+            this.trades = trades;
+        }
+    }
+
+    /** Receives the accounts of a snapshot in file order. */
+    public interface AccountSink {
+        void accept(AccountData account) throws IOException;
+    }
+
+    public static class CorruptSnapshotException extends IOException {
+        CorruptSnapshotException(String message) {
+            super(message);
+        }
+    }
+
+    private BackupSnapshot() {
+    }
+
+    /** Streams accounts into the snapshot one block at a time. */
+    public static class Writer implements Closeable {
+        private final DataOutputStream out;
+        private final ByteBuffer block = ByteBuffer.allocate(BLOCK_RECORDS * RECORD_SIZE);
+        private final ByteBuffer tradeBlock = ByteBuffer.allocate(TradeBook.BLOCK_TRADES * TRADE_RECORD_SIZE);
+        private final CRC32 crc = new CRC32();
+        private int blockRecords;
+
+        public Writer(OutputStream output, int accountCount) throws IOException {
+            out = new DataOutputStream(new BufferedOutputStream(output, 64 * 1024));
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(accountCount);
+        }
+
+        public void beginAccount(String id, String name) throws IOException {
+            out.writeUTF(id);
+            out.writeUTF(name);
+            out.writeInt(headerChecksum(crc, id, name));
+        }
+
+        public void write(Transaction transaction) throws IOException {
+            block.putLong(transaction.getDate().getTime());
+            block.putDouble(transaction.getAmount());
+            block.put((byte) (transaction.isProfit() ? 1 : 0));
+            if (++blockRecords == BLOCK_RECORDS) {
+                flushBlock();
+            }
+        }
+
+        // Ends the account's entries and writes its trades, which must not be edited meanwhile
+        public void endAccount(TradeBook trades) throws IOException {
+            if (blockRecords > 0) {
+                flushBlock();
+            }
+            // An empty block terminates the entries
+            flushBlock();
+
+            SymbolDictionary symbols = trades.getSymbols();
+            crc.reset();
+            updateInt(crc, symbols.size());
+            out.writeInt(symbols.size());
+            for (int id = 0; id < symbols.size(); id++) {
+                out.writeUTF(symbols.name(id));
+                crc.update(symbols.name(id).getBytes(StandardCharsets.UTF_8));
+                crc.update(0);
+            }
+            out.writeInt((int) crc.getValue());
+            for (int b = 0; b < trades.getBlockCount(); b++) {
+                TradeBook.Block trade = trades.getBlock(b);
+                for (int i = 0; i < trade.days.length; i++) {
+                    tradeBlock.putInt(trade.days[i]);
+                    tradeBlock.putInt(trade.symbolIds[i]);
+                    tradeBlock.putInt(trade.quantities[i]);
+                    tradeBlock.put((byte) (trade.sells[i] ? 1 : 0));
+                    tradeBlock.putDouble(trade.pnl[i]);
+                }
+                writeBlock(trade.days.length, tradeBlock);
+            }
+            writeBlock(0, tradeBlock);
+        }
+
+        private void flushBlock() throws IOException {
+            writeBlock(blockRecords, block);
+            blockRecords = 0;
+        }
+
+        private void writeBlock(int records, ByteBuffer payload) throws IOException {
+            crc.reset();
+            updateInt(crc, records);
+            crc.update(payload.array(), 0, payload.position());
+            out.writeInt(records);
+            out.writeInt((int) crc.getValue());
+            out.write(payload.array(), 0, payload.position());
+            payload.clear();
+        }
+
+        // Everything written so far, header and end magic included once closed
+        public long getBytesWritten() {
+            return out.size();
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.writeInt(END_MAGIC);
+            out.close();
+        }
+    }
+
+    /**
+     * Checks a whole snapshot without keeping its entries: every checksum must match and the
+     * end marker must be present. Run before {@link #read}, so a damaged file never
+     * half-restores.
+     */
+    public static void validate(InputStream input) throws IOException {
+        scan(input, null);
+    }
+
+    /**
+     * Reads a snapshot that passed {@link #validate}, handing each account to the sink once
+     * its last block is read. Checksums are checked again, in case the file changed between
+     * the passes.
+     */
+    public static void read(InputStream input, AccountSink sink) throws IOException {
+        scan(input, sink);
+    }
+
+    // Without a sink the entries are checked and dropped
+    private static void scan(InputStream input, AccountSink sink) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(input, 64 * 1024));
+        byte[] payload = new byte[BLOCK_RECORDS * RECORD_SIZE];
+        CRC32 crc = new CRC32();
+
+        try {
+            if (in.readInt() != MAGIC) {
+                throw new CorruptSnapshotException("Not a Trader's Diary backup");
+            }
+            int version = in.readInt();
+            if (version < MIN_VERSION || version > VERSION) {
+                throw new CorruptSnapshotException("Unsupported backup version " + version);
+            }
+            int accountCount = in.readInt();
+            if (accountCount < 0 || accountCount > MAX_ACCOUNTS) {
+                throw new CorruptSnapshotException("Invalid account count " + accountCount);
+            }
+
+            for (int a = 0; a < accountCount; a++) {
+                String id;
+                String name;
+                try {
+                    id = in.readUTF();
+                    name = in.readUTF();
+                } catch (UTFDataFormatException e) {
+                    throw new CorruptSnapshotException("Invalid account header");
+                }
+                if (in.readInt() != headerChecksum(crc, id, name)) {
+                    throw new CorruptSnapshotException("Checksum mismatch in account header");
+                }
+                List<Transaction> transactions = sink != null ? new ArrayList<>() : null;
+
+                int records;
+                while ((records = readBlock(in, crc, payload, RECORD_SIZE, BLOCK_RECORDS, name)) > 0) {
+                    if (sink == null) continue;
+                    ByteBuffer buffer = ByteBuffer.wrap(payload, 0, records * RECORD_SIZE);
+                    for (int r = 0; r < records; r++) {
+                        long time = buffer.getLong();
+                        double amount = buffer.getDouble();
+                        boolean isProfit = buffer.get() != 0;
+                        transactions.add(new Transaction(new Date(time), amount, isProfit));
+                    }
+                }
+                TradeBook trades = version >= TRADES_VERSION ? readTrades(in, crc, payload, name, sink != null) : null;
+                if (sink != null) {
+                    sink.accept(new AccountData(id, name, transactions, trades));
+                }
+            }
+
+            if (in.readInt() != END_MAGIC) {
+                throw new CorruptSnapshotException("Backup is truncated");
+            }
+        } catch (EOFException e) {
+            throw new CorruptSnapshotException("Backup is truncated");
+        }
+    }
+
+    // The account's trade section; null if keep is false
+    private static TradeBook readTrades(DataInputStream in, CRC32 crc, byte[] payload, String name, boolean keep)
+            throws IOException {
+        int symbolCount = in.readInt();
+        if (symbolCount < 0 || symbolCount > MAX_SYMBOLS) {
+            throw new CorruptSnapshotException("Invalid symbol count in account " + name);
+        }
+        crc.reset();
+        updateInt(crc, symbolCount);
+        SymbolDictionary symbols = new SymbolDictionary();
+        for (int id = 0; id < symbolCount; id++) {
+            String symbol;
+            try {
+                symbol = in.readUTF();
+            } catch (UTFDataFormatException e) {
+                throw new CorruptSnapshotException("Invalid symbol in account " + name);
+            }
+            crc.update(symbol.getBytes(StandardCharsets.UTF_8));
+            crc.update(0);
+            // Ids are positions, so a repeated name would shift every later one
+            if (symbols.intern(symbol) != id) {
+                throw new CorruptSnapshotException("Repeated symbol in account " + name);
+            }
+        }
+        if (in.readInt() != (int) crc.getValue()) {
+            throw new CorruptSnapshotException("Checksum mismatch in the symbols of account " + name);
+        }
+
+        TradeBook trades = new TradeBook(symbols);
+        int records;
+        while ((records = readBlock(in, crc, payload, TRADE_RECORD_SIZE, TradeBook.BLOCK_TRADES, name)) > 0) {
+            ByteBuffer buffer = ByteBuffer.wrap(payload, 0, records * TRADE_RECORD_SIZE);
+            TradeBook.Block block = new TradeBook.Block();
+            block.days = new int[records];
+            block.symbolIds = new int[records];
+            block.quantities = new int[records];
+            block.sells = new boolean[records];
+            block.pnl = new double[records];
+            for (int r = 0; r < records; r++) {
+                block.days[r] = buffer.getInt();
+                block.symbolIds[r] = buffer.getInt();
+                block.quantities[r] = buffer.getInt();
+                block.sells[r] = buffer.get() != 0;
+                block.pnl[r] = buffer.getDouble();
+                if (block.symbolIds[r] < 0 || block.symbolIds[r] >= symbolCount) {
+                    throw new CorruptSnapshotException("Invalid symbol id in account " + name);
+                }
+            }
+            if (keep) {
+                trades.appendBlock(block);
+            }
+        }
+        if (!keep) return null;
+        trades.rebuildTotals();
+        return trades;
+    }
+
+    // Reads and checks one block into payload; returns its record count, 0 for a terminator
+    private static int readBlock(DataInputStream in, CRC32 crc, byte[] payload, int recordSize, int maxRecords,
+                                 String name) throws IOException {
+        int records = in.readInt();
+        int expectedCrc = in.readInt();
+        if (records < 0 || records > maxRecords) {
+            throw new CorruptSnapshotException("Invalid block size " + records);
+        }
+        int length = records * recordSize;
+        in.readFully(payload, 0, length);
+        crc.reset();
+        updateInt(crc, records);
+        crc.update(payload, 0, length);
+        if ((int) crc.getValue() != expectedCrc) {
+            throw new CorruptSnapshotException("Checksum mismatch in account " + name);
+        }
+        return records;
+    }
+
+    private static int headerChecksum(CRC32 crc, String id, String name) {
+        crc.reset();
+        crc.update(id.getBytes(StandardCharsets.UTF_8));
+        // Separates "ab" + "c" from "a" + "bc"
+        crc.update(0);
+        crc.update(name.getBytes(StandardCharsets.UTF_8));
+        return (int) crc.getValue();
+    }
+
+    private static void updateInt(CRC32 crc, int value) {
+        crc.update(value >>> 24);
+        crc.update(value >>> 16);
+        crc.update(value >>> 8);
+        crc.update(value);
+    }
+}
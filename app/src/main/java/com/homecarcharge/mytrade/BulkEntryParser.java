@@ -0,0 +1,80 @@
+package com.homecarcharge.mytrade;
+
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.List;
+
+/**
+ * Parses pasted daily results, one per line: a day of the given month (or a yyyy-MM-dd
+ * date) followed by a signed amount, e.g. "12 1500" or "2025-03-14 -820.50". Blank lines
+ * are skipped; a negative amount is a loss.
+ */
+public final class BulkEntryParser {
+
+    private BulkEntryParser() {
+    }
+
+    /** @throws ParseException with the 1-based line number as error offset */
+    public static List<Transaction> parse(String text, int month, int year) throws ParseException {
+        List<Transaction> transactions = new ArrayList<>();
+        String[] lines = text.split("\\r?\\n");
+        Calendar cal = Calendar.getInstance();
+
+        for (int i = 0; i < lines.length; i++) {
+            String line = lines[i].trim();
+            if (line.isEmpty()) continue;
+            int lineNumber = i + 1;
+
+            String[] parts = line.split("[\\s;,]+");
+            if (parts.length != 2) {
+                throw new ParseException("Line " + lineNumber + ": expected a day and an amount", lineNumber);
+            }
+
+            cal.clear();
+            if (parts[0].indexOf('-') > 0) {
+                String[] date = parts[0].split("-");
+                if (date.length != 3) {
+                    throw new ParseException("Line " + lineNumber + ": invalid date " + parts[0], lineNumber);
+                }
+                setDate(cal, parseInt(date[0], lineNumber), parseInt(date[1], lineNumber) - 1,
+                        parseInt(date[2], lineNumber), lineNumber);
+            } else {
+                setDate(cal, year, month, parseInt(parts[0], lineNumber), lineNumber);
+            }
+
+            double amount;
+            try {
+                amount = Double.parseDouble(parts[1].replace("₹", ""));
+            } catch (NumberFormatException e) {
+                throw new ParseException("Line " + lineNumber + ": invalid amount " + parts[1], lineNumber);
+            }
+            if (amount == 0 || Double.isNaN(amount) || Double.isInfinite(amount)) {
+                throw new ParseException("Line " + lineNumber + ": amount must be non-zero", lineNumber);
+            }
+
+            transactions.add(new Transaction(cal.getTime(), amount, amount > 0));
+        }
+        return transactions;
+    }
+
+    private static void setDate(Calendar cal, int year, int month, int day, int lineNumber)
+            throws ParseException {
+        if (month < Calendar.JANUARY || month > Calendar.DECEMBER) {
+            throw new ParseException("Line " + lineNumber + ": invalid month", lineNumber);
+        }
+        cal.set(year, month, 1);
+        if (day < 1 || day > cal.getActualMaximum(Calendar.DAY_OF_MONTH)) {
+            throw new ParseException("Line " + lineNumber + ": invalid day " + day, lineNumber);
+        }
+        cal.set(Calendar.DAY_OF_MONTH, day);
+    }
+
+    private static int parseInt(String value, int lineNumber) throws ParseException {
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new ParseException("Line " + lineNumber + ": invalid number " + value, lineNumber);
+        }
+    }
+}
@@ -0,0 +1,203 @@
+package com.homecarcharge.mytrade;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * A run of one device's edits to one account, exchanged as a file between devices.
+ *
+ * Layout: magic, version, account id, device id, the sequence number of the first record,
+ * record count, CRC32 of those header fields and the records, the records, then an end magic. Records are fixed
+ * size (seq, clock, epoch day, amount, flags), so a file grows with the number of edits
+ * and not with the size of the diary.
+ */
+public final class ChangeLog {
+
+    public static final String FILE_EXTENSION = ".tdcl";
+    public static final String MIME_TYPE = "application/octet-stream";
+
+    private static final int MAGIC = 0x5444434C;      // "TDCL"
+    private static final int END_MAGIC = 0x54444E44;  // "TDND"
+    private static final int VERSION = 2;
+    private static final int RECORD_SIZE = 8 + 8 + 4 + 8 + 1;
+    private static final int MAX_RECORDS = 1 << 20;
+
+    private static final int FLAG_PROFIT = 1;
+    private static final int FLAG_DELETED = 2;
+
+    /** One edit: the day's entry as set by the device, or its removal. */
+    public static class Record {
+        // Per-device, consecutive from 1
+        final long seq;
+        // Hybrid clock; orders edits of the same day across devices
+        final long clock;
+        final int epochDay;
+        final double amount;
+        final boolean profit;
+        final boolean deleted;
+
+        Record(long seq, long clock, int epochDay, double amount, boolean profit, boolean deleted) {
+            this.seq = seq;
+            this.clock = clock;
+            this.epochDay = epochDay;
+            this.amount = amount;
+            this.profit = profit;
+            this.deleted = deleted;
+        }
+
+        public int getEpochDay() {
+            return epochDay;
+        }
+
+        public boolean isDeleted() {
+            return deleted;
+        }
+
+        // The entry this record sets; null for a removal
+        public Transaction toTransaction() {
+            return deleted ? null : new Transaction(EpochDays.toCalendar(epochDay).getTime(), amount, profit);
+        }
+    }
+
+    public static class CorruptChangeLogException extends IOException {
+        CorruptChangeLogException(String message) {
+            super(message);
+        }
+    }
+
+    private final String accountId;
+    private final String deviceId;
+    private final long firstSeq;
+    private final List<Record> records;
+
+    ChangeLog(String accountId, String deviceId, long firstSeq, List<Record> records) {
+        this.accountId = accountId;
+        this.deviceId = deviceId;
+        this.firstSeq = firstSeq;
+        this.records = Collections.unmodifiableList(records);
+    }
+
+    public String getAccountId() {
+        return accountId;
+    }
+
+    public String getDeviceId() {
+        return deviceId;
+    }
+
+    public long getFirstSeq() {
+        return firstSeq;
+    }
+
+    // The sequence number of the last record; firstSeq - 1 when empty
+    public long getLastSeq() {
+        return firstSeq + records.size() - 1;
+    }
+
+    public List<Record> getRecords() {
+        return records;
+    }
+
+    // Returns the number of bytes written
+    public long write(OutputStream output) throws IOException {
+        ByteBuffer payload = ByteBuffer.allocate(records.size() * RECORD_SIZE);
+        for (Record record : records) {
+            payload.putLong(record.seq);
+            payload.putLong(record.clock);
+            payload.putInt(record.epochDay);
+            payload.putDouble(record.amount);
+            payload.put((byte) ((record.profit ? FLAG_PROFIT : 0) | (record.deleted ? FLAG_DELETED : 0)));
+        }
+        int crc = checksum(accountId, deviceId, firstSeq, records.size(), payload.array(), payload.position());
+
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(output, 16 * 1024));
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeUTF(accountId);
+        out.writeUTF(deviceId);
+        out.writeLong(firstSeq);
+        out.writeInt(records.size());
+        out.writeInt(crc);
+        out.write(payload.array(), 0, payload.position());
+        out.writeInt(END_MAGIC);
+        out.flush();
+        return out.size();
+    }
+
+    /** Reads and validates a whole file; nothing is returned from a damaged one. */
+    public static ChangeLog read(InputStream input) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(input, 16 * 1024));
+        try {
+            if (in.readInt() != MAGIC) {
+                throw new CorruptChangeLogException("Not a Trader's Diary change file");
+            }
+            int version = in.readInt();
+            if (version != VERSION) {
+                throw new CorruptChangeLogException("Unsupported change file version " + version);
+            }
+            String accountId = in.readUTF();
+            String deviceId = in.readUTF();
+            long firstSeq = in.readLong();
+            int count = in.readInt();
+            if (firstSeq < 1 || count < 0 || count > MAX_RECORDS) {
+                throw new CorruptChangeLogException("Invalid change range");
+            }
+
+            byte[] payload = new byte[count * RECORD_SIZE];
+            int expectedCrc = in.readInt();
+            in.readFully(payload);
+            if (checksum(accountId, deviceId, firstSeq, count, payload, payload.length) != expectedCrc) {
+                throw new CorruptChangeLogException("Checksum mismatch");
+            }
+            if (in.readInt() != END_MAGIC) {
+                throw new CorruptChangeLogException("Change file is truncated");
+            }
+
+            List<Record> records = new ArrayList<>(count);
+            ByteBuffer buffer = ByteBuffer.wrap(payload);
+            for (int i = 0; i < count; i++) {
+                long seq = buffer.getLong();
+                long clock = buffer.getLong();
+                int epochDay = buffer.getInt();
+                double amount = buffer.getDouble();
+                int flags = buffer.get();
+                if (seq != firstSeq + i) {
+                    throw new CorruptChangeLogException("Changes out of sequence");
+                }
+                records.add(new Record(seq, clock, epochDay, amount,
+                        (flags & FLAG_PROFIT) != 0, (flags & FLAG_DELETED) != 0));
+            }
+            return new ChangeLog(accountId, deviceId, firstSeq, records);
+        } catch (EOFException e) {
+            throw new CorruptChangeLogException("Change file is truncated");
+        }
+    }
+
+    // Covers the header too, so a file edited to claim another account, device or range fails
+    private static int checksum(String accountId, String deviceId, long firstSeq, int count,
+                                byte[] payload, int length) {
+        ByteBuffer header = ByteBuffer.allocate(8 + 4);
+        header.putLong(firstSeq).putInt(count);
+        CRC32 crc = new CRC32();
+        crc.update(accountId.getBytes(StandardCharsets.UTF_8));
+        // Separates "ab" + "c" from "a" + "bc"
+        crc.update(0);
+        crc.update(deviceId.getBytes(StandardCharsets.UTF_8));
+        crc.update(0);
+        crc.update(header.array());
+        crc.update(payload, 0, length);
+        return (int) crc.getValue();
+    }
+}
@@ -0,0 +1,168 @@
+package com.homecarcharge.mytrade;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.security.keystore.KeyGenParameterSpec;
+import android.security.keystore.KeyProperties;
+import android.util.Base64;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.KeyStore;
+import java.security.SecureRandom;
+
+import javax.crypto.AEADBadTagException;
+import javax.crypto.Cipher;
+import javax.crypto.KeyGenerator;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * Encrypts stored chunks (one month of a ledger, a sync journal, a trade book) with
+ * AES-256-GCM. Each chunk has its own random IV and tag and is bound to its name through
+ * the associated data, so chunks are read and rewritten independently and a chunk copied
+ * under another name fails to open.
+ *
+ * Chunks use a data key that is stored wrapped by a non-exportable Android Keystore key.
+ * Unwrapping it once per process keeps each chunk to in-process AES instead of a Keystore
+ * call. Chunk layout: version, IV, ciphertext with tag.
+ */
+public final class ChunkCipher {
+
+    private static final String KEYSTORE = "AndroidKeyStore";
+    private static final String KEY_ALIAS = "ledger_data_key_wrap";
+    private static final String KEY_PREFS_NAME = "TraderDiaryKeys";
+    private static final String KEY_WRAPPED_DATA_KEY = "wrapped_data_key";
+
+    private static final String TRANSFORMATION = "AES/GCM/NoPadding";
+    private static final int TAG_BITS = 128;
+    private static final int IV_BYTES = 12;
+    private static final int DATA_KEY_BYTES = 32;
+    private static final byte VERSION = 1;
+
+    /** A chunk that cannot be authenticated: another key, a damaged value or a moved chunk. */
+    public static class UnreadableChunkException extends IOException {
+        UnreadableChunkException(String message, Throwable cause) {
+            super(message, cause);
+        }
+    }
+
+    private static ChunkCipher instance;
+
+    private final SecretKey dataKey;
+    private final SecureRandom random = new SecureRandom();
+
+    ChunkCipher(SecretKey dataKey) {
+        this.dataKey = dataKey;
+    }
+
+    /**
+     * The app's cipher. The first call creates the Keystore key and data key if needed; if
+     * the data key can no longer be unwrapped (e.g. app data restored onto another device,
+     * whose Keystore lacks the key) a new one replaces it and older chunks stay unreadable.
+     */
+    public static synchronized ChunkCipher get(Context context) {
+        if (instance == null) {
+            try {
+                instance = new ChunkCipher(loadDataKey(context.getApplicationContext()));
+            } catch (GeneralSecurityException | IOException e) {
+                throw new IllegalStateException("Android Keystore unavailable", e);
+            }
+        }
+        return instance;
+    }
+
+    public byte[] seal(byte[] plaintext, String name) {
+        byte[] chunk = new byte[1 + IV_BYTES + plaintext.length + TAG_BITS / 8];
+        chunk[0] = VERSION;
+        byte[] iv = new byte[IV_BYTES];
+        random.nextBytes(iv);
+        System.arraycopy(iv, 0, chunk, 1, IV_BYTES);
+        try {
+            Cipher cipher = Cipher.getInstance(TRANSFORMATION);
+            cipher.init(Cipher.ENCRYPT_MODE, dataKey, new GCMParameterSpec(TAG_BITS, iv));
+            cipher.updateAAD(name.getBytes(StandardCharsets.UTF_8));
+            cipher.doFinal(plaintext, 0, plaintext.length, chunk, 1 + IV_BYTES);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Cannot encrypt " + name, e);
+        }
+        return chunk;
+    }
+
+    public byte[] open(byte[] chunk, String name) throws UnreadableChunkException {
+        if (chunk.length < 1 + IV_BYTES + TAG_BITS / 8 || chunk[0] != VERSION) {
+            throw new UnreadableChunkException("Unknown chunk format in " + name, null);
+        }
+        try {
+            Cipher cipher = Cipher.getInstance(TRANSFORMATION);
+            cipher.init(Cipher.DECRYPT_MODE, dataKey, new GCMParameterSpec(TAG_BITS, chunk, 1, IV_BYTES));
+            cipher.updateAAD(name.getBytes(StandardCharsets.UTF_8));
+            return cipher.doFinal(chunk, 1 + IV_BYTES, chunk.length - 1 - IV_BYTES);
+        } catch (GeneralSecurityException e) {
+            throw new UnreadableChunkException("Cannot decrypt " + name, e);
+        }
+    }
+
+    // Base64 for SharedPreferences
+    public String sealString(String plaintext, String name) {
+        return Base64.encodeToString(seal(plaintext.getBytes(StandardCharsets.UTF_8), name), Base64.NO_WRAP);
+    }
+
+    public String openString(String chunk, String name) throws UnreadableChunkException {
+        byte[] bytes;
+        try {
+            bytes = Base64.decode(chunk, Base64.NO_WRAP);
+        } catch (IllegalArgumentException e) {
+            throw new UnreadableChunkException("Damaged chunk " + name, e);
+        }
+        return new String(open(bytes, name), StandardCharsets.UTF_8);
+    }
+
+    private static SecretKey loadDataKey(Context context) throws GeneralSecurityException, IOException {
+        KeyStore keyStore = KeyStore.getInstance(KEYSTORE);
+        keyStore.load(null);
+        SecretKey wrappingKey = (SecretKey) keyStore.getKey(KEY_ALIAS, null);
+        boolean newWrappingKey = wrappingKey == null;
+        if (newWrappingKey) {
+            KeyGenerator generator = KeyGenerator.getInstance(KeyProperties.KEY_ALGORITHM_AES, KEYSTORE);
+            generator.init(new KeyGenParameterSpec.Builder(KEY_ALIAS,
+                    KeyProperties.PURPOSE_ENCRYPT | KeyProperties.PURPOSE_DECRYPT)
+                    .setBlockModes(KeyProperties.BLOCK_MODE_GCM)
+                    .setEncryptionPaddings(KeyProperties.ENCRYPTION_PADDING_NONE)
+                    .setKeySize(256)
+                    .build());
+            wrappingKey = generator.generateKey();
+        }
+
+        SharedPreferences prefs = context.getSharedPreferences(KEY_PREFS_NAME, Context.MODE_PRIVATE);
+        String wrapped = prefs.getString(KEY_WRAPPED_DATA_KEY, null);
+        // A data key wrapped by a Keystore key that no longer exists cannot be recovered.
+        // Other failures are thrown, so a Keystore error never replaces a good key.
+        if (wrapped != null && !newWrappingKey) {
+            byte[] bytes = Base64.decode(wrapped, Base64.NO_WRAP);
+            try {
+                Cipher cipher = Cipher.getInstance(TRANSFORMATION);
+                cipher.init(Cipher.DECRYPT_MODE, wrappingKey, new GCMParameterSpec(TAG_BITS, bytes, 0, IV_BYTES));
+                return new SecretKeySpec(cipher.doFinal(bytes, IV_BYTES, bytes.length - IV_BYTES), "AES");
+            } catch (AEADBadTagException e) {
+                // Wrapped under another device's key; start a new data key
+            }
+        }
+
+        byte[] dataKey = new byte[DATA_KEY_BYTES];
+        new SecureRandom().nextBytes(dataKey);
+        // Keystore keys pick their own IV
+        Cipher cipher = Cipher.getInstance(TRANSFORMATION);
+        cipher.init(Cipher.ENCRYPT_MODE, wrappingKey);
+        byte[] iv = cipher.getIV();
+        byte[] sealed = cipher.doFinal(dataKey);
+        byte[] stored = new byte[iv.length + sealed.length];
+        System.arraycopy(iv, 0, stored, 0, iv.length);
+        System.arraycopy(sealed, 0, stored, iv.length, sealed.length);
+        // Committed before any chunk is written with the new key
+        prefs.edit().putString(KEY_WRAPPED_DATA_KEY, Base64.encodeToString(stored, Base64.NO_WRAP)).commit();
+        return new SecretKeySpec(dataKey, "AES");
+    }
+}
@@ -0,0 +1,70 @@
+package com.homecarcharge.mytrade;
+
+import java.util.Calendar;
+import java.util.TreeMap;
+
+/**
+ * A {@link PnlDistribution} per month plus a running all-time one, built from a snapshot in
+ * one pass and then kept current from ledger changes. Years are merged from their months
+ * on request, so no query rescans entries. Main thread only.
+ */
+public class DistributionIndex {
+
+    private final TreeMap<Integer, PnlDistribution> months = new TreeMap<>();
+    private final PnlDistribution allTime = new PnlDistribution();
+
+    public static DistributionIndex build(LedgerSnapshot snapshot) {
+        DistributionIndex index = new DistributionIndex();
+        for (MonthSegment segment : snapshot.getSegments().values()) {
+            PnlDistribution month = new PnlDistribution();
+            // Per-day nets, so months whose entries are not loaded stay unread
+            for (int day = 31; day >= 1; day--) {
+                if (segment.hasDay(day)) {
+                    month.add(segment.getDayNet(day));
+                }
+            }
+            index.months.put(segment.getMonthKey(), month);
+            index.allTime.merge(month);
+        }
+        return index;
+    }
+
+    public void apply(LedgerChange change) {
+        PnlDistribution month = months.get(change.getMonthKey());
+        if (month == null) {
+            month = new PnlDistribution();
+            months.put(change.getMonthKey(), month);
+        }
+        if (change.getBefore() != null) {
+            month.remove(change.getBefore().getNetAmount());
+            allTime.remove(change.getBefore().getNetAmount());
+        }
+        if (change.getAfter() != null) {
+            month.add(change.getAfter().getNetAmount());
+            allTime.add(change.getAfter().getNetAmount());
+        }
+    }
+
+    // Writes the month's distribution into out
+    public void month(int monthKey, PnlDistribution out) {
+        out.clear();
+        PnlDistribution month = months.get(monthKey);
+        if (month != null) {
+            out.merge(month);
+        }
+    }
+
+    // Writes the merge of the year's months into out
+    public void year(int year, PnlDistribution out) {
+        out.clear();
+        for (PnlDistribution month : months.subMap(Ledger.monthKey(Calendar.JANUARY, year), true,
+                Ledger.monthKey(Calendar.DECEMBER, year), true).values()) {
+            out.merge(month);
+        }
+    }
+
+    public void allTime(PnlDistribution out) {
+        out.clear();
+        out.merge(allTime);
+    }
+}
@@ -0,0 +1,74 @@
+package com.homecarcharge.mytrade;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.util.AttributeSet;
+import android.view.View;
+
+/**
+ * Histogram of daily net P&L over {@link PnlDistribution}'s fixed buckets: loss buckets in
+ * red on the left, profit buckets in green on the right, each labelled with its lower
+ * edge. Counts are copied in setDistribution(), so onDraw allocates nothing.
+ */
+public class DistributionView extends View {
+
+    private static final String[] LABELS = {"", "-10k", "-5k", "-2k", "-1k", "-500", "0", "500", "1k", "2k", "5k", "10k"};
+    private static final int COLOR_LABEL = 0xFF666666;
+    private static final int COLOR_EMPTY = 0xFFEEEEEE;
+
+    private final int[] counts = new int[PnlDistribution.BUCKETS];
+    private final Paint barPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint labelPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final float labelHeight;
+    private final float barGap;
+    private int maxCount;
+
+    public DistributionView(Context context) {
+        this(context, null);
+    }
+
+    public DistributionView(Context context, AttributeSet attrs) {
+        super(context, attrs);
+        float density = getResources().getDisplayMetrics().density;
+        barGap = 2 * density;
+        labelHeight = 14 * density;
+        labelPaint.setColor(COLOR_LABEL);
+        labelPaint.setTextSize(9 * density);
+        labelPaint.setTextAlign(Paint.Align.CENTER);
+    }
+
+    public void setDistribution(PnlDistribution distribution) {
+        maxCount = 0;
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = distribution.getBucketCount(i);
+            maxCount = Math.max(maxCount, counts[i]);
+        }
+        invalidate();
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        float left = getPaddingLeft();
+        float top = getPaddingTop();
+        float barWidth = (getWidth() - left - getPaddingRight()) / counts.length;
+        float chartHeight = getHeight() - top - getPaddingBottom() - labelHeight;
+        // The zero edge starts the first profit bucket
+        int firstProfitBucket = PnlDistribution.bucketOf(0);
+
+        for (int i = 0; i < counts.length; i++) {
+            float x = left + i * barWidth;
+            float height = maxCount == 0 ? 0 : chartHeight * counts[i] / maxCount;
+            if (counts[i] == 0) {
+                barPaint.setColor(COLOR_EMPTY);
+                height = Math.min(chartHeight, barGap);
+            } else {
+                barPaint.setColor(i >= firstProfitBucket ? Formatters.COLOR_PROFIT : Formatters.COLOR_LOSS);
+            }
+            canvas.drawRect(x + barGap / 2, top + chartHeight - height, x + barWidth - barGap / 2,
+                    top + chartHeight, barPaint);
+            // Each label sits under the left edge of its bucket
+            canvas.drawText(LABELS[i], x, top + chartHeight + labelHeight - 2, labelPaint);
+        }
+    }
+}
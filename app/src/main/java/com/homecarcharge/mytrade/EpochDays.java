@@ -0,0 +1,48 @@
+package com.homecarcharge.mytrade;
+
+import java.util.Calendar;
+
+/**
+ * Calendar dates as days since 1970-01-01, independent of time zone, so trading days can
+ * be used as array indexes and map keys.
+ */
+public final class EpochDays {
+
+    private EpochDays() {
+    }
+
+    // Month is 0-based, as in Calendar
+    public static int of(int year, int month, int day) {
+        // Proleptic Gregorian day count with March as the first month of the year
+        int y = month < 2 ? year - 1 : year;
+        int m = month < 2 ? month + 10 : month - 2;
+        int era = Math.floorDiv(y, 400);
+        int yearOfEra = y - era * 400;
+        int dayOfYear = (153 * m + 2) / 5 + day - 1;
+        int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097 + dayOfEra - 719468;
+    }
+
+    public static int of(int monthKey, int day) {
+        return of(Ledger.yearOf(monthKey), Ledger.monthOf(monthKey), day);
+    }
+
+    public static int of(Calendar cal) {
+        return of(cal.get(Calendar.YEAR), cal.get(Calendar.MONTH), cal.get(Calendar.DAY_OF_MONTH));
+    }
+
+    // Monday of the day's week
+    public static int weekStart(int epochDay) {
+        // 1970-01-01 was a Thursday
+        return epochDay - Math.floorMod(epochDay + 3, 7);
+    }
+
+    // Local calendar set to the start of the day
+    public static Calendar toCalendar(int epochDay) {
+        Calendar cal = Calendar.getInstance();
+        cal.clear();
+        cal.set(1970, Calendar.JANUARY, 1);
+        cal.add(Calendar.DAY_OF_MONTH, epochDay);
+        return cal;
+    }
+}
@@ -0,0 +1,111 @@
+package com.homecarcharge.mytrade;
+
+import java.util.Map;
+
+/**
+ * Cumulative net P&L for every calendar day from the first entry to the last, as one
+ * float array built from a ledger snapshot in a single pass. Days without an entry carry
+ * the previous total, so the curve is flat across them.
+ *
+ * {@link #downsample} reduces the curve to a given number of days per bucket, keeping each
+ * bucket's low and high in the order they occur. A line through those points covers
+ * exactly the same vertical range per pixel as the full curve, so peaks and drawdowns
+ * survive at any zoom.
+ */
+public class EquityCurve {
+
+    public static final EquityCurve EMPTY = new EquityCurve(0, new float[0], 0);
+
+    private final int firstDay;
+    private final float[] cumulative;
+    // Kept in double; the float points are only precise enough to draw
+    private final double finalTotal;
+
+    private EquityCurve(int firstDay, float[] cumulative, double finalTotal) {
+        this.firstDay = firstDay;
+        this.cumulative = cumulative;
+        this.finalTotal = finalTotal;
+    }
+
+    public static EquityCurve build(LedgerSnapshot snapshot) {
+        if (snapshot.isEmpty()) return EMPTY;
+        int firstDay = firstEntryDay(snapshot.getSegments().firstEntry().getValue());
+        int lastDay = lastEntryDay(snapshot.getSegments().lastEntry().getValue());
+        float[] cumulative = new float[lastDay - firstDay + 1];
+
+        // Summed in double so a long history does not drift
+        double total = 0;
+        int filled = 0;
+        for (Map.Entry<Integer, MonthSegment> entry : snapshot.getSegments().entrySet()) {
+            MonthSegment segment = entry.getValue();
+            for (int day = 1; day <= 31; day++) {
+                Transaction t = segment.getTransaction(day);
+                if (t == null) continue;
+                int index = EpochDays.of(entry.getKey(), day) - firstDay;
+                while (filled < index) {
+                    cumulative[filled++] = (float) total;
+                }
+                total += t.getNetAmount();
+                cumulative[filled++] = (float) total;
+            }
+        }
+        return new EquityCurve(firstDay, cumulative, total);
+    }
+
+    public int getFirstDay() {
+        return firstDay;
+    }
+
+    // Calendar days covered, first and last entry included
+    public int getDays() {
+        return cumulative.length;
+    }
+
+    public float get(int index) {
+        return cumulative[index];
+    }
+
+    public double getFinal() {
+        return finalTotal;
+    }
+
+    public int bucketCount(double daysPerBucket) {
+        return (int) Math.ceil(cumulative.length / daysPerBucket);
+    }
+
+    /**
+     * Two values per bucket, the bucket's low and high in the order they occur (both the
+     * same for a single day); bucket b covers days [b * daysPerBucket, (b + 1) * daysPerBucket).
+     */
+    public float[] downsample(double daysPerBucket) {
+        int buckets = bucketCount(daysPerBucket);
+        float[] points = new float[buckets * 2];
+        for (int b = 0; b < buckets; b++) {
+            int from = (int) (b * daysPerBucket);
+            int to = Math.min(cumulative.length, (int) ((b + 1) * daysPerBucket));
+            int minIndex = from;
+            int maxIndex = from;
+            for (int i = from + 1; i < to; i++) {
+                if (cumulative[i] < cumulative[minIndex]) minIndex = i;
+                if (cumulative[i] > cumulative[maxIndex]) maxIndex = i;
+            }
+            points[2 * b] = cumulative[Math.min(minIndex, maxIndex)];
+            points[2 * b + 1] = cumulative[Math.max(minIndex, maxIndex)];
+        }
+        return points;
+    }
+
+    private static int firstEntryDay(MonthSegment segment) {
+        for (int day = 1; day <= 31; day++) {
+            if (segment.getTransaction(day) != null) return EpochDays.of(segment.getMonthKey(), day);
+        }
+        throw new IllegalArgumentException("Empty segment");
+    }
+
+    private static int lastEntryDay(MonthSegment segment) {
+        for (int day = 31; day >= 1; day--) {
+            if (segment.getTransaction(day) != null) return EpochDays.of(segment.getMonthKey(), day);
+        }
+        throw new IllegalArgumentException("Empty segment");
+    }
+}
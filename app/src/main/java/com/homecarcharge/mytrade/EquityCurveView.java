@@ -0,0 +1,182 @@
+package com.homecarcharge.mytrade;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.util.AttributeSet;
+import android.view.MotionEvent;
+import android.view.View;
+
+/**
+ * Line chart of an {@link EquityCurve} over a window of 3 months, 1 year, 5 years or the
+ * whole history; dragging pans the window. For each zoom level the whole curve is
+ * downsampled once to about one bucket per pixel and cached, so panning only redraws a
+ * slice of the cached points and onDraw allocates nothing, however long the history.
+ */
+public class EquityCurveView extends View {
+
+    public static final int ZOOM_3_MONTHS = 0;
+    public static final int ZOOM_1_YEAR = 1;
+    public static final int ZOOM_5_YEARS = 2;
+    public static final int ZOOM_ALL = 3;
+
+    private static final int[] ZOOM_SPANS = {91, 365, 5 * 365, Integer.MAX_VALUE};
+    private static final int COLOR_BASELINE = 0xFFBBBBBB;
+
+    private final Paint linePaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint baselinePaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+
+    private EquityCurve curve = EquityCurve.EMPTY;
+    private int zoomLevel = ZOOM_1_YEAR;
+    // First visible day, counted from the curve's first day
+    private float startDay;
+    private float lastTouchX;
+
+    // Downsampled points per zoom level; dropped when the curve or the width changes
+    private final float[][] cachedPoints = new float[ZOOM_SPANS.length][];
+    // Four floats per segment for drawLines, sized to the width in onSizeChanged
+    private float[] lines = new float[0];
+
+    public EquityCurveView(Context context) {
+        this(context, null);
+    }
+
+    public EquityCurveView(Context context, AttributeSet attrs) {
+        super(context, attrs);
+        float density = getResources().getDisplayMetrics().density;
+        linePaint.setStrokeWidth(1.5f * density);
+        baselinePaint.setColor(COLOR_BASELINE);
+        baselinePaint.setStrokeWidth(density);
+    }
+
+    // Shows the latest days of the new curve
+    public void setCurve(EquityCurve curve) {
+        this.curve = curve;
+        clearCache();
+        startDay = curve.getDays() - span();
+        invalidate();
+    }
+
+    // Keeps the last visible day in view
+    public void setZoomLevel(int zoomLevel) {
+        float endDay = startDay + span();
+        this.zoomLevel = zoomLevel;
+        startDay = clampStart(endDay - span());
+        invalidate();
+    }
+
+    @Override
+    protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+        super.onSizeChanged(w, h, oldw, oldh);
+        clearCache();
+        // Two points per bucket, about one bucket per pixel, plus partial buckets at both edges
+        lines = new float[(chartWidth() + 4) * 2 * 4];
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        int width = chartWidth();
+        if (curve.getDays() == 0 || width <= 0) return;
+
+        int span = span();
+        double daysPerBucket = daysPerBucket(span, width);
+        float[] points = pointsFor(zoomLevel, daysPerBucket);
+        int buckets = points.length / 2;
+        int firstBucket = Math.max(0, (int) (startDay / daysPerBucket));
+        int lastBucket = Math.min(buckets - 1, (int) Math.ceil((startDay + span) / daysPerBucket));
+
+        // Scale to the visible range, keeping the zero line in view
+        float min = 0;
+        float max = 0;
+        for (int i = 2 * firstBucket; i <= 2 * lastBucket + 1; i++) {
+            min = Math.min(min, points[i]);
+            max = Math.max(max, points[i]);
+        }
+        float left = getPaddingLeft();
+        float top = getPaddingTop();
+        float height = getHeight() - top - getPaddingBottom();
+        float yScale = max > min ? height / (max - min) : 0;
+        float xScale = (float) width / span;
+
+        int n = 0;
+        float prevX = 0;
+        float prevY = 0;
+        for (int b = firstBucket; b <= lastBucket; b++) {
+            float x = left + (float) ((b * daysPerBucket - startDay) * xScale);
+            for (int k = 0; k < 2; k++) {
+                float y = top + (max - points[2 * b + k]) * yScale;
+                if (b > firstBucket || k > 0) {
+                    lines[n++] = prevX;
+                    lines[n++] = prevY;
+                    lines[n++] = x;
+                    lines[n++] = y;
+                }
+                prevX = x;
+                prevY = y;
+            }
+        }
+
+        float zeroY = top + max * yScale;
+        canvas.drawLine(left, zeroY, left + width, zeroY, baselinePaint);
+        linePaint.setColor(Formatters.amountColor(points[2 * lastBucket + 1] >= 0));
+        canvas.save();
+        canvas.clipRect(left, top, left + width, top + height);
+        canvas.drawLines(lines, 0, n, linePaint);
+        canvas.restore();
+    }
+
+    @Override
+    public boolean onTouchEvent(MotionEvent event) {
+        switch (event.getActionMasked()) {
+            case MotionEvent.ACTION_DOWN:
+                lastTouchX = event.getX();
+                return true;
+            case MotionEvent.ACTION_MOVE:
+                float dx = event.getX() - lastTouchX;
+                lastTouchX = event.getX();
+                startDay = clampStart(startDay - dx * span() / Math.max(1, chartWidth()));
+                invalidate();
+                return true;
+            case MotionEvent.ACTION_UP:
+                performClick();
+                return true;
+        }
+        return super.onTouchEvent(event);
+    }
+
+    @Override
+    public boolean performClick() {
+        return super.performClick();
+    }
+
+    // Visible days at the current zoom, never more than the curve has
+    private int span() {
+        return Math.max(1, Math.min(ZOOM_SPANS[zoomLevel], curve.getDays()));
+    }
+
+    private float clampStart(float day) {
+        return Math.max(0, Math.min(day, curve.getDays() - span()));
+    }
+
+    private int chartWidth() {
+        return getWidth() - getPaddingLeft() - getPaddingRight();
+    }
+
+    // At least one day, so a short curve is drawn point by point
+    private static double daysPerBucket(int span, int width) {
+        return Math.max(1.0, (double) span / width);
+    }
+
+    private float[] pointsFor(int level, double daysPerBucket) {
+        if (cachedPoints[level] == null) {
+            cachedPoints[level] = curve.downsample(daysPerBucket);
+        }
+        return cachedPoints[level];
+    }
+
+    private void clearCache() {
+        for (int i = 0; i < cachedPoints.length; i++) {
+            cachedPoints[i] = null;
+        }
+    }
+}
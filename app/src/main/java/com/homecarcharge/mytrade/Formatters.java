@@ -0,0 +1,301 @@
+package com.homecarcharge.mytrade;
+
+import java.text.DateFormatSymbols;
+import java.text.DecimalFormatSymbols;
+import java.text.SimpleDateFormat;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Shared formatting for the render path. Colors, date formatters, day numbers and
+ * month titles are created once; amounts and dates are written into caller-owned
+ * char buffers so a steady-state render does not allocate. Main thread only.
+ */
+public final class Formatters {
+
+    // Colors used by the calendar, stats and lists (pre-parsed #AARRGGBB)
+    public static final int COLOR_PROFIT = 0xFF4CAF50;
+    public static final int COLOR_LOSS = 0xFFF44336;
+    public static final int COLOR_PROFIT_BACKGROUND = 0xFFE8F5E8;
+    public static final int COLOR_LOSS_BACKGROUND = 0xFFFFEBEE;
+    public static final int COLOR_HUD_BACKGROUND = 0xCC000000;
+
+    public static final String PATTERN_MONTH_YEAR = "MMMM yyyy";
+    public static final String PATTERN_SHORT_DATE = "MMM dd, yyyy";
+
+    // "₹ -9223372036854775807.99" fits comfortably
+    public static final int CURRENCY_CAPACITY = 32;
+    // "Sept 30, 2025:" plus room for long localized month abbreviations
+    public static final int DATE_CAPACITY = 32;
+    public static final int STREAKS_CAPACITY = 128;
+    public static final int DISTRIBUTION_CAPACITY = 160;
+
+    private static final char RUPEE = '₹';
+    private static final int MIN_CACHED_YEAR = 1970;
+    private static final int MAX_CACHED_YEAR = 2199;
+    private static final int MAX_CACHED_NUMBER = 400;
+
+    private static final String[] NUMBERS = new String[MAX_CACHED_NUMBER + 1];
+
+    static {
+        for (int i = 0; i <= MAX_CACHED_NUMBER; i++) {
+            NUMBERS[i] = String.valueOf(i);
+        }
+    }
+
+    private static Formatters instance;
+
+    // Digits and decimal separator of amounts, as String.format takes them from the default locale
+    private static Locale amountLocale;
+    private static char zeroDigit = '0';
+    private static char decimalSeparator = '.';
+
+    private final Map<String, SimpleDateFormat> dateFormats = new HashMap<>();
+    private final Calendar calendar = Calendar.getInstance();
+    private Locale locale;
+    private String[] shortMonthNames;
+    private String[] monthTitles;
+
+    public static Formatters get() {
+        if (instance == null) {
+            instance = new Formatters();
+        }
+        return instance;
+    }
+
+    Formatters() {
+        resetForLocale(Locale.getDefault());
+    }
+
+    private void ensureLocale() {
+        Locale current = Locale.getDefault();
+        if (current != locale) {
+            resetForLocale(current);
+        }
+    }
+
+    private void resetForLocale(Locale newLocale) {
+        locale = newLocale;
+        dateFormats.clear();
+        shortMonthNames = DateFormatSymbols.getInstance(newLocale).getShortMonths();
+        monthTitles = new String[(MAX_CACHED_YEAR - MIN_CACHED_YEAR + 1) * 12];
+    }
+
+    // Cached SimpleDateFormat for the current locale; not thread-safe, like the format itself
+    public SimpleDateFormat dateFormat(String pattern) {
+        ensureLocale();
+        SimpleDateFormat format = dateFormats.get(pattern);
+        if (format == null) {
+            format = new SimpleDateFormat(pattern, locale);
+            dateFormats.put(pattern, format);
+        }
+        return format;
+    }
+
+    public static String number(int value) {
+        if (value >= 0 && value <= MAX_CACHED_NUMBER) {
+            return NUMBERS[value];
+        }
+        return String.valueOf(value);
+    }
+
+    // "MMMM yyyy" title for a month (0-based), cached per month
+    public String monthTitle(int month, int year) {
+        ensureLocale();
+        if (year < MIN_CACHED_YEAR || year > MAX_CACHED_YEAR) {
+            return formatMonthTitle(month, year);
+        }
+        int index = (year - MIN_CACHED_YEAR) * 12 + month;
+        String title = monthTitles[index];
+        if (title == null) {
+            title = formatMonthTitle(month, year);
+            monthTitles[index] = title;
+        }
+        return title;
+    }
+
+    private String formatMonthTitle(int month, int year) {
+        calendar.clear();
+        calendar.set(year, month, 1);
+        return dateFormat(PATTERN_MONTH_YEAR).format(calendar.getTime());
+    }
+
+    public static int amountColor(boolean isProfit) {
+        return isProfit ? COLOR_PROFIT : COLOR_LOSS;
+    }
+
+    // Writes "₹ 1234.56" into dest and returns the length, matching String.format("₹ %.2f") in
+    // the default locale, e.g. "₹ 1234,56" in German, except that an amount that rounds to zero
+    // is never signed: "₹ 0.00", not "₹ -0.00"
+    public static int formatCurrency(double amount, char[] dest) {
+        return formatCurrency(amount, dest, 0);
+    }
+
+    public static int formatCurrency(double amount, char[] dest, int offset) {
+        dest[offset] = RUPEE;
+        dest[offset + 1] = ' ';
+        return 2 + formatDecimal(amount, dest, offset + 2);
+    }
+
+    // Writes amount with two decimals at offset, in the default locale's digits and decimal
+    // separator, and returns the number of chars written
+    public static int formatDecimal(double amount, char[] dest, int offset) {
+        ensureAmountSymbols();
+        long cents = Math.round(Math.abs(amount) * 100);
+        int pos = offset;
+        if (amount < 0 && cents != 0) {
+            dest[pos++] = '-';
+        }
+        pos = writeLong(cents / 100, dest, pos, zeroDigit);
+        dest[pos++] = decimalSeparator;
+        long fraction = cents % 100;
+        dest[pos++] = (char) (zeroDigit + fraction / 10);
+        dest[pos++] = (char) (zeroDigit + fraction % 10);
+        return pos - offset;
+    }
+
+    private static void ensureAmountSymbols() {
+        Locale current = Locale.getDefault();
+        if (current != amountLocale) {
+            DecimalFormatSymbols symbols = DecimalFormatSymbols.getInstance(current);
+            zeroDigit = symbols.getZeroDigit();
+            decimalSeparator = symbols.getDecimalSeparator();
+            amountLocale = current;
+        }
+    }
+
+    // Writes "MMM dd, yyyy" for the date into dest and returns the length
+    public int formatShortDate(Date date, char[] dest) {
+        ensureLocale();
+        calendar.setTime(date);
+        int pos = appendText(shortMonthNames[calendar.get(Calendar.MONTH)], dest, 0);
+        dest[pos++] = ' ';
+        int day = calendar.get(Calendar.DAY_OF_MONTH);
+        dest[pos++] = (char) ('0' + day / 10);
+        dest[pos++] = (char) ('0' + day % 10);
+        dest[pos++] = ',';
+        dest[pos++] = ' ';
+        return writeLong(calendar.get(Calendar.YEAR), dest, pos);
+    }
+
+    // Writes "dd MMM yyyy" for the date into dest and returns the length
+    public int formatDayMonthYear(Date date, char[] dest) {
+        ensureLocale();
+        calendar.setTime(date);
+        int day = calendar.get(Calendar.DAY_OF_MONTH);
+        int pos = 0;
+        dest[pos++] = (char) ('0' + day / 10);
+        dest[pos++] = (char) ('0' + day % 10);
+        dest[pos++] = ' ';
+        pos = appendText(shortMonthNames[calendar.get(Calendar.MONTH)], dest, pos);
+        dest[pos++] = ' ';
+        return writeLong(calendar.get(Calendar.YEAR), dest, pos);
+    }
+
+    // Writes "a/b Traded Days" into dest and returns the length
+    public static int formatTradedDays(int profitable, int traded, char[] dest) {
+        int pos = writeLong(profitable, dest, 0);
+        dest[pos++] = '/';
+        pos = writeLong(traded, dest, pos);
+        return appendText(" Traded Days", dest, pos);
+    }
+
+    // "12 days · 58% wins"
+    public static int formatMonthStats(int traded, int winPercent, char[] dest) {
+        int pos = writeLong(traded, dest, 0);
+        pos = appendText(traded == 1 ? " day · " : " days · ", dest, pos);
+        pos = writeLong(winPercent, dest, pos);
+        return appendText("% wins", dest, pos);
+    }
+
+    // "12 days · avg ₹ -250.00 · 42% wins"
+    public static int formatGroupStats(int days, double mean, int winPercent, char[] dest) {
+        int pos = writeLong(days, dest, 0);
+        pos = appendText(days == 1 ? " day · avg " : " days · avg ", dest, pos);
+        pos += formatCurrency(mean, dest, pos);
+        pos = appendText(" · ", dest, pos);
+        pos = writeLong(winPercent, dest, pos);
+        return appendText("% wins", dest, pos);
+    }
+
+    // "42 trades · 55% wins"
+    public static int formatTradeStats(int trades, int winPercent, char[] dest) {
+        int pos = writeLong(trades, dest, 0);
+        pos = appendText(trades == 1 ? " trade · " : " trades · ", dest, pos);
+        pos = writeLong(winPercent, dest, pos);
+        return appendText("% wins", dest, pos);
+    }
+
+    // "Running: 3 wins\nLongest win/loss  Month 4/2 · Year 6/3 · All time 9/5"
+    public static int formatStreaks(StreakTree.Streaks running, StreakTree.Streaks month,
+                                    StreakTree.Streaks year, StreakTree.Streaks allTime, char[] dest) {
+        int pos = appendText("Running: ", dest, 0);
+        if (running.getCurrentWins() > 0) {
+            pos = writeLong(running.getCurrentWins(), dest, pos);
+            pos = appendText(running.getCurrentWins() == 1 ? " win" : " wins", dest, pos);
+        } else if (running.getCurrentLosses() > 0) {
+            pos = writeLong(running.getCurrentLosses(), dest, pos);
+            pos = appendText(running.getCurrentLosses() == 1 ? " loss" : " losses", dest, pos);
+        } else {
+            pos = appendText("none", dest, pos);
+        }
+        pos = appendText("\nLongest win/loss  Month ", dest, pos);
+        pos = writeWinLoss(month, dest, pos);
+        pos = appendText(" · Year ", dest, pos);
+        pos = writeWinLoss(year, dest, pos);
+        pos = appendText(" · All time ", dest, pos);
+        return writeWinLoss(allTime, dest, pos);
+    }
+
+    // Writes "Median day ₹ m over n days\nWorst 5% ₹ a or less · Best 5% ₹ b or more"
+    public static int formatDistribution(PnlDistribution distribution, char[] dest) {
+        int days = distribution.getDays();
+        if (days == 0) {
+            return appendText("No entries", dest, 0);
+        }
+        int pos = appendText("Median day ", dest, 0);
+        pos += formatCurrency(distribution.quantile(0.5), dest, pos);
+        pos = appendText(" over ", dest, pos);
+        pos = writeLong(days, dest, pos);
+        pos = appendText(days == 1 ? " day\nWorst 5% " : " days\nWorst 5% ", dest, pos);
+        pos += formatCurrency(distribution.quantile(0.05), dest, pos);
+        pos = appendText(" or less · Best 5% ", dest, pos);
+        pos += formatCurrency(distribution.quantile(0.95), dest, pos);
+        return appendText(" or more", dest, pos);
+    }
+
+    private static int writeWinLoss(StreakTree.Streaks streaks, char[] dest, int pos) {
+        pos = writeLong(streaks.getLongestWins(), dest, pos);
+        dest[pos++] = '/';
+        return writeLong(streaks.getLongestLosses(), dest, pos);
+    }
+
+    public static int appendText(String text, char[] dest, int pos) {
+        text.getChars(0, text.length(), dest, pos);
+        return pos + text.length();
+    }
+
+    private static int writeLong(long value, char[] dest, int pos) {
+        return writeLong(value, dest, pos, '0');
+    }
+
+    private static int writeLong(long value, char[] dest, int pos, char zero) {
+        if (value < 0) {
+            dest[pos++] = '-';
+            value = -value;
+        }
+        int digits = 1;
+        for (long v = value / 10; v > 0; v /= 10) {
+            digits++;
+        }
+        int end = pos + digits;
+        for (int i = end - 1; i >= pos; i--) {
+            dest[i] = (char) (zero + value % 10);
+            value /= 10;
+        }
+        return end;
+    }
+}
@@ -0,0 +1,76 @@
+package com.homecarcharge.mytrade;
+
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.BaseAdapter;
+import android.widget.TextView;
+
+/**
+ * Rows of the instrument leaderboard: symbol, net P&L and trade stats, read straight from
+ * the {@link TradeBook}'s per-symbol totals.
+ */
+public class InstrumentLeaderboardAdapter extends BaseAdapter {
+
+    private static class RowHolder {
+        TextView nameView;
+        TextView pnlView;
+        TextView statsView;
+        final char[] pnlChars = new char[Formatters.CURRENCY_CAPACITY];
+        final char[] statsChars = new char[48];
+    }
+
+    private final LayoutInflater inflater;
+    private final TradeBook book;
+    private int[] symbolIds;
+
+    public InstrumentLeaderboardAdapter(LayoutInflater inflater, TradeBook book, int[] symbolIds) {
+        this.inflater = inflater;
+        this.book = book;
+        this.symbolIds = symbolIds;
+    }
+
+    public void setSymbolIds(int[] symbolIds) {
+        this.symbolIds = symbolIds;
+        notifyDataSetChanged();
+    }
+
+    @Override
+    public int getCount() {
+        return symbolIds.length;
+    }
+
+    @Override
+    public Object getItem(int position) {
+        return book.getSymbols().name(symbolIds[position]);
+    }
+
+    @Override
+    public long getItemId(int position) {
+        return symbolIds[position];
+    }
+
+    @Override
+    public View getView(int position, View convertView, ViewGroup parent) {
+        RowHolder holder;
+        if (convertView == null) {
+            convertView = inflater.inflate(R.layout.item_month_summary, parent, false);
+            holder = new RowHolder();
+            holder.nameView = convertView.findViewById(R.id.tv_month_name);
+            holder.pnlView = convertView.findViewById(R.id.tv_month_pnl);
+            holder.statsView = convertView.findViewById(R.id.tv_month_stats);
+            convertView.setTag(holder);
+        } else {
+            holder = (RowHolder) convertView.getTag();
+        }
+
+        int id = symbolIds[position];
+        double net = book.getNet(id);
+        holder.nameView.setText(book.getSymbols().name(id));
+        holder.pnlView.setText(holder.pnlChars, 0, Formatters.formatCurrency(net, holder.pnlChars));
+        holder.pnlView.setTextColor(Formatters.amountColor(net >= 0));
+        holder.statsView.setText(holder.statsChars, 0, Formatters.formatTradeStats(
+                book.getTradeCount(id), book.getWinRatePercent(id), holder.statsChars));
+        return convertView;
+    }
+}
@@ -0,0 +1,75 @@
+package com.homecarcharge.mytrade;
+
+import java.util.Locale;
+
+/**
+ * Fixed-size latency histogram with power-of-two microsecond buckets.
+ * Recording never allocates, so it is safe to call on every frame.
+ */
+public class LatencyHistogram {
+
+    // Bucket i holds samples in [2^(i-1), 2^i) microseconds; bucket 0 holds sub-microsecond samples
+    private static final int BUCKET_COUNT = 32;
+
+    private final long[] buckets = new long[BUCKET_COUNT];
+    private long count;
+    private long totalNanos;
+    private long maxNanos;
+
+    public synchronized void record(long nanos) {
+        long micros = nanos / 1000;
+        int bucket = micros == 0 ? 0 : 64 - Long.numberOfLeadingZeros(micros);
+        if (bucket >= BUCKET_COUNT) {
+            bucket = BUCKET_COUNT - 1;
+        }
+        buckets[bucket]++;
+        count++;
+        totalNanos += nanos;
+        if (nanos > maxNanos) {
+            maxNanos = nanos;
+        }
+    }
+
+    public synchronized long getCount() {
+        return count;
+    }
+
+    public synchronized double getMeanMillis() {
+        return count == 0 ? 0 : totalNanos / (double) count / 1_000_000.0;
+    }
+
+    public synchronized double getMaxMillis() {
+        return maxNanos / 1_000_000.0;
+    }
+
+    // Upper bound of the bucket containing the requested percentile, capped at the observed max
+    public synchronized double getPercentileMillis(double percentile) {
+        if (count == 0) return 0;
+
+        long target = (long) Math.ceil(count * percentile / 100.0);
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += buckets[i];
+            if (seen >= target) {
+                double upperMillis = (1L << i) / 1000.0;
+                return Math.min(upperMillis, getMaxMillis());
+            }
+        }
+        return getMaxMillis();
+    }
+
+    public synchronized void reset() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            buckets[i] = 0;
+        }
+        count = 0;
+        totalNanos = 0;
+        maxNanos = 0;
+    }
+
+    public synchronized String summary() {
+        return String.format(Locale.US, "n=%d mean=%.2fms p50=%.2fms p90=%.2fms p99=%.2fms max=%.2fms",
+                count, getMeanMillis(), getPercentileMillis(50), getPercentileMillis(90),
+                getPercentileMillis(99), getMaxMillis());
+    }
+}
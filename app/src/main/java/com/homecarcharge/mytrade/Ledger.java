@@ -0,0 +1,680 @@
+package com.homecarcharge.mytrade;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import com.google.gson.reflect.TypeToken;
+
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * The transactions of one account, persisted in that account's own SharedPreferences
+ * partition together with per-month aggregates. At most one transaction is kept per day.
+ *
+ * Each month is stored as two {@link ChunkCipher} chunks: its entries, and its small
+ * aggregate. A load reads only the aggregates; a month's entries are decrypted the first
+ * time one of its days is read (see {@link MonthSegment}). A save re-encrypts only the
+ * months whose segment changed since the last load or save, so its cost follows the edit
+ * rather than the history. Partitions in older formats are migrated on load.
+ *
+ * State is published as immutable {@link LedgerSnapshot}s. Writes are serialized and each
+ * one publishes a new version with a single volatile store; readers call
+ * {@link #snapshot()} without locking and keep a consistent view for as long as they
+ * hold it, on any thread.
+ *
+ * Edits go through a {@link Batch}: any number of puts and removes are applied together on
+ * commit as one new version and one change notification, which lists the days that actually
+ * changed as {@link LedgerChange}s. {@link #put} and {@link #remove} are single-entry batches.
+ */
+public class Ledger {
+
+    // The default account keeps the original store so existing diaries load unchanged
+    public static final String DEFAULT_ACCOUNT_ID = "main";
+
+    private static final String PREFS_NAME = "TraderDiaryPrefs";
+    // Plaintext keys of the older format, read once for migration
+    private static final String KEY_ALL_TRANSACTIONS = "all_transactions";
+    private static final String KEY_MONTHLY_TRANSACTIONS = "monthly_transactions";
+    private static final String KEY_MONTH_AGGREGATES = "month_aggregates";
+    private static final String KEY_SYNC_JOURNAL = "sync_journal";
+    private static final String KEY_TRADE_BOOK = "trade_book";
+
+    // Encrypted chunks; a month's keys end with its in-memory month key
+    private static final String MONTH_CHUNK_PREFIX = "enc_month_";
+    private static final String AGGREGATE_CHUNK_PREFIX = "enc_agg_";
+    private static final String KEY_SYNC_HEADER_CHUNK = "enc_sync_header";
+    private static final String SYNC_STAMPS_CHUNK_PREFIX = "enc_sync_stamps_";
+    private static final String SYNC_PENDING_CHUNK_PREFIX = "enc_sync_pending_";
+    private static final String KEY_TRADE_SYMBOLS_CHUNK = "enc_trade_symbols";
+    private static final String TRADE_BLOCK_CHUNK_PREFIX = "enc_trades_";
+    // Single chunks of an earlier format, read once for migration
+    private static final String KEY_SYNC_JOURNAL_CHUNK = "enc_sync_journal";
+    private static final String KEY_TRADE_BOOK_CHUNK = "enc_trade_book";
+
+    private static final Type TRANSACTION_LIST_TYPE = new TypeToken<ArrayList<Transaction>>() {}.getType();
+    private static final Type MONTHLY_TRANSACTIONS_TYPE = new TypeToken<HashMap<String, List<Transaction>>>() {}.getType();
+    private static final Type STAMPS_TYPE = new TypeToken<HashMap<Integer, SyncJournal.Stamp>>() {}.getType();
+    private static final Type RECORDS_TYPE = new TypeToken<ArrayList<ChangeLog.Record>>() {}.getType();
+
+    private final String accountId;
+    private final SharedPreferences prefs;
+    private final ChunkCipher cipher;
+    private final Gson gson = new Gson();
+    private final Object writeLock = new Object();
+    private final Object saveLock = new Object();
+
+    private volatile LedgerSnapshot current = LedgerSnapshot.EMPTY;
+    // Version last written to or read from storage
+    private volatile long savedVersion;
+    // Segments as last written to or read from storage; null before either, when the
+    // stored months are unknown
+    private NavigableMap<Integer, MonthSegment> savedSegments;
+    private volatile int unreadableChunks;
+    // The journal and trade book as last written or read, with what storage held of them
+    // then; any other journal or book object is written whole
+    private SyncJournal savedJournal;
+    private long savedJournalSeq;
+    private long savedExportedSeq;
+    private TradeBook savedTradeBook;
+    private int savedTradeBlocks;
+    private int savedSymbolCount;
+
+    /** What one month's entries chunk holds. */
+    private static class MonthChunk {
+        List<Transaction> transactions;
+
+        MonthChunk(List<Transaction> transactions) {
+            this.transactions = transactions;
+        }
+    }
+    private final List<OnChangeListener> changeListeners = new ArrayList<>();
+
+    /**
+     * Called once per committed batch that changed at least one day, on the committing
+     * thread, in registration order.
+     */
+    public interface OnChangeListener {
+        // Changes are ordered by month, then day, and the list is read-only
+        void onLedgerChanged(LedgerSnapshot snapshot, List<LedgerChange> changes);
+    }
+
+    /** Edits collected in order and published together by {@link #commit}. */
+    public final class Batch {
+        private final List<Transaction> transactions = new ArrayList<>();
+        // Parallel to transactions: true where the entry is removed rather than put
+        private final List<Boolean> removals = new ArrayList<>();
+        private boolean committed;
+
+        private Batch() {
+        }
+
+        // Adds the transaction, replacing any existing entry for the same day
+        public Batch put(Transaction transaction) {
+            return add(transaction, false);
+        }
+
+        public Batch remove(Transaction transaction) {
+            return add(transaction, true);
+        }
+
+        public int size() {
+            return transactions.size();
+        }
+
+        private Batch add(Transaction transaction, boolean removal) {
+            if (committed) throw new IllegalStateException("Batch already committed");
+            transactions.add(transaction);
+            removals.add(removal);
+            return this;
+        }
+
+        /** Publishes every edit as one version and notifies the listeners once. */
+        public LedgerSnapshot commit() {
+            if (committed) throw new IllegalStateException("Batch already committed");
+            committed = true;
+            if (transactions.isEmpty()) return current;
+
+            LedgerSnapshot published;
+            List<LedgerChange> changes = new ArrayList<>();
+            synchronized (writeLock) {
+                LedgerSnapshot base = current;
+                published = base.apply(transactions, removals, changes);
+                if (published == base) return base;
+                current = published;
+            }
+
+            List<LedgerChange> readOnlyChanges = Collections.unmodifiableList(changes);
+            for (OnChangeListener listener : changeListeners) {
+                listener.onLedgerChanged(published, readOnlyChanges);
+            }
+            return published;
+        }
+    }
+
+    public Ledger(Context context, String accountId) {
+        this.accountId = accountId;
+        this.prefs = context.getSharedPreferences(prefsNameFor(accountId), Context.MODE_PRIVATE);
+        this.cipher = ChunkCipher.get(context);
+    }
+
+    public static String prefsNameFor(String accountId) {
+        return DEFAULT_ACCOUNT_ID.equals(accountId) ? PREFS_NAME : PREFS_NAME + "_" + accountId;
+    }
+
+    // In-memory month key; sorts chronologically
+    public static int monthKey(int month, int year) {
+        return year * 12 + month;
+    }
+
+    public static int monthOf(int monthKey) {
+        return monthKey % 12;
+    }
+
+    public static int yearOf(int monthKey) {
+        return monthKey / 12;
+    }
+
+    public static int monthKeyOf(Calendar cal) {
+        return monthKey(cal.get(Calendar.MONTH), cal.get(Calendar.YEAR));
+    }
+
+    public String getAccountId() {
+        return accountId;
+    }
+
+    // The latest published version; never null and never modified
+    public LedgerSnapshot snapshot() {
+        return current;
+    }
+
+    public void addOnChangeListener(OnChangeListener listener) {
+        changeListeners.add(listener);
+    }
+
+    // Drops every listener, e.g. before the ledger outlives the Activity that registered them
+    public void clearOnChangeListeners() {
+        changeListeners.clear();
+    }
+
+    public boolean hasUnsavedChanges() {
+        return current.getVersion() != savedVersion;
+    }
+
+    public Batch beginBatch() {
+        return new Batch();
+    }
+
+    // Chunks that failed to decrypt since the last load, e.g. after app data was restored onto
+    // another device; they stay in storage untouched unless their month is edited
+    public int getUnreadableChunks() {
+        return unreadableChunks;
+    }
+
+    // Returns the number of characters written. Saves may run on a worker thread, e.g. a
+    // restore; they are serialized and each writes the version current when it starts
+    public int save() {
+        synchronized (saveLock) {
+            LedgerSnapshot snapshot = current;
+            NavigableMap<Integer, MonthSegment> segments = snapshot.getSegments();
+            SharedPreferences.Editor editor = prefs.edit();
+            int written = 0;
+
+            // Segments are copy-on-write, so an unchanged month is still the same segment object
+            for (MonthSegment segment : segments.values()) {
+                int key = segment.getMonthKey();
+                if (savedSegments != null && savedSegments.get(key) == segment) continue;
+                written += putChunk(editor, MONTH_CHUNK_PREFIX + key,
+                        gson.toJson(new MonthChunk(segment.getTransactions())));
+                written += putChunk(editor, AGGREGATE_CHUNK_PREFIX + key, gson.toJson(segment.toAggregate()));
+            }
+
+            if (savedSegments != null) {
+                for (Integer key : savedSegments.keySet()) {
+                    if (!segments.containsKey(key)) {
+                        editor.remove(MONTH_CHUNK_PREFIX + key).remove(AGGREGATE_CHUNK_PREFIX + key);
+                    }
+                }
+            } else {
+                // Nothing was loaded, e.g. a restore or a migration: drop every other stored month
+                for (String name : prefs.getAll().keySet()) {
+                    int key = monthKeyOfChunk(name);
+                    if (key >= 0 && !segments.containsKey(key)) {
+                        editor.remove(name);
+                    }
+                }
+                editor.remove(KEY_ALL_TRANSACTIONS).remove(KEY_MONTHLY_TRANSACTIONS).remove(KEY_MONTH_AGGREGATES);
+            }
+
+            editor.apply();
+            savedSegments = segments;
+            savedVersion = snapshot.getVersion();
+            return written;
+        }
+    }
+
+    // Reads every month's aggregate; entries are read per month when first needed
+    public void load() {
+        unreadableChunks = 0;
+        Map<String, ?> stored = prefs.getAll();
+        boolean chunked = false;
+        TreeMap<Integer, MonthSegment> segments = new TreeMap<>();
+        SharedPreferences.Editor migration = null;
+        for (String name : stored.keySet()) {
+            int key = monthKeyOfChunk(name);
+            if (key < 0) continue;
+            chunked = true;
+            if (!name.startsWith(MONTH_CHUNK_PREFIX)) continue;
+
+            String aggregateName = AGGREGATE_CHUNK_PREFIX + key;
+            String aggregateChunk = (String) stored.get(aggregateName);
+            if (aggregateChunk == null) {
+                // Written before aggregates had their own chunk: read the entries now and add it
+                Transaction[] byDay = loadDays(key, null);
+                if (byDay == null) continue;
+                MonthSegment segment = MonthSegment.of(key, byDay);
+                if (segment.isEmpty()) continue;
+                if (migration == null) migration = prefs.edit();
+                putChunk(migration, aggregateName, gson.toJson(segment.toAggregate()));
+                segments.put(key, segment);
+                continue;
+            }
+
+            MonthAggregate aggregate = openChunk(cipher, gson, accountId, aggregateName, aggregateChunk,
+                    MonthAggregate.class);
+            if (aggregate == null) {
+                unreadableChunks++;
+            } else if (!aggregate.isEmpty()) {
+                segments.put(key, MonthSegment.lazy(aggregate, this::loadDays));
+            }
+        }
+        if (migration != null) {
+            migration.apply();
+        }
+
+        List<Transaction> plaintext = chunked ? null : loadPlaintext();
+        if (plaintext != null) {
+            replaceAll(plaintext);
+            // Rewrites every month as chunks and drops the plaintext keys
+            savedSegments = null;
+            save();
+            return;
+        }
+
+        if (chunked) {
+            synchronized (writeLock) {
+                current = LedgerSnapshot.of(current.getVersion() + 1, segments);
+            }
+        }
+        savedSegments = current.getSegments();
+        savedVersion = current.getVersion();
+    }
+
+    // A lazily loaded month's entries, indexed by day of month; null if the chunk cannot be
+    // read, which leaves the month read-only and its chunk untouched
+    private Transaction[] loadDays(int monthKey, MonthAggregate aggregate) {
+        String name = MONTH_CHUNK_PREFIX + monthKey;
+        MonthChunk chunk = openChunk(cipher, gson, accountId, name, prefs.getString(name, null), MonthChunk.class);
+        if (chunk == null) {
+            unreadableChunks++;
+            return null;
+        }
+
+        Transaction[] byDay = new Transaction[32];
+        Calendar cal = Calendar.getInstance();
+        for (Transaction transaction : chunk.transactions) {
+            cal.setTime(transaction.getDate());
+            byDay[cal.get(Calendar.DAY_OF_MONTH)] = transaction;
+        }
+        return byDay;
+    }
+
+    // The month key a month or aggregate chunk belongs to, or -1 for any other key
+    private static int monthKeyOfChunk(String name) {
+        if (name.startsWith(MONTH_CHUNK_PREFIX)) {
+            return Integer.parseInt(name.substring(MONTH_CHUNK_PREFIX.length()));
+        }
+        if (name.startsWith(AGGREGATE_CHUNK_PREFIX)) {
+            return Integer.parseInt(name.substring(AGGREGATE_CHUNK_PREFIX.length()));
+        }
+        return -1;
+    }
+
+    // The older format; null if the partition does not hold it
+    private List<Transaction> loadPlaintext() {
+        // The per-month map wins over the flat list when both are present
+        String monthlyTransactionsJson = prefs.getString(KEY_MONTHLY_TRANSACTIONS, null);
+        if (monthlyTransactionsJson != null) {
+            Map<String, List<Transaction>> savedMonthlyTransactions =
+                    gson.fromJson(monthlyTransactionsJson, MONTHLY_TRANSACTIONS_TYPE);
+            if (savedMonthlyTransactions != null) {
+                List<Transaction> transactions = new ArrayList<>();
+                for (List<Transaction> monthTransactions : savedMonthlyTransactions.values()) {
+                    transactions.addAll(monthTransactions);
+                }
+                return transactions;
+            }
+        }
+
+        String transactionsJson = prefs.getString(KEY_ALL_TRANSACTIONS, null);
+        return transactionsJson != null ? gson.fromJson(transactionsJson, TRANSACTION_LIST_TYPE) : null;
+    }
+
+    // Null until this account is first synced, or if any of its chunks cannot be read
+    public SyncJournal loadSyncJournal() {
+        Map<String, ?> stored = prefs.getAll();
+        String headerChunk = (String) stored.get(KEY_SYNC_HEADER_CHUNK);
+        if (headerChunk == null) {
+            // The older single chunk or plaintext value; written in blocks on the next save
+            String journalJson = readChunk(KEY_SYNC_JOURNAL_CHUNK, KEY_SYNC_JOURNAL);
+            if (journalJson == null) return null;
+            JsonObject json = gson.fromJson(journalJson, JsonObject.class);
+            SyncJournal journal = gson.fromJson(json, SyncJournal.class);
+            journal.addStamps(gson.fromJson(json.get("stamps"), STAMPS_TYPE));
+            journal.addPending(gson.fromJson(json.get("pending"), RECORDS_TYPE));
+            return journal;
+        }
+
+        SyncJournal journal = openChunk(cipher, gson, accountId, KEY_SYNC_HEADER_CHUNK, headerChunk, SyncJournal.class);
+        TreeMap<Integer, String> pendingChunks = new TreeMap<>();
+        for (Map.Entry<String, ?> entry : stored.entrySet()) {
+            if (journal == null) break;
+            String name = entry.getKey();
+            if (name.startsWith(SYNC_STAMPS_CHUNK_PREFIX)) {
+                Map<Integer, SyncJournal.Stamp> stamps = openChunk(cipher, gson, accountId, name,
+                        (String) entry.getValue(), STAMPS_TYPE);
+                if (stamps == null) journal = null;
+                else journal.addStamps(stamps);
+            } else if (name.startsWith(SYNC_PENDING_CHUNK_PREFIX)) {
+                pendingChunks.put(Integer.parseInt(name.substring(SYNC_PENDING_CHUNK_PREFIX.length())),
+                        (String) entry.getValue());
+            }
+        }
+        for (Map.Entry<Integer, String> entry : pendingChunks.entrySet()) {
+            if (journal == null) break;
+            List<ChangeLog.Record> records = openChunk(cipher, gson, accountId,
+                    SYNC_PENDING_CHUNK_PREFIX + entry.getKey(), entry.getValue(), RECORDS_TYPE);
+            if (records == null) journal = null;
+            else journal.addPending(records);
+        }
+        // A journal missing any part cannot be trusted; a new one is created with a new id
+        if (journal == null) {
+            unreadableChunks++;
+            return null;
+        }
+
+        savedJournal = journal;
+        savedJournalSeq = journal.getLastSeq();
+        savedExportedSeq = journal.getExportedSeq();
+        return journal;
+    }
+
+    // Writes the header, the stamp blocks that changed and the pending blocks with new edits,
+    // and drops pending blocks that are fully exported. Returns the number of characters written
+    public int saveSyncJournal(SyncJournal journal) {
+        SharedPreferences.Editor editor = prefs.edit();
+        int written = 0;
+        Set<Integer> stampBlocks = journal.takeDirtyStampBlocks();
+        long lastSeq = journal.getLastSeq();
+        long exportedSeq = journal.getExportedSeq();
+        long savedSeq;
+        if (journal != savedJournal) {
+            // A new or replaced journal: drop every chunk of the one stored before
+            for (String name : prefs.getAll().keySet()) {
+                if (name.startsWith(SYNC_STAMPS_CHUNK_PREFIX) || name.startsWith(SYNC_PENDING_CHUNK_PREFIX)) {
+                    editor.remove(name);
+                }
+            }
+            editor.remove(KEY_SYNC_JOURNAL_CHUNK).remove(KEY_SYNC_JOURNAL);
+            stampBlocks = journal.getStampBlocks();
+            savedSeq = exportedSeq;
+        } else {
+            for (int block = SyncJournal.pendingBlockOf(savedExportedSeq + 1);
+                 block < SyncJournal.pendingBlockOf(exportedSeq + 1); block++) {
+                editor.remove(SYNC_PENDING_CHUNK_PREFIX + block);
+            }
+            savedSeq = Math.max(savedJournalSeq, exportedSeq);
+        }
+
+        for (int block : stampBlocks) {
+            written += putChunk(editor, SYNC_STAMPS_CHUNK_PREFIX + block, gson.toJson(journal.getStampBlock(block)));
+        }
+        if (lastSeq > savedSeq) {
+            for (int block = SyncJournal.pendingBlockOf(savedSeq + 1); block <= SyncJournal.pendingBlockOf(lastSeq); block++) {
+                written += putChunk(editor, SYNC_PENDING_CHUNK_PREFIX + block,
+                        gson.toJson(journal.getPendingBlock(block)));
+            }
+        }
+        // Stamps and pending edits are transient, so this is the small header
+        written += putChunk(editor, KEY_SYNC_HEADER_CHUNK, gson.toJson(journal));
+        editor.apply();
+
+        savedJournal = journal;
+        savedJournalSeq = lastSeq;
+        savedExportedSeq = exportedSeq;
+        return written;
+    }
+
+    // Empty until the first trade is added. Read-only if any of its chunks cannot be read;
+    // those chunks stay in storage and the book is never saved over them
+    public TradeBook loadTradeBook() {
+        Map<String, ?> stored = prefs.getAll();
+        String symbolsChunk = (String) stored.get(KEY_TRADE_SYMBOLS_CHUNK);
+        if (symbolsChunk == null) {
+            // No trades yet, or the older single chunk; written in blocks on the next save
+            String bookJson = readChunk(KEY_TRADE_BOOK_CHUNK, KEY_TRADE_BOOK);
+            if (bookJson == null && stored.containsKey(KEY_TRADE_BOOK_CHUNK)) {
+                return unreadableTradeBook(new TradeBook());
+            }
+            TradeBook book = bookJson != null ? gson.fromJson(bookJson, TradeBook.class) : new TradeBook();
+            book.rebuildTotals();
+            return book;
+        }
+
+        SymbolDictionary symbols = openChunk(cipher, gson, accountId, KEY_TRADE_SYMBOLS_CHUNK, symbolsChunk,
+                SymbolDictionary.class);
+        if (symbols == null) {
+            // Blocks hold symbol ids only, so none of them can be shown
+            unreadableChunks++;
+            return unreadableTradeBook(new TradeBook());
+        }
+        TradeBook book = new TradeBook(symbols);
+        boolean readable = true;
+        int blocks = storedTradeBlocks(stored);
+        for (int block = 0; block < blocks; block++) {
+            String chunk = (String) stored.get(TRADE_BLOCK_CHUNK_PREFIX + block);
+            TradeBook.Block trades = openChunk(cipher, gson, accountId, TRADE_BLOCK_CHUNK_PREFIX + block, chunk,
+                    TradeBook.Block.class);
+            if (trades == null) {
+                // Missing or unreadable: the trades of the other blocks are still shown
+                unreadableChunks++;
+                readable = false;
+                continue;
+            }
+            book.appendBlock(trades);
+        }
+        book.rebuildTotals();
+        if (!readable) {
+            return unreadableTradeBook(book);
+        }
+
+        savedTradeBook = book;
+        savedTradeBlocks = blocks;
+        savedSymbolCount = symbols.size();
+        return book;
+    }
+
+    // Trade indices past a skipped block no longer match the stored blocks, so the book
+    // refuses edits and saveTradeBook leaves storage alone
+    private TradeBook unreadableTradeBook(TradeBook book) {
+        book.markReadOnly();
+        savedTradeBook = book;
+        return book;
+    }
+
+    // Writes the blocks edited since the last save, and the symbol names if any were added.
+    // Returns the number of characters written
+    public int saveTradeBook(TradeBook book) {
+        if (book.isReadOnly()) return 0;
+        SharedPreferences.Editor editor = prefs.edit();
+        int written = 0;
+        BitSet dirty = book.takeDirtyBlocks();
+        int blocks = book.getBlockCount();
+        if (book != savedTradeBook) {
+            // The first book of the account, or one read from the older single chunk
+            dirty.set(0, blocks);
+            savedTradeBlocks = storedTradeBlocks(prefs.getAll());
+            savedSymbolCount = -1;
+            editor.remove(KEY_TRADE_BOOK_CHUNK).remove(KEY_TRADE_BOOK);
+        }
+
+        for (int block = dirty.nextSetBit(0); block >= 0 && block < blocks; block = dirty.nextSetBit(block + 1)) {
+            written += putChunk(editor, TRADE_BLOCK_CHUNK_PREFIX + block, gson.toJson(book.getBlock(block)));
+        }
+        for (int block = blocks; block < savedTradeBlocks; block++) {
+            editor.remove(TRADE_BLOCK_CHUNK_PREFIX + block);
+        }
+        SymbolDictionary symbols = book.getSymbols();
+        if (symbols.size() != savedSymbolCount) {
+            written += putChunk(editor, KEY_TRADE_SYMBOLS_CHUNK, gson.toJson(symbols));
+        }
+        editor.apply();
+
+        savedTradeBook = book;
+        savedTradeBlocks = blocks;
+        savedSymbolCount = symbols.size();
+        return written;
+    }
+
+    // One past the highest stored trade block
+    private static int storedTradeBlocks(Map<String, ?> stored) {
+        int blocks = 0;
+        for (String name : stored.keySet()) {
+            if (name.startsWith(TRADE_BLOCK_CHUNK_PREFIX)) {
+                blocks = Math.max(blocks, Integer.parseInt(name.substring(TRADE_BLOCK_CHUNK_PREFIX.length())) + 1);
+            }
+        }
+        return blocks;
+    }
+
+    // Reads only the per-month aggregate chunks; null if this partition is still in an older
+    // format and must be loaded and saved once
+    public static Map<String, MonthAggregate> loadAggregates(Context context, String accountId) {
+        SharedPreferences prefs = context.getSharedPreferences(prefsNameFor(accountId), Context.MODE_PRIVATE);
+        if (prefs.contains(KEY_ALL_TRANSACTIONS) || prefs.contains(KEY_MONTHLY_TRANSACTIONS)) {
+            return null;
+        }
+        Map<String, ?> stored = prefs.getAll();
+        for (String name : stored.keySet()) {
+            if (name.startsWith(MONTH_CHUNK_PREFIX)
+                    && !stored.containsKey(AGGREGATE_CHUNK_PREFIX + name.substring(MONTH_CHUNK_PREFIX.length()))) {
+                return null;
+            }
+        }
+
+        ChunkCipher cipher = ChunkCipher.get(context);
+        Gson gson = new Gson();
+        Map<String, MonthAggregate> aggregates = new HashMap<>();
+        for (Map.Entry<String, ?> entry : stored.entrySet()) {
+            if (!entry.getKey().startsWith(AGGREGATE_CHUNK_PREFIX)) continue;
+            MonthAggregate aggregate = openChunk(cipher, gson, accountId, entry.getKey(), (String) entry.getValue(),
+                    MonthAggregate.class);
+            if (aggregate != null) {
+                aggregates.put(entry.getKey(), aggregate);
+            }
+        }
+        return aggregates;
+    }
+
+    // Null if there is no chunk or it cannot be decrypted
+    private static <T> T openChunk(ChunkCipher cipher, Gson gson, String accountId, String key, String chunk,
+                                   Type type) {
+        if (chunk == null) return null;
+        try {
+            return gson.fromJson(cipher.openString(chunk, accountId + "/" + key), type);
+        } catch (ChunkCipher.UnreadableChunkException e) {
+            return null;
+        }
+    }
+
+    // Returns the number of characters written
+    private int putChunk(SharedPreferences.Editor editor, String key, String plaintext) {
+        String chunk = cipher.sealString(plaintext, chunkName(key));
+        editor.putString(key, chunk);
+        return chunk.length();
+    }
+
+    // Associated data of a chunk, so a chunk moved to another key or account does not open
+    private String chunkName(String key) {
+        return accountId + "/" + key;
+    }
+
+    // The chunk's plaintext, else the older plaintext value; null if there is neither or the
+    // chunk cannot be decrypted
+    private String readChunk(String key, String plaintextKey) {
+        String chunk = prefs.getString(key, null);
+        if (chunk == null) {
+            return prefs.getString(plaintextKey, null);
+        }
+        try {
+            return cipher.openString(chunk, chunkName(key));
+        } catch (ChunkCipher.UnreadableChunkException e) {
+            unreadableChunks++;
+            return null;
+        }
+    }
+
+    public int size() {
+        return current.size();
+    }
+
+    public boolean isEmpty() {
+        return current.isEmpty();
+    }
+
+    // Replaces every entry in this ledger, e.g. when loading or restoring a backup; does not
+    // notify, callers reload their views themselves
+    public void replaceAll(List<Transaction> transactions) {
+        Calendar cal = Calendar.getInstance();
+        Map<Integer, Transaction[]> days = new HashMap<>();
+        for (Transaction transaction : transactions) {
+            cal.setTime(transaction.getDate());
+            int key = monthKeyOf(cal);
+            Transaction[] byDay = days.get(key);
+            if (byDay == null) {
+                byDay = new Transaction[32];
+                days.put(key, byDay);
+            }
+            byDay[cal.get(Calendar.DAY_OF_MONTH)] = transaction;
+        }
+
+        TreeMap<Integer, MonthSegment> segments = new TreeMap<>();
+        for (Map.Entry<Integer, Transaction[]> entry : days.entrySet()) {
+            segments.put(entry.getKey(), MonthSegment.of(entry.getKey(), entry.getValue()));
+        }
+
+        synchronized (writeLock) {
+            current = LedgerSnapshot.of(current.getVersion() + 1, segments);
+        }
+    }
+
+    // Adds the transaction, replacing any existing entry for the same day
+    public void put(Transaction transaction) {
+        beginBatch().put(transaction).commit();
+    }
+
+    public void remove(Transaction transaction) {
+        beginBatch().remove(transaction).commit();
+    }
+}
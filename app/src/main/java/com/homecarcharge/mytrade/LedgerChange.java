@@ -0,0 +1,59 @@
+package com.homecarcharge.mytrade;
+
+/**
+ * The net effect of a committed batch on one day. A batch that edits the same day several
+ * times yields a single change from the day's entry before the batch to its entry after
+ * it; edits that leave a day as it was yield none.
+ */
+public final class LedgerChange {
+
+    public enum Type {
+        ADDED, UPDATED, REMOVED
+    }
+
+    private final int monthKey;
+    private final int day;
+    private final Transaction before;
+    private final Transaction after;
+
+    LedgerChange(int monthKey, int day, Transaction before, Transaction after) {
+        this.monthKey = monthKey;
+        this.day = day;
+        this.before = before;
+        this.after = after;
+    }
+
+    public Type getType() {
+        if (before == null) return Type.ADDED;
+        return after == null ? Type.REMOVED : Type.UPDATED;
+    }
+
+    // As from Ledger.monthKey
+    public int getMonthKey() {
+        return monthKey;
+    }
+
+    public int getDay() {
+        return day;
+    }
+
+    // Null when the day was added
+    public Transaction getBefore() {
+        return before;
+    }
+
+    // Null when the day was removed
+    public Transaction getAfter() {
+        return after;
+    }
+
+    // Whether the day's win or loss outcome moved, which is all streaks depend on
+    public boolean changesOutcome() {
+        return before == null || after == null || before.isProfit() != after.isProfit();
+    }
+
+    // Whether the month's net, traded days or profitable days moved
+    public boolean changesAggregate() {
+        return changesOutcome() || before.getNetAmount() != after.getNetAmount();
+    }
+}
@@ -0,0 +1,53 @@
+package com.homecarcharge.mytrade;
+
+/**
+ * Loaded state that outlives the Activity: the account list, the viewed account's ledger
+ * (or the combined snapshot) and the indexes derived from it. An Activity retains it when
+ * it is destroyed and the next one takes it back, so rotation, theme switches and
+ * multi-window resizes neither read nor parse storage; only a cold start of the process
+ * does. Main thread only.
+ *
+ * Nothing retained may reference the Activity; see {@link Ledger#clearOnChangeListeners}.
+ */
+public final class LedgerHolder {
+
+    private static LedgerHolder retained;
+
+    final AccountRegistry accountRegistry;
+    final Ledger ledger; // null while the combined view is shown
+    final LedgerSnapshot combinedSnapshot;
+    final SyncJournal syncJournal;
+    final TradeBook tradeBook;
+    final YearPnlIndex yearPnlIndex;
+    final EquityCurve equityCurve;
+    final StreakTree streakTree;
+    final RollupCube rollupCube;
+    final DistributionIndex distributionIndex;
+
+    LedgerHolder(AccountRegistry accountRegistry, Ledger ledger, LedgerSnapshot combinedSnapshot,
+                 SyncJournal syncJournal, TradeBook tradeBook, YearPnlIndex yearPnlIndex,
+                 EquityCurve equityCurve, StreakTree streakTree, RollupCube rollupCube,
+                 DistributionIndex distributionIndex) {
+        this.accountRegistry = accountRegistry;
+        this.ledger = ledger;
+        this.combinedSnapshot = combinedSnapshot;
+        this.syncJournal = syncJournal;
+        this.tradeBook = tradeBook;
+        this.yearPnlIndex = yearPnlIndex;
+        this.equityCurve = equityCurve;
+        this.streakTree = streakTree;
+        this.rollupCube = rollupCube;
+        this.distributionIndex = distributionIndex;
+    }
+
+    static void retain(LedgerHolder holder) {
+        retained = holder;
+    }
+
+    // The retained state, or null on a cold start; the holder is empty afterwards
+    static LedgerHolder take() {
+        LedgerHolder holder = retained;
+        retained = null;
+        return holder;
+    }
+}
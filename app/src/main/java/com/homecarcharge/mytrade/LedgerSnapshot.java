@@ -0,0 +1,144 @@
+package com.homecarcharge.mytrade;
+
+import java.util.Calendar;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * An immutable, versioned state of a ledger: month segments sorted by int month key.
+ * A new version copies the segment map (a pointer copy per month) and replaces only the
+ * months that changed, so readers holding an older snapshot are never disturbed.
+ */
+public final class LedgerSnapshot {
+
+    public static final LedgerSnapshot EMPTY = new LedgerSnapshot(0, new TreeMap<>(), 0);
+
+    private final long version;
+    private final NavigableMap<Integer, MonthSegment> segments;
+    private final int size;
+    // Derived from the immutable segments on first use; a racing rebuild is harmless
+    private volatile MonthIndex monthIndex;
+
+    private LedgerSnapshot(long version, TreeMap<Integer, MonthSegment> segments, int size) {
+        this.version = version;
+        this.segments = Collections.unmodifiableNavigableMap(segments);
+        this.size = size;
+    }
+
+    // Builds a snapshot from segments that are not shared with anything else
+    static LedgerSnapshot of(long version, TreeMap<Integer, MonthSegment> segments) {
+        int size = 0;
+        for (MonthSegment segment : segments.values()) {
+            size += segment.getTradedDays();
+        }
+        return new LedgerSnapshot(version, segments, size);
+    }
+
+    public static LedgerSnapshot fromAggregates(Collection<MonthAggregate> aggregates) {
+        TreeMap<Integer, MonthSegment> segments = new TreeMap<>();
+        for (MonthAggregate aggregate : aggregates) {
+            if (aggregate.isEmpty()) continue;
+            MonthSegment segment = MonthSegment.fromAggregate(aggregate);
+            segments.put(segment.getMonthKey(), segment);
+        }
+        return of(0, segments);
+    }
+
+    /**
+     * Next version with the edits applied in order; removals[i] marks transactions[i] as a
+     * removal, which clears its day only while the day still holds that same entry. Each
+     * touched month is copied once, however many of its days change. One change per day
+     * that ends up different is appended to changes, ordered by month, then day; when no
+     * day does, this snapshot itself is returned.
+     */
+    LedgerSnapshot apply(List<Transaction> transactions, List<Boolean> removals, List<LedgerChange> changes) {
+        Calendar cal = Calendar.getInstance();
+        TreeMap<Integer, Transaction[]> touched = new TreeMap<>();
+        for (int i = 0; i < transactions.size(); i++) {
+            Transaction transaction = transactions.get(i);
+            cal.setTime(transaction.getDate());
+            int key = Ledger.monthKeyOf(cal);
+            int day = cal.get(Calendar.DAY_OF_MONTH);
+
+            Transaction[] byDay = touched.get(key);
+            if (byDay == null) {
+                byDay = getSegment(key).copyDays();
+                touched.put(key, byDay);
+            }
+            if (!removals.get(i)) {
+                byDay[day] = transaction;
+            } else if (byDay[day] == transaction) {
+                byDay[day] = null;
+            }
+        }
+
+        Map<Integer, MonthSegment> changed = new HashMap<>();
+        int firstChange = changes.size();
+        for (Map.Entry<Integer, Transaction[]> entry : touched.entrySet()) {
+            int key = entry.getKey();
+            MonthSegment before = getSegment(key);
+            Transaction[] byDay = entry.getValue();
+            int changedDays = changes.size();
+            for (int day = 1; day <= 31; day++) {
+                if (before.getTransaction(day) != byDay[day]) {
+                    changes.add(new LedgerChange(key, day, before.getTransaction(day), byDay[day]));
+                }
+            }
+            if (changes.size() > changedDays) {
+                changed.put(key, MonthSegment.of(key, byDay));
+            }
+        }
+        return changes.size() > firstChange ? withSegments(changed) : this;
+    }
+
+    // Next version with several months replaced at once; an empty segment removes the month
+    private LedgerSnapshot withSegments(Map<Integer, MonthSegment> changed) {
+        TreeMap<Integer, MonthSegment> copy = new TreeMap<>(segments);
+        int newSize = size;
+        for (Map.Entry<Integer, MonthSegment> entry : changed.entrySet()) {
+            MonthSegment segment = entry.getValue();
+            MonthSegment previous = segment == null || segment.isEmpty()
+                    ? copy.remove(entry.getKey())
+                    : copy.put(entry.getKey(), segment);
+            newSize += (segment == null ? 0 : segment.getTradedDays())
+                    - (previous == null ? 0 : previous.getTradedDays());
+        }
+        return new LedgerSnapshot(version + 1, copy, newSize);
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    // Sorted by month key, oldest first; unmodifiable
+    public NavigableMap<Integer, MonthSegment> getSegments() {
+        return segments;
+    }
+
+    public MonthIndex getMonthIndex() {
+        MonthIndex index = monthIndex;
+        if (index == null) {
+            index = MonthIndex.build(this);
+            monthIndex = index;
+        }
+        return index;
+    }
+
+    public MonthSegment getSegment(int monthKey) {
+        MonthSegment segment = segments.get(monthKey);
+        return segment != null ? segment : MonthSegment.empty(monthKey);
+    }
+}
@@ -1,65 +1,150 @@
 package com.homecarcharge.mytrade;
 
-import android.content.SharedPreferences;
+import android.content.Intent;
+import android.content.pm.ApplicationInfo;
+import android.net.Uri;
 import android.graphics.Color;
+import android.graphics.Typeface;
+import android.os.Build;
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
 import android.view.View;
 import android.widget.Button;
 import android.widget.EditText;
 import android.widget.ImageButton;
 import android.widget.LinearLayout;
+import android.widget.ListView;
+import android.widget.ProgressBar;
 import android.widget.RadioButton;
 import android.widget.RadioGroup;
+import android.widget.RelativeLayout;
 import android.widget.TextView;
 import android.widget.Toast;
 
+import androidx.activity.result.ActivityResultLauncher;
+import androidx.activity.result.contract.ActivityResultContracts;
 import androidx.appcompat.app.AlertDialog;
 import androidx.appcompat.app.AppCompatActivity;
 
 import com.google.android.material.floatingactionbutton.FloatingActionButton;
-import com.google.gson.Gson;
-import com.google.gson.reflect.TypeToken;
 
-import java.lang.reflect.Type;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Calendar;
-import java.util.Collections;
+import java.util.Collection;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ForkJoinPool;
 
 public class MainActivity extends AppCompatActivity {
 
     // UI Components
-    private TextView tvTotalPnl, tvInTradingDays, tvInAddedOn, tvInProductDays, tvWinningsStruck;
+    private TextView tvTotalPnl, tvInTradingDays, tvInAddedOn, tvInProductDays, tvWinningsStruck, tvStreaks;
     private TextView tvProfitableDaysCount, tvMonthYear;
     private LinearLayout layoutMostProfitableDays, layoutTransactionList;
     private FloatingActionButton fabAdd;
     private ImageButton btnPrevMonth, btnNextMonth;
+    private TextView tvPerfHud;
 
     // Calendar Views
     private LinearLayout[] weekLayouts = new LinearLayout[6];
 
-    // Data
-    private List<Transaction> allTransactions = new ArrayList<>();
-    private List<Transaction> currentMonthTransactions = new ArrayList<>();
-    private Map<String, List<Transaction>> monthlyTransactions = new HashMap<>();
-    private Map<Integer, Transaction> dailyTransactions = new HashMap<>();
+    // Render-path views and buffers, created once and rebound on every render
+    private final Formatters formatters = Formatters.get();
+    private final TextView[] dayCells = new TextView[32];
+    private final List<TextView> emptyCells = new ArrayList<>();
+    // By day of month, so a single change adds, rebinds or removes exactly one row
+    private final TransactionRow[] transactionRows = new TransactionRow[32];
+    private final ProfitableDayRow[] profitableDayRows = new ProfitableDayRow[MonthText.TOP_DAYS];
+    private final MonthText monthText = new MonthText(formatters);
+
+    private static class TransactionRow {
+        LinearLayout itemLayout;
+        TextView dateView;
+        TextView amountView;
+    }
+
+    private static class ProfitableDayRow {
+        LinearLayout itemLayout;
+        TextView textView;
+    }
 
-    // Current month tracking
+    // Accounts: only the viewed account's ledger is loaded, the others stay on disk
+    private AccountRegistry accountRegistry;
+    private Ledger ledger; // null while the combined view is shown
+    private LedgerSnapshot combinedSnapshot = LedgerSnapshot.EMPTY;
+
+    // The viewed month, taken from an immutable snapshot; never modified in place
+    private MonthSegment currentSegment = MonthSegment.empty(0);
+
+    // What-if projections need enough history to resample from
+    private static final int MIN_SIMULATION_DAYS = 10;
+    private static final int SIMULATION_PATHS = 20_000;
+
+    // Built lazily for the year heatmap, dropped whenever transactions change
+    private YearPnlIndex yearPnlIndex;
+
+    // Cumulative P&L for the equity chart, built lazily and dropped whenever transactions change
+    private EquityCurve equityCurve;
+
+    // Built lazily for the stats panel, then updated in place on single adds and deletes
+    private StreakTree streakTree;
+    private final StreakTree.Streaks monthStreaks = new StreakTree.Streaks();
+    private final StreakTree.Streaks yearStreaks = new StreakTree.Streaks();
+    private final StreakTree.Streaks runningStreaks = new StreakTree.Streaks();
+    private final char[] streakChars = new char[Formatters.STREAKS_CAPACITY];
+
+    // Week to financial-year totals, built lazily and updated along the day's paths
+    private RollupCube rollupCube;
+
+    // Daily P&L distribution per month, built lazily and updated from ledger changes
+    private DistributionIndex distributionIndex;
+    private final PnlDistribution shownDistribution = new PnlDistribution();
+    private final char[] distributionChars = new char[Formatters.DISTRIBUTION_CAPACITY];
+    private RadioGroup rgDistributionScope;
+    private TextView tvDistributionSummary;
+    private DistributionView distributionView;
+
+    // Backup and restore go through the system file picker
+    private final ActivityResultLauncher<String> backupLauncher = registerForActivityResult(
+            new ActivityResultContracts.CreateDocument(BackupSnapshot.MIME_TYPE), this::writeBackup);
+    private final ActivityResultLauncher<String[]> restoreLauncher = registerForActivityResult(
+            new ActivityResultContracts.OpenDocument(), this::confirmRestore);
+
+    // Delta sync between devices through change files; null until the account is first synced
+    private SyncJournal syncJournal;
+    private boolean applyingSyncedChanges;
+    private final ActivityResultLauncher<String> exportChangesLauncher = registerForActivityResult(
+            new ActivityResultContracts.CreateDocument(ChangeLog.MIME_TYPE), this::writeChanges);
+    private final ActivityResultLauncher<String[]> importChangesLauncher = registerForActivityResult(
+            new ActivityResultContracts.OpenDocument(), this::importChanges);
+
+    // Per-trade records of the viewed account, loaded on first use of the instruments screen
+    private static final int LEADERBOARD_SIZE = 20;
+    private static final String TRADES_READ_ONLY = "Some trades could not be decrypted; trades are read-only";
+    private TradeBook tradeBook;
+
+    // Shown while a restore runs, including after this Activity was recreated mid-restore
+    private AlertDialog restoreProgress;
+    private final RestoreTask.Listener restoreListener = this::onRestoreFinished;
+
+    // Current month tracking; the viewed month also survives recreation through the saved state
+    private static final String STATE_VIEWED_MONTH = "viewed_month";
+    private static final String STATE_VIEWED_YEAR = "viewed_year";
     private Calendar currentCalendar;
     private int currentMonth;
     private int currentYear;
     private double totalPnl = 0;
 
-    // SharedPreferences keys
-    private static final String PREFS_NAME = "TraderDiaryPrefs";
-    private static final String KEY_ALL_TRANSACTIONS = "all_transactions";
-    private static final String KEY_MONTHLY_TRANSACTIONS = "monthly_transactions";
-
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
@@ -68,27 +153,82 @@ public class MainActivity extends AppCompatActivity {
         initializeViews();
         initializeWeekLayouts();
         setupClickListeners();
-        loadSavedData();
-        initializeCurrentMonth();
+        setupPerfHud();
+        LedgerHolder holder = LedgerHolder.take();
+        if (holder != null) {
+            takeHeldState(holder);
+        } else {
+            accountRegistry = new AccountRegistry(this);
+            loadSavedData();
+        }
+        updateAccountHeader();
+        initializeCurrentMonth(savedInstanceState);
         updateUIForCurrentMonth();
+
+        // A restore started by an Activity that has since been recreated
+        RestoreTask restore = RestoreTask.current();
+        if (restore != null) {
+            if (RestoreTask.isRunning()) {
+                showRestoreProgress();
+            }
+            restore.attach(restoreListener);
+        }
     }
 
+    @Override
+    protected void onSaveInstanceState(Bundle outState) {
+        super.onSaveInstanceState(outState);
+        outState.putInt(STATE_VIEWED_MONTH, currentMonth);
+        outState.putInt(STATE_VIEWED_YEAR, currentYear);
+    }
+
+    // Commits already save, so these only write if something slipped through
     @Override
     protected void onPause() {
         super.onPause();
-        saveData();
+        saveIfChanged();
     }
 
     @Override
     protected void onStop() {
         super.onStop();
-        saveData();
+        saveIfChanged();
     }
 
     @Override
     protected void onDestroy() {
         super.onDestroy();
-        saveData();
+        saveIfChanged();
+        RestoreTask restore = RestoreTask.current();
+        if (restore != null) {
+            restore.detach(restoreListener);
+        }
+        if (restoreProgress != null) {
+            restoreProgress.dismiss();
+            restoreProgress = null;
+        }
+        // The next Activity, usually the one recreated for a configuration change, takes this back
+        if (ledger != null) {
+            ledger.clearOnChangeListeners();
+        }
+        LedgerHolder.retain(new LedgerHolder(accountRegistry, ledger, combinedSnapshot, syncJournal,
+                tradeBook, yearPnlIndex, equityCurve, streakTree, rollupCube, distributionIndex));
+    }
+
+    private void takeHeldState(LedgerHolder holder) {
+        accountRegistry = holder.accountRegistry;
+        ledger = holder.ledger;
+        combinedSnapshot = holder.combinedSnapshot;
+        syncJournal = holder.syncJournal;
+        tradeBook = holder.tradeBook;
+        yearPnlIndex = holder.yearPnlIndex;
+        equityCurve = holder.equityCurve;
+        streakTree = holder.streakTree;
+        rollupCube = holder.rollupCube;
+        distributionIndex = holder.distributionIndex;
+        if (ledger != null) {
+            addLedgerListeners();
+        }
     }
 
     private void initializeViews() {
@@ -96,7 +236,12 @@ public class MainActivity extends AppCompatActivity {
         tvInTradingDays = findViewById(R.id.tv_trading_days);
         tvInAddedOn = findViewById(R.id.tv_added_on);
         tvInProductDays = findViewById(R.id.tv_product_days);
+        rgDistributionScope = findViewById(R.id.rg_distribution_scope);
+        tvDistributionSummary = findViewById(R.id.tv_distribution_summary);
+        distributionView = findViewById(R.id.distribution_view);
+        rgDistributionScope.setOnCheckedChangeListener((group, checkedId) -> showDistribution());
         tvWinningsStruck = findViewById(R.id.tv_winnings_struck);
+        tvStreaks = findViewById(R.id.tv_streaks);
         tvProfitableDaysCount = findViewById(R.id.tv_profitable_days_count);
         tvMonthYear = findViewById(R.id.tv_month_year);
         layoutMostProfitableDays = findViewById(R.id.layout_most_profitable_days);
@@ -115,8 +260,14 @@ public class MainActivity extends AppCompatActivity {
         weekLayouts[5] = findViewById(R.id.layout_week6);
     }
 
-    private void initializeCurrentMonth() {
+    private void initializeCurrentMonth(Bundle savedInstanceState) {
         currentCalendar = Calendar.getInstance();
+        if (savedInstanceState != null) {
+            // Back on the month that was being viewed before recreation
+            currentCalendar.set(Calendar.DAY_OF_MONTH, 1);
+            currentCalendar.set(Calendar.MONTH, savedInstanceState.getInt(STATE_VIEWED_MONTH));
+            currentCalendar.set(Calendar.YEAR, savedInstanceState.getInt(STATE_VIEWED_YEAR));
+        }
         currentMonth = currentCalendar.get(Calendar.MONTH);
         currentYear = currentCalendar.get(Calendar.YEAR);
 
@@ -125,8 +276,7 @@ public class MainActivity extends AppCompatActivity {
     }
 
     private void updateMonthYearDisplay() {
-        String monthName = new SimpleDateFormat("MMMM yyyy", Locale.getDefault())
-                .format(currentCalendar.getTime());
+        String monthName = formatters.monthTitle(currentMonth, currentYear);
         tvMonthYear.setText(monthName);
 
         TextView tvTransactionsHeader = findViewById(R.id.tv_transactions_header);
@@ -137,53 +287,440 @@ public class MainActivity extends AppCompatActivity {
     }
 
     private void loadCurrentMonthData() {
-        String monthKey = getMonthKey(currentMonth, currentYear);
+        long traceStart = PerfTracer.begin(PerfTracer.LOAD_CURRENT_MONTH_DATA);
+        try {
+            currentSegment = getVisibleSnapshot().getSegment(Ledger.monthKey(currentMonth, currentYear));
+            totalPnl = currentSegment.getTotalNet();
+            if (!currentSegment.isReadable()) {
+                Toast.makeText(this, "This month's entries could not be decrypted; it is read-only",
+                        Toast.LENGTH_LONG).show();
+            }
+            PerfTracer.count(PerfTracer.ENTRIES_SCANNED, currentSegment.getTradedDays());
+        } finally {
+            PerfTracer.end(PerfTracer.LOAD_CURRENT_MONTH_DATA, traceStart);
+        }
+    }
 
-        // Get transactions for current month
-        currentMonthTransactions = monthlyTransactions.get(monthKey);
-        if (currentMonthTransactions == null) {
-            currentMonthTransactions = new ArrayList<>();
-            monthlyTransactions.put(monthKey, currentMonthTransactions);
+    // The combined view holds one synthetic entry per day with the net of all accounts
+    private LedgerSnapshot getVisibleSnapshot() {
+        return ledger != null ? ledger.snapshot() : combinedSnapshot;
+    }
+
+    private void setupClickListeners() {
+        fabAdd.setOnClickListener(v -> {
+            if (ensureEditableAccount()) {
+                showAddTransactionDialog();
+            }
+        });
+
+        btnPrevMonth.setOnClickListener(v -> navigateToPreviousMonth());
+        btnNextMonth.setOnClickListener(v -> navigateToNextMonth());
+
+        tvMonthYear.setOnClickListener(v -> showMonthSelectionDialog());
+
+        TextView tvHeader = findViewById(R.id.tv_header);
+        tvHeader.setOnClickListener(v -> showToolsDialog());
+    }
+
+    private void showToolsDialog() {
+        String[] tools = {"Year at a Glance", "Equity Curve", "Period Summary", "What-if Projection",
+                "Bulk Entry", "Delete Multiple", "Accounts", "Backup to File", "Restore from File",
+                "Export Changes", "Import Changes", "Instruments", "Insights"};
+
+        AlertDialog.Builder builder = new AlertDialog.Builder(this);
+        builder.setTitle("Tools");
+        builder.setItems(tools, (dialog, which) -> {
+            switch (which) {
+                case 0: showYearHeatmapDialog(); break;
+                case 1: showEquityCurveDialog(); break;
+                case 2: showPeriodSummaryDialog(); break;
+                case 3: showWhatIfDialog(); break;
+                case 4: if (ensureEditableAccount()) showBulkEntryDialog(); break;
+                case 5: if (ensureEditableAccount()) showMultiDeleteDialog(); break;
+                case 6: showAccountsDialog(); break;
+                case 7: backupLauncher.launch(getBackupFileName()); break;
+                case 8: restoreLauncher.launch(new String[]{BackupSnapshot.MIME_TYPE}); break;
+                case 9: if (ensureEditableAccount()) startExportChanges(); break;
+                case 10: if (ensureEditableAccount()) importChangesLauncher.launch(new String[]{ChangeLog.MIME_TYPE}); break;
+                case 11: if (ensureEditableAccount()) showInstrumentsDialog(); break;
+                case 12: showInsightsDialog(); break;
+            }
+        });
+        builder.setNegativeButton("Cancel", null);
+        builder.show();
+    }
+
+    private String getBackupFileName() {
+        return "traders-diary-" + new SimpleDateFormat("yyyy-MM-dd", Locale.US).format(new Date())
+                + BackupSnapshot.FILE_EXTENSION;
+    }
+
+    // Streams every account and its trades into the snapshot on a worker thread, loading at
+    // most one other account at a time
+    private void writeBackup(Uri uri) {
+        if (uri == null) return;
+        saveData();
+
+        Ledger open = ledger;
+        LedgerSnapshot openSnapshot = open != null ? open.snapshot() : null;
+        if (open != null && tradeBook == null) {
+            tradeBook = open.loadTradeBook();
         }
+        // Trades can be edited while the backup is written
+        TradeBook openTrades = open != null ? tradeBook.copy() : null;
+        List<Account> accounts = new ArrayList<>(accountRegistry.getAccounts());
+        new Thread(() -> {
+            long start = System.nanoTime();
+            int entries = 0;
+            try (OutputStream out = getContentResolver().openOutputStream(uri)) {
+                if (out == null) throw new IOException("Cannot open file");
+
+                BackupSnapshot.Writer writer = new BackupSnapshot.Writer(out, accounts.size());
+                for (Account account : accounts) {
+                    LedgerSnapshot snapshot = openSnapshot;
+                    TradeBook trades = openTrades;
+                    if (open == null || !open.getAccountId().equals(account.getId())) {
+                        Ledger source = new Ledger(this, account.getId());
+                        source.load();
+                        snapshot = source.snapshot();
+                        trades = source.loadTradeBook();
+                    }
+                    if (trades.isReadOnly()) {
+                        throw new IOException("Trades in " + account.getName() + " could not be decrypted");
+                    }
 
-        // Build daily transactions map
-        dailyTransactions.clear();
-        for (Transaction t : currentMonthTransactions) {
-            Calendar cal = Calendar.getInstance();
-            cal.setTime(t.getDate());
-            int day = cal.get(Calendar.DAY_OF_MONTH);
-            dailyTransactions.put(day, t);
+                    writer.beginAccount(account.getId(), account.getName());
+                    for (MonthSegment segment : snapshot.getSegments().values()) {
+                        // Backing up the month as empty would lose it on restore
+                        if (!segment.isReadable()) {
+                            throw new IOException("Entries of " + (segment.getMonth() + 1) + "/" + segment.getYear()
+                                    + " in " + account.getName() + " could not be decrypted");
+                        }
+                        for (Transaction t : segment.getTransactions()) {
+                            writer.write(t);
+                        }
+                    }
+                    writer.endAccount(trades);
+                    entries += snapshot.size();
+                }
+                writer.close();
+                PerfTracer.count(PerfTracer.BYTES_WRITTEN, writer.getBytesWritten());
+            } catch (IOException e) {
+                runOnUiThread(() -> Toast.makeText(this, "Backup failed: " + e.getMessage(),
+                        Toast.LENGTH_LONG).show());
+                return;
+            }
+
+            long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+            int written = entries;
+            runOnUiThread(() -> Toast.makeText(this, "Backed up " + written + " entries in " + elapsedMs + " ms",
+                    Toast.LENGTH_SHORT).show());
+        }, "write-backup").start();
+    }
+
+    private void startExportChanges() {
+        ensureSyncJournal();
+        if (syncJournal.getPendingCount() == 0) {
+            Toast.makeText(this, "No changes since the last export", Toast.LENGTH_SHORT).show();
+            return;
         }
+        exportChangesLauncher.launch("traders-diary-changes-"
+                + new SimpleDateFormat("yyyy-MM-dd-HHmm", Locale.US).format(new Date())
+                + ChangeLog.FILE_EXTENSION);
+    }
 
-        calculateCurrentMonthPnl();
+    // The first sync of an account exports every entry it already has
+    private void ensureSyncJournal() {
+        if (syncJournal != null) return;
+        syncJournal = SyncJournal.create(ledger.getAccountId(), accountRegistry.getDeviceId(), ledger.snapshot());
+        saveData();
     }
 
-    private String getMonthKey(int month, int year) {
-        return month + "-" + year;
+    // Writes the edits since the last export; the watermark moves only once the file is written
+    private void writeChanges(Uri uri) {
+        if (uri == null || ledger == null) return;
+        ensureSyncJournal();
+
+        ChangeLog log = syncJournal.exportPending();
+        try (OutputStream out = getContentResolver().openOutputStream(uri)) {
+            if (out == null) throw new IOException("Cannot open file");
+            PerfTracer.count(PerfTracer.BYTES_WRITTEN, log.write(out));
+        } catch (IOException e) {
+            Toast.makeText(this, "Export failed: " + e.getMessage(), Toast.LENGTH_LONG).show();
+            return;
+        }
+        syncJournal.markExported(log);
+        saveData();
+        Toast.makeText(this, "Exported " + log.getRecords().size() + " changes", Toast.LENGTH_SHORT).show();
     }
 
-    private void calculateCurrentMonthPnl() {
-        double totalProfit = 0;
-        double totalLoss = 0;
+    private void importChanges(Uri uri) {
+        if (uri == null || ledger == null) return;
+        ChangeLog log;
+        try (InputStream in = getContentResolver().openInputStream(uri)) {
+            if (in == null) throw new IOException("Cannot open file");
+            log = ChangeLog.read(in);
+        } catch (IOException e) {
+            Toast.makeText(this, "Import failed: " + e.getMessage(), Toast.LENGTH_LONG).show();
+            return;
+        }
 
-        for (Transaction t : currentMonthTransactions) {
-            if (t.isProfit()) {
-                totalProfit += t.getAmount();
+        // Merged edits must all reach the ledger, so a read-only month fails the whole import
+        LedgerSnapshot snapshot = ledger.snapshot();
+        for (ChangeLog.Record record : log.getRecords()) {
+            int monthKey = Ledger.monthKeyOf(EpochDays.toCalendar(record.getEpochDay()));
+            if (!snapshot.getSegment(monthKey).isReadable()) {
+                Toast.makeText(this, "Import failed: entries of " + (Ledger.monthOf(monthKey) + 1) + "/"
+                        + Ledger.yearOf(monthKey) + " could not be decrypted", Toast.LENGTH_LONG).show();
+                return;
+            }
+        }
+
+        ensureSyncJournal();
+        SyncJournal.MergeResult result;
+        try {
+            result = syncJournal.merge(log);
+        } catch (SyncJournal.WrongAccountException | SyncJournal.MissingChangesException e) {
+            Toast.makeText(this, "Import failed: " + e.getMessage(), Toast.LENGTH_LONG).show();
+            return;
+        }
+
+        Ledger.Batch batch = ledger.beginBatch();
+        for (ChangeLog.Record record : result.applied) {
+            if (!record.isDeleted()) {
+                batch.put(record.toTransaction());
+                continue;
+            }
+            Calendar cal = EpochDays.toCalendar(record.getEpochDay());
+            Transaction existing = snapshot.getSegment(Ledger.monthKeyOf(cal))
+                    .getTransaction(cal.get(Calendar.DAY_OF_MONTH));
+            if (existing != null) {
+                batch.remove(existing);
+            }
+        }
+        // Merged edits already carry their versions and must not be exported back as local ones
+        applyingSyncedChanges = true;
+        try {
+            batch.commit();
+        } finally {
+            applyingSyncedChanges = false;
+        }
+        // The journal moved even if no entry changed
+        saveData();
+
+        String message = "Imported " + result.applied.size() + " changes";
+        if (result.alreadyApplied > 0) message += ", " + result.alreadyApplied + " already applied";
+        if (result.superseded > 0) message += ", " + result.superseded + " superseded";
+        Toast.makeText(this, message, Toast.LENGTH_SHORT).show();
+    }
+
+    private void confirmRestore(Uri uri) {
+        if (uri == null) return;
+
+        AlertDialog.Builder builder = new AlertDialog.Builder(this);
+        builder.setTitle("Restore Backup");
+        builder.setMessage("Entries and trades of every account in the backup will be replaced. Continue?");
+        builder.setPositiveButton("Restore", (dialog, which) -> restoreBackup(uri));
+        builder.setNegativeButton("Cancel", null);
+        builder.show();
+    }
+
+    // Runs in a RestoreTask, which outlives this Activity; the current one shows it and applies it
+    private void restoreBackup(Uri uri) {
+        // The journal the restore rebuilds must start from what is stored
+        saveData();
+        showRestoreProgress();
+        RestoreTask.start(this, uri, ledger, syncJournal, accountRegistry.getDeviceId()).attach(restoreListener);
+    }
+
+    private void showRestoreProgress() {
+        AlertDialog.Builder builder = new AlertDialog.Builder(this);
+        builder.setTitle("Restoring Backup");
+        builder.setView(new ProgressBar(this));
+        // Nothing can be edited while the entries are replaced in the background
+        builder.setCancelable(false);
+        restoreProgress = builder.show();
+    }
+
+    private void onRestoreFinished(RestoreTask.Result result) {
+        if (restoreProgress != null) {
+            restoreProgress.dismiss();
+            restoreProgress = null;
+        }
+        if (result.accounts == null) {
+            Toast.makeText(this, "Restore failed: " + result.error, Toast.LENGTH_LONG).show();
+            return;
+        }
+
+        for (Account account : result.accounts) {
+            accountRegistry.ensureAccount(account.getId(), account.getName());
+        }
+        if (ledger == result.openLedger) {
+            // Replaces the journal this Activity may have taken over from the one that started
+            syncJournal = result.openJournal;
+            saveData();
+        }
+
+        if (ledger == null) {
+            loadCombinedAggregates();
+        }
+        tradeBook = null;
+        yearPnlIndex = null;
+        equityCurve = null;
+        streakTree = null;
+        rollupCube = null;
+        distributionIndex = null;
+        updateAccountHeader();
+        loadCurrentMonthData();
+        updateUIForCurrentMonth();
+        if (result.error != null) {
+            Toast.makeText(this, "Restore stopped after " + result.accounts.size() + " accounts: " + result.error,
+                    Toast.LENGTH_LONG).show();
+            return;
+        }
+        Toast.makeText(this, "Restored " + result.entries + " entries in " + result.elapsedMs + " ms",
+                Toast.LENGTH_SHORT).show();
+    }
+
+    private void showAccountsDialog() {
+        List<Account> accounts = accountRegistry.getAccounts();
+        String selectedId = accountRegistry.getSelectedId();
+
+        String[] items = new String[accounts.size() + 2];
+        for (int i = 0; i < accounts.size(); i++) {
+            Account account = accounts.get(i);
+            items[i] = account.getId().equals(selectedId) ? account.getName() + " ✓" : account.getName();
+        }
+        items[accounts.size()] = AccountRegistry.COMBINED_ID.equals(selectedId)
+                ? "All accounts (combined) ✓" : "All accounts (combined)";
+        items[accounts.size() + 1] = "+ Add account";
+
+        AlertDialog.Builder builder = new AlertDialog.Builder(this);
+        builder.setTitle("Accounts");
+        builder.setItems(items, (dialog, which) -> {
+            if (which < accounts.size()) {
+                switchAccount(accounts.get(which).getId());
+            } else if (which == accounts.size()) {
+                switchAccount(AccountRegistry.COMBINED_ID);
             } else {
-                totalLoss += Math.abs(t.getAmount());
+                showAddAccountDialog();
             }
+        });
+        builder.setNegativeButton("Cancel", null);
+        builder.show();
+    }
+
+    private void showAddAccountDialog() {
+        EditText etName = new EditText(this);
+        etName.setHint("e.g. Equity, F&O, Commodity");
+        etName.setSingleLine(true);
+
+        AlertDialog.Builder builder = new AlertDialog.Builder(this);
+        builder.setTitle("Add Account");
+        builder.setView(etName);
+        builder.setPositiveButton("Add", (dialog, which) -> {
+            String name = etName.getText().toString().trim();
+            if (name.isEmpty()) {
+                Toast.makeText(this, "Please enter a name", Toast.LENGTH_SHORT).show();
+                return;
+            }
+            Account account = accountRegistry.addAccount(name);
+            switchAccount(account.getId());
+        });
+        builder.setNegativeButton("Cancel", null);
+        builder.show();
+    }
+
+    private void switchAccount(String accountId) {
+        // Persist and release the account being left before loading the next one
+        saveData();
+        accountRegistry.setSelectedId(accountId);
+        loadSavedData();
+        updateAccountHeader();
+
+        loadCurrentMonthData();
+        updateUIForCurrentMonth();
+    }
+
+    private void updateAccountHeader() {
+        TextView tvHeader = findViewById(R.id.tv_header);
+        String selectedId = accountRegistry.getSelectedId();
+        if (AccountRegistry.COMBINED_ID.equals(selectedId)) {
+            tvHeader.setText("Trader's Diary · All accounts");
+        } else if (accountRegistry.getAccounts().size() > 1) {
+            tvHeader.setText("Trader's Diary · " + accountRegistry.getAccount(selectedId).getName());
+        } else {
+            tvHeader.setText("Trader's Diary");
         }
+    }
 
-        totalPnl = totalProfit - totalLoss;
+    // Entries are always added to a single account, never to the combined view
+    private boolean ensureEditableAccount() {
+        if (ledger == null) {
+            Toast.makeText(this, "Switch to an account to add or delete entries", Toast.LENGTH_SHORT).show();
+            return false;
+        }
+        return true;
     }
 
-    private void setupClickListeners() {
-        fabAdd.setOnClickListener(v -> showAddTransactionDialog());
+    private void showMonth(int month, int year) {
+        currentCalendar.set(Calendar.DAY_OF_MONTH, 1);
+        currentCalendar.set(Calendar.MONTH, month);
+        currentCalendar.set(Calendar.YEAR, year);
+        currentMonth = month;
+        currentYear = year;
 
-        btnPrevMonth.setOnClickListener(v -> navigateToPreviousMonth());
-        btnNextMonth.setOnClickListener(v -> navigateToNextMonth());
+        updateMonthYearDisplay();
+        loadCurrentMonthData();
+        updateUIForCurrentMonth();
+    }
 
-        tvMonthYear.setOnClickListener(v -> showMonthSelectionDialog());
+    private void showYearHeatmapDialog() {
+        if (yearPnlIndex == null) {
+            LedgerSnapshot snapshot = getVisibleSnapshot();
+            yearPnlIndex = YearPnlIndex.build(snapshot);
+            PerfTracer.count(PerfTracer.ENTRIES_SCANNED, snapshot.getSegments().size());
+        }
+
+        View dialogView = getLayoutInflater().inflate(R.layout.dialog_year_heatmap, null);
+        YearHeatmapView heatmapView = dialogView.findViewById(R.id.year_heatmap);
+        TextView tvYear = dialogView.findViewById(R.id.tv_heatmap_year);
+        TextView tvSummary = dialogView.findViewById(R.id.tv_heatmap_summary);
+        ImageButton btnPrevYear = dialogView.findViewById(R.id.btn_prev_year);
+        ImageButton btnNextYear = dialogView.findViewById(R.id.btn_next_year);
+
+        final int[] shownYear = {currentYear};
+        Runnable bindYear = () -> {
+            YearPnlIndex.YearData data = yearPnlIndex.get(shownYear[0]);
+            tvYear.setText(Formatters.number(shownYear[0]));
+            heatmapView.setYear(shownYear[0], data);
+            if (data == null) {
+                tvSummary.setText("No entries");
+            } else {
+                tvSummary.setText(String.format("Net ₹ %.2f over %d traded days", data.total, data.tradedDays));
+            }
+        };
+        bindYear.run();
+
+        btnPrevYear.setOnClickListener(v -> {
+            shownYear[0]--;
+            bindYear.run();
+        });
+        btnNextYear.setOnClickListener(v -> {
+            shownYear[0]++;
+            bindYear.run();
+        });
+
+        AlertDialog.Builder builder = new AlertDialog.Builder(this);
+        builder.setTitle("Year at a Glance");
+        builder.setView(dialogView);
+        builder.setNegativeButton("Close", null);
+        AlertDialog dialog = builder.show();
+
+        heatmapView.setOnMonthClickListener(month -> {
+            dialog.dismiss();
+            showMonth(month, shownYear[0]);
+        });
     }
 
     private void navigateToPreviousMonth() {
@@ -227,47 +764,517 @@ public class MainActivity extends AppCompatActivity {
         }
     }
 
-    private void showMonthSelectionDialog() {
+    private void showEquityCurveDialog() {
+        if (equityCurve == null) {
+            LedgerSnapshot snapshot = getVisibleSnapshot();
+            equityCurve = EquityCurve.build(snapshot);
+            PerfTracer.count(PerfTracer.ENTRIES_SCANNED, snapshot.size());
+        }
+
+        View dialogView = getLayoutInflater().inflate(R.layout.dialog_equity_curve, null);
+        RadioGroup rgZoom = dialogView.findViewById(R.id.rg_equity_zoom);
+        EquityCurveView curveView = dialogView.findViewById(R.id.equity_curve_view);
+        TextView tvSummary = dialogView.findViewById(R.id.tv_equity_summary);
+
+        curveView.setCurve(equityCurve);
+        rgZoom.setOnCheckedChangeListener((group, checkedId) -> {
+            if (checkedId == R.id.rb_zoom_3m) {
+                curveView.setZoomLevel(EquityCurveView.ZOOM_3_MONTHS);
+            } else if (checkedId == R.id.rb_zoom_5y) {
+                curveView.setZoomLevel(EquityCurveView.ZOOM_5_YEARS);
+            } else if (checkedId == R.id.rb_zoom_all) {
+                curveView.setZoomLevel(EquityCurveView.ZOOM_ALL);
+            } else {
+                curveView.setZoomLevel(EquityCurveView.ZOOM_1_YEAR);
+            }
+        });
+
+        if (equityCurve.getDays() == 0) {
+            tvSummary.setText("No entries");
+        } else {
+            SimpleDateFormat sdf = formatters.dateFormat(Formatters.PATTERN_SHORT_DATE);
+            char[] netChars = new char[Formatters.CURRENCY_CAPACITY];
+            tvSummary.setText("Net " + new String(netChars, 0, Formatters.formatCurrency(equityCurve.getFinal(), netChars))
+                    + " since " + sdf.format(EpochDays.toCalendar(equityCurve.getFirstDay()).getTime())
+                    + " · drag to pan");
+        }
+
         AlertDialog.Builder builder = new AlertDialog.Builder(this);
-        builder.setTitle("Select Month");
+        builder.setTitle("Equity Curve");
+        builder.setView(dialogView);
+        builder.setPositiveButton("Close", null);
+        builder.show();
+    }
+
+    private void showPeriodSummaryDialog() {
+        if (rollupCube == null) {
+            LedgerSnapshot snapshot = getVisibleSnapshot();
+            rollupCube = RollupCube.build(snapshot);
+            PerfTracer.count(PerfTracer.ENTRIES_SCANNED, snapshot.size());
+        }
 
-        List<String> monthsWithData = new ArrayList<>(monthlyTransactions.keySet());
-        Collections.sort(monthsWithData, Collections.reverseOrder());
+        View dialogView = getLayoutInflater().inflate(R.layout.dialog_period_summary, null);
+        RadioGroup rgLevel = dialogView.findViewById(R.id.rg_period_level);
+        ListView lvPeriods = dialogView.findViewById(R.id.lv_periods);
+
+        RadioGroup.OnCheckedChangeListener showLevel = (group, checkedId) -> {
+            RollupCube.Level level;
+            if (checkedId == R.id.rb_level_week) {
+                level = RollupCube.Level.WEEK;
+            } else if (checkedId == R.id.rb_level_quarter) {
+                level = RollupCube.Level.QUARTER;
+            } else if (checkedId == R.id.rb_level_fy) {
+                level = RollupCube.Level.FINANCIAL_YEAR;
+            } else {
+                level = RollupCube.Level.MONTH;
+            }
+            lvPeriods.setAdapter(new PeriodSummaryAdapter(getLayoutInflater(), formatters, level,
+                    rollupCube.getPeriods(level)));
+        };
+        rgLevel.setOnCheckedChangeListener(showLevel);
+        showLevel.onCheckedChanged(rgLevel, rgLevel.getCheckedRadioButtonId());
 
-        String currentMonthKey = getMonthKey(currentMonth, currentYear);
-        if (!monthsWithData.contains(currentMonthKey)) {
-            monthsWithData.add(currentMonthKey);
+        AlertDialog.Builder builder = new AlertDialog.Builder(this);
+        builder.setTitle("Period Summary");
+        builder.setView(dialogView);
+        builder.setPositiveButton("Close", null);
+        builder.show();
+    }
+
+    private void showInstrumentsDialog() {
+        if (tradeBook == null) {
+            tradeBook = ledger.loadTradeBook();
+            PerfTracer.count(PerfTracer.ENTRIES_SCANNED, tradeBook.size());
+        }
+        if (tradeBook.isReadOnly()) {
+            Toast.makeText(this, TRADES_READ_ONLY, Toast.LENGTH_LONG).show();
         }
 
-        List<String> monthDisplayNames = new ArrayList<>();
-        for (String monthKey : monthsWithData) {
-            String[] parts = monthKey.split("-");
-            int month = Integer.parseInt(parts[0]);
-            int year = Integer.parseInt(parts[1]);
+        View dialogView = getLayoutInflater().inflate(R.layout.dialog_instruments, null);
+        RadioGroup rgRanking = dialogView.findViewById(R.id.rg_instrument_ranking);
+        TextView tvEmpty = dialogView.findViewById(R.id.tv_instruments_empty);
+        ListView lvInstruments = dialogView.findViewById(R.id.lv_instruments);
+        Button btnAddTrade = dialogView.findViewById(R.id.btn_add_trade);
+
+        InstrumentLeaderboardAdapter adapter = new InstrumentLeaderboardAdapter(getLayoutInflater(),
+                tradeBook, new int[0]);
+        lvInstruments.setAdapter(adapter);
+        // Reads the per-symbol totals only; no trade is rescanned
+        Runnable bindRanking = () -> {
+            boolean best = rgRanking.getCheckedRadioButtonId() != R.id.rb_ranking_worst;
+            adapter.setSymbolIds(tradeBook.leaderboard(LEADERBOARD_SIZE, best));
+            tvEmpty.setVisibility(adapter.getCount() == 0 ? View.VISIBLE : View.GONE);
+        };
+        bindRanking.run();
+        rgRanking.setOnCheckedChangeListener((group, checkedId) -> bindRanking.run());
+        lvInstruments.setOnItemClickListener((parent, view, position, id) ->
+                showSymbolTradesDialog((int) id, bindRanking));
+        btnAddTrade.setEnabled(!tradeBook.isReadOnly());
+        btnAddTrade.setOnClickListener(v -> showAddTradeDialog(bindRanking));
 
-            Calendar cal = Calendar.getInstance();
-            cal.set(Calendar.MONTH, month);
-            cal.set(Calendar.YEAR, year);
+        AlertDialog.Builder builder = new AlertDialog.Builder(this);
+        builder.setTitle("Instruments");
+        builder.setView(dialogView);
+        builder.setPositiveButton("Close", null);
+        builder.show();
+    }
 
-            String monthName = new SimpleDateFormat("MMMM yyyy", Locale.getDefault())
-                    .format(cal.getTime());
-            monthDisplayNames.add(monthName);
+    private void showSymbolTradesDialog(int symbolId, Runnable onChanged) {
+        int[] indices = tradeBook.tradesOf(symbolId);
+        SimpleDateFormat sdf = formatters.dateFormat(Formatters.PATTERN_SHORT_DATE);
+        char[] pnlChars = new char[Formatters.CURRENCY_CAPACITY];
+        String[] items = new String[indices.length];
+        for (int i = 0; i < indices.length; i++) {
+            TradeEntry trade = tradeBook.get(indices[i]);
+            items[i] = sdf.format(trade.getDate()) + " · "
+                    + (trade.getSide() == TradeEntry.Side.BUY ? "Buy " : "Sell ") + trade.getQuantity()
+                    + " · " + new String(pnlChars, 0, Formatters.formatCurrency(trade.getPnl(), pnlChars));
         }
 
-        builder.setItems(monthDisplayNames.toArray(new String[0]), (dialog, which) -> {
-            String selectedMonthKey = monthsWithData.get(which);
-            String[] parts = selectedMonthKey.split("-");
-            int month = Integer.parseInt(parts[0]);
-            int year = Integer.parseInt(parts[1]);
+        AlertDialog.Builder builder = new AlertDialog.Builder(this);
+        builder.setTitle(tradeBook.getSymbols().name(symbolId));
+        builder.setItems(items, (dialog, which) -> {
+            if (tradeBook.isReadOnly()) {
+                Toast.makeText(this, TRADES_READ_ONLY, Toast.LENGTH_LONG).show();
+                return;
+            }
+            AlertDialog.Builder confirmBuilder = new AlertDialog.Builder(this);
+            confirmBuilder.setTitle("Delete Trade");
+            confirmBuilder.setMessage("Delete " + items[which] + "?");
+            confirmBuilder.setPositiveButton("Delete", (dialog1, which1) -> {
+                tradeBook.remove(indices[which]);
+                saveTradeBook();
+                onChanged.run();
+                Toast.makeText(this, "Trade deleted", Toast.LENGTH_SHORT).show();
+            });
+            confirmBuilder.setNegativeButton("Cancel", null);
+            confirmBuilder.show();
+        });
+        builder.setNegativeButton("Close", null);
+        builder.show();
+    }
 
-            currentCalendar.set(Calendar.MONTH, month);
-            currentCalendar.set(Calendar.YEAR, year);
-            currentMonth = month;
-            currentYear = year;
+    private void showAddTradeDialog(Runnable onAdded) {
+        View dialogView = getLayoutInflater().inflate(R.layout.dialog_add_trade, null);
+        TextView tvDate = dialogView.findViewById(R.id.tv_trade_date);
+        Button btnSelectDate = dialogView.findViewById(R.id.btn_select_trade_date);
+        EditText etSymbol = dialogView.findViewById(R.id.et_symbol);
+        EditText etQuantity = dialogView.findViewById(R.id.et_quantity);
+        RadioGroup rgSide = dialogView.findViewById(R.id.rg_side);
+        EditText etPnl = dialogView.findViewById(R.id.et_trade_pnl);
+
+        SimpleDateFormat sdf = formatters.dateFormat(Formatters.PATTERN_SHORT_DATE);
+        tvDate.setText(sdf.format(new Date()));
+        btnSelectDate.setOnClickListener(v -> showDatePickerDialog(tvDate));
 
-            updateMonthYearDisplay();
-            loadCurrentMonthData();
-            updateUIForCurrentMonth();
+        AlertDialog.Builder builder = new AlertDialog.Builder(this);
+        builder.setTitle("Add Trade");
+        builder.setView(dialogView);
+        builder.setPositiveButton("Add", (dialog, which) -> {
+            if (handleAddTrade(tvDate, etSymbol, etQuantity, rgSide, etPnl)) {
+                onAdded.run();
+            }
+        });
+        builder.setNegativeButton("Cancel", null);
+        builder.show();
+    }
+
+    // Returns false if the input was rejected
+    private boolean handleAddTrade(TextView tvDate, EditText etSymbol, EditText etQuantity,
+                                   RadioGroup rgSide, EditText etPnl) {
+        String symbol = etSymbol.getText().toString().trim();
+        if (symbol.isEmpty()) {
+            Toast.makeText(this, "Please enter symbol", Toast.LENGTH_SHORT).show();
+            return false;
+        }
+
+        int quantity;
+        double pnl;
+        try {
+            quantity = Integer.parseInt(etQuantity.getText().toString().trim());
+            pnl = Double.parseDouble(etPnl.getText().toString().trim());
+        } catch (NumberFormatException e) {
+            Toast.makeText(this, "Invalid quantity or P&L", Toast.LENGTH_SHORT).show();
+            return false;
+        }
+        if (quantity <= 0) {
+            Toast.makeText(this, "Invalid quantity or P&L", Toast.LENGTH_SHORT).show();
+            return false;
+        }
+
+        Calendar cal = Calendar.getInstance();
+        try {
+            cal.setTime(formatters.dateFormat(Formatters.PATTERN_SHORT_DATE).parse(tvDate.getText().toString()));
+        } catch (ParseException e) {
+            // Keep today
+        }
+        TradeEntry.Side side = rgSide.getCheckedRadioButtonId() == R.id.rb_sell
+                ? TradeEntry.Side.SELL : TradeEntry.Side.BUY;
+
+        tradeBook.add(symbol, EpochDays.of(cal), quantity, side, pnl);
+        saveTradeBook();
+        Toast.makeText(this, "Trade added", Toast.LENGTH_SHORT).show();
+        return true;
+    }
+
+    // Trades are saved on every edit; they are not part of the day entries' save
+    private void saveTradeBook() {
+        PerfTracer.count(PerfTracer.BYTES_WRITTEN, ledger.saveTradeBook(tradeBook));
+    }
+
+    private void showBulkEntryDialog() {
+        View dialogView = getLayoutInflater().inflate(R.layout.dialog_bulk_entry, null);
+        TextView tvHint = dialogView.findViewById(R.id.tv_bulk_hint);
+        EditText etEntries = dialogView.findViewById(R.id.et_bulk_entries);
+        tvHint.setText("One line per day for " + formatters.monthTitle(currentMonth, currentYear)
+                + ": the day (or yyyy-mm-dd) and the amount, negative for a loss. "
+                + "Existing entries for those days are replaced.");
+
+        AlertDialog.Builder builder = new AlertDialog.Builder(this);
+        builder.setTitle("Bulk Entry");
+        builder.setView(dialogView);
+        builder.setPositiveButton("Add All", (dialog, which) -> {
+            List<Transaction> transactions;
+            try {
+                transactions = BulkEntryParser.parse(etEntries.getText().toString(), currentMonth, currentYear);
+            } catch (ParseException e) {
+                Toast.makeText(this, e.getMessage(), Toast.LENGTH_LONG).show();
+                return;
+            }
+            if (transactions.isEmpty()) return;
+
+            Ledger.Batch batch = ledger.beginBatch();
+            for (Transaction transaction : transactions) {
+                batch.put(transaction);
+            }
+            if (!commitEdits(batch)) return;
+            Toast.makeText(this, "Added " + transactions.size() + " entries", Toast.LENGTH_SHORT).show();
+        });
+        builder.setNegativeButton("Cancel", null);
+        builder.show();
+    }
+
+    private void showMultiDeleteDialog() {
+        List<Transaction> transactions = currentSegment.getTransactions();
+        if (transactions.isEmpty()) {
+            Toast.makeText(this, "No entries in this month", Toast.LENGTH_SHORT).show();
+            return;
+        }
+
+        SimpleDateFormat sdf = formatters.dateFormat(Formatters.PATTERN_SHORT_DATE);
+        String[] labels = new String[transactions.size()];
+        for (int i = 0; i < labels.length; i++) {
+            Transaction t = transactions.get(i);
+            labels[i] = String.format("%s   %s₹ %.2f", sdf.format(t.getDate()),
+                    t.isProfit() ? "+" : "-", Math.abs(t.getAmount()));
+        }
+        boolean[] checked = new boolean[labels.length];
+
+        AlertDialog.Builder builder = new AlertDialog.Builder(this);
+        builder.setTitle("Delete Multiple");
+        builder.setMultiChoiceItems(labels, checked, (dialog, which, isChecked) -> checked[which] = isChecked);
+        builder.setPositiveButton("Delete", (dialog, which) -> {
+            Ledger.Batch batch = ledger.beginBatch();
+            for (int i = 0; i < checked.length; i++) {
+                if (checked[i]) batch.remove(transactions.get(i));
+            }
+            if (batch.size() == 0) return;
+
+            AlertDialog.Builder confirmBuilder = new AlertDialog.Builder(this);
+            confirmBuilder.setTitle("Delete Transactions");
+            confirmBuilder.setMessage("Are you sure you want to delete " + batch.size() + " transactions?");
+            confirmBuilder.setPositiveButton("Delete", (dialog1, which1) -> {
+                int count = batch.size();
+                if (!commitEdits(batch)) return;
+                Toast.makeText(this, count + " transactions deleted", Toast.LENGTH_SHORT).show();
+            });
+            confirmBuilder.setNegativeButton("Cancel", null);
+            confirmBuilder.show();
+        });
+        builder.setNegativeButton("Cancel", null);
+        builder.show();
+    }
+
+    private void showWhatIfDialog() {
+        LedgerSnapshot snapshot = getVisibleSnapshot();
+        if (snapshot.size() < MIN_SIMULATION_DAYS) {
+            Toast.makeText(this, "Add at least " + MIN_SIMULATION_DAYS + " trading days to run a projection",
+                    Toast.LENGTH_LONG).show();
+            return;
+        }
+
+        View dialogView = getLayoutInflater().inflate(R.layout.dialog_what_if, null);
+        RadioGroup rgHorizon = dialogView.findViewById(R.id.rg_horizon);
+        EditText etDrawdownLimit = dialogView.findViewById(R.id.et_drawdown_limit);
+        Button btnRun = dialogView.findViewById(R.id.btn_run_simulation);
+        ProgressBar pbSimulation = dialogView.findViewById(R.id.pb_simulation);
+        TextView tvResult = dialogView.findViewById(R.id.tv_simulation_result);
+
+        AlertDialog.Builder builder = new AlertDialog.Builder(this);
+        builder.setTitle("What-if Projection");
+        builder.setView(dialogView);
+        builder.setNegativeButton("Close", null);
+        AlertDialog dialog = builder.create();
+
+        Handler handler = new Handler(Looper.getMainLooper());
+        final MonteCarloEngine[] running = {null};
+
+        btnRun.setOnClickListener(v -> {
+            String limitText = etDrawdownLimit.getText().toString().trim();
+            double limit;
+            try {
+                limit = Double.parseDouble(limitText);
+            } catch (NumberFormatException e) {
+                Toast.makeText(this, "Please enter a drawdown limit", Toast.LENGTH_SHORT).show();
+                return;
+            }
+            if (limit <= 0) {
+                Toast.makeText(this, "Drawdown limit must be greater than 0", Toast.LENGTH_SHORT).show();
+                return;
+            }
+
+            // Projects the real calendar period from today, whatever month is being viewed
+            boolean restOfYear = rgHorizon.getCheckedRadioButtonId() == R.id.rb_rest_of_year;
+            Calendar today = Calendar.getInstance();
+            int horizonDays = countRemainingWeekdays(today, restOfYear);
+            if (horizonDays == 0) {
+                tvResult.setText("No trading days left in this period");
+                return;
+            }
+            double realised = restOfYear
+                    ? getRealisedNet(snapshot, today.get(Calendar.YEAR), Calendar.JANUARY)
+                    : getRealisedNet(snapshot, today.get(Calendar.YEAR), today.get(Calendar.MONTH));
+
+            MonteCarloEngine engine = new MonteCarloEngine(MonteCarloEngine.dailyResults(snapshot),
+                    SIMULATION_PATHS, horizonDays, realised, limit, System.nanoTime());
+            running[0] = engine;
+            btnRun.setEnabled(false);
+            pbSimulation.setProgress(0);
+            pbSimulation.setVisibility(View.VISIBLE);
+            tvResult.setText("");
+
+            Runnable progressUpdater = new Runnable() {
+                @Override
+                public void run() {
+                    pbSimulation.setProgress((int) (engine.getProgress() * 100));
+                    handler.postDelayed(this, 100);
+                }
+            };
+            handler.post(progressUpdater);
+
+            new Thread(() -> {
+                MonteCarloEngine.Result result = null;
+                ForkJoinPool pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+                try {
+                    result = engine.run(pool);
+                } catch (CancellationException e) {
+                    // Dialog closed; nothing to show
+                } finally {
+                    pool.shutdown();
+                }
+
+                MonteCarloEngine.Result finalResult = result;
+                runOnUiThread(() -> {
+                    handler.removeCallbacks(progressUpdater);
+                    if (engine.isCancelled() || finalResult == null) return;
+                    pbSimulation.setVisibility(View.GONE);
+                    btnRun.setEnabled(true);
+                    tvResult.setText(formatSimulationResult(finalResult));
+                });
+            }, "what-if-simulation").start();
+        });
+
+        dialog.setOnDismissListener(d -> {
+            if (running[0] != null) running[0].cancel();
+        });
+        dialog.show();
+    }
+
+    private void showInsightsDialog() {
+        LedgerSnapshot snapshot = getVisibleSnapshot();
+        if (snapshot.isEmpty()) {
+            Toast.makeText(this, "Add some entries to see insights", Toast.LENGTH_SHORT).show();
+            return;
+        }
+
+        View dialogView = getLayoutInflater().inflate(R.layout.dialog_insights, null);
+        RadioGroup rgDimension = dialogView.findViewById(R.id.rg_insight_dimension);
+        ProgressBar pbInsights = dialogView.findViewById(R.id.pb_insights);
+        ListView lvInsights = dialogView.findViewById(R.id.lv_insights);
+        TextView tvSummary = dialogView.findViewById(R.id.tv_insights_summary);
+
+        AlertDialog.Builder builder = new AlertDialog.Builder(this);
+        builder.setTitle("Insights");
+        builder.setView(dialogView);
+        builder.setPositiveButton("Close", null);
+        AlertDialog dialog = builder.create();
+        final boolean[] dismissed = {false};
+        dialog.setOnDismissListener(d -> dismissed[0] = true);
+
+        // Every dimension is totalled in the one pass, so switching groups needs no new query
+        new Thread(() -> {
+            SeasonalityEngine engine = SeasonalityEngine.from(snapshot);
+            ForkJoinPool pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+            SeasonalityEngine.Result result;
+            try {
+                result = engine.run(pool);
+            } finally {
+                pool.shutdown();
+            }
+
+            runOnUiThread(() -> {
+                if (dismissed[0]) return;
+                SeasonalityAdapter adapter = new SeasonalityAdapter(getLayoutInflater(), result,
+                        dimensionFor(rgDimension.getCheckedRadioButtonId()));
+                lvInsights.setAdapter(adapter);
+                rgDimension.setOnCheckedChangeListener((group, checkedId) ->
+                        adapter.setDimension(dimensionFor(checkedId)));
+                pbInsights.setVisibility(View.GONE);
+                lvInsights.setVisibility(View.VISIBLE);
+                tvSummary.setText(String.format(Locale.getDefault(), "%,d traded days grouped in %.1f ms",
+                        result.rows, result.elapsedNanos / 1e6));
+            });
+        }, "insights-query").start();
+
+        dialog.show();
+    }
+
+    private static SeasonalityEngine.Dimension dimensionFor(int checkedId) {
+        if (checkedId == R.id.rb_group_week) return SeasonalityEngine.Dimension.WEEK_OF_MONTH;
+        if (checkedId == R.id.rb_group_month) return SeasonalityEngine.Dimension.MONTH_OF_YEAR;
+        if (checkedId == R.id.rb_group_amount) return SeasonalityEngine.Dimension.AMOUNT_BUCKET;
+        return SeasonalityEngine.Dimension.DAY_OF_WEEK;
+    }
+
+    // Monday to Friday from tomorrow to the end of the month or year
+    private static int countRemainingWeekdays(Calendar today, boolean toEndOfYear) {
+        Calendar cal = (Calendar) today.clone();
+        int endMonth = toEndOfYear ? Calendar.DECEMBER : today.get(Calendar.MONTH);
+        int year = today.get(Calendar.YEAR);
+        int days = 0;
+        while (true) {
+            cal.add(Calendar.DAY_OF_MONTH, 1);
+            if (cal.get(Calendar.YEAR) != year || cal.get(Calendar.MONTH) > endMonth) break;
+            int weekday = cal.get(Calendar.DAY_OF_WEEK);
+            if (weekday != Calendar.SATURDAY && weekday != Calendar.SUNDAY) {
+                days++;
+            }
+        }
+        return days;
+    }
+
+    // Net of the months from fromMonth to the latest month of the year, via the month index
+    private static double getRealisedNet(LedgerSnapshot snapshot, int year, int fromMonth) {
+        MonthIndex index = snapshot.getMonthIndex();
+        double net = 0;
+        for (int i = 0; i < index.size(); i++) {
+            int key = index.getMonthKey(i);
+            if (Ledger.yearOf(key) == year && Ledger.monthOf(key) >= fromMonth) {
+                net += index.getNetPnl(i);
+            }
+        }
+        return net;
+    }
+
+    private static String formatSimulationResult(MonteCarloEngine.Result result) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format(Locale.getDefault(), "%,d paths · %d trading days · %d ms%n%n",
+                result.paths, result.horizonDays, result.elapsedNanos / 1_000_000));
+        sb.append(String.format(Locale.getDefault(), "Finish in loss:        %5.1f%%%n",
+                result.probabilityOfLoss * 100));
+        sb.append(String.format(Locale.getDefault(), "Finish below -limit:   %5.1f%%%n",
+                result.probabilityOfEndingBelowLimit * 100));
+        sb.append(String.format(Locale.getDefault(), "Drawdown hits limit:   %5.1f%%%n%n",
+                result.probabilityOfDrawdownBreach * 100));
+
+        sb.append(" Day");
+        for (double percentile : MonteCarloEngine.PERCENTILES) {
+            sb.append(String.format(Locale.getDefault(), "%9s", "P" + (int) percentile));
+        }
+        sb.append('\n');
+        for (int c = 0; c < result.checkpointDays.length; c++) {
+            sb.append(String.format(Locale.getDefault(), "%4d", result.checkpointDays[c]));
+            for (double value : result.bands[c]) {
+                sb.append(String.format(Locale.getDefault(), "%9.0f", value));
+            }
+            sb.append('\n');
+        }
+        return sb.toString();
+    }
+
+    private void showMonthSelectionDialog() {
+        AlertDialog.Builder builder = new AlertDialog.Builder(this);
+        builder.setTitle("Select Month");
+
+        // Rendered from the snapshot's month index; no transaction is read
+        MonthIndex monthIndex = getVisibleSnapshot().getMonthIndex();
+        MonthPickerAdapter adapter = new MonthPickerAdapter(getLayoutInflater(), formatters,
+                monthIndex, Ledger.monthKey(currentMonth, currentYear));
+        PerfTracer.count(PerfTracer.ENTRIES_SCANNED, monthIndex.size());
+
+        builder.setAdapter(adapter, (dialog, which) -> {
+            int selectedMonthKey = adapter.getMonthKey(which);
+            showMonth(Ledger.monthOf(selectedMonthKey), Ledger.yearOf(selectedMonthKey));
         });
 
         builder.setNegativeButton("Cancel", null);
@@ -275,13 +1282,13 @@ public class MainActivity extends AppCompatActivity {
     }
 
     private void showTransactionDetails(int day) {
-        Transaction transaction = dailyTransactions.get(day);
+        Transaction transaction = currentSegment.getTransaction(day);
         if (transaction == null) return;
 
         AlertDialog.Builder builder = new AlertDialog.Builder(this);
         builder.setTitle("Transaction Details");
 
-        SimpleDateFormat sdf = new SimpleDateFormat("MMM dd, yyyy", Locale.getDefault());
+        SimpleDateFormat sdf = formatters.dateFormat(Formatters.PATTERN_SHORT_DATE);
         String message = String.format("Date: %s\nAmount: ₹ %.2f\nType: %s",
                 sdf.format(transaction.getDate()),
                 Math.abs(transaction.getAmount()),
@@ -290,45 +1297,23 @@ public class MainActivity extends AppCompatActivity {
         builder.setMessage(message);
         builder.setPositiveButton("OK", null);
 
-        builder.setNegativeButton("Delete", (dialog, which) -> {
-            deleteTransaction(transaction, day);
-        });
+        if (ledger != null) {
+            builder.setNegativeButton("Delete", (dialog, which) -> {
+                deleteTransaction(transaction);
+            });
+        }
 
         builder.show();
     }
 
-    private void deleteTransaction(Transaction transaction, int day) {
+    private void deleteTransaction(Transaction transaction) {
         AlertDialog.Builder builder = new AlertDialog.Builder(this);
         builder.setTitle("Delete Transaction");
         builder.setMessage("Are you sure you want to delete this transaction?");
 
         builder.setPositiveButton("Delete", (dialog, which) -> {
-            // Remove from all lists
-            allTransactions.remove(transaction);
-
-            Calendar cal = Calendar.getInstance();
-            cal.setTime(transaction.getDate());
-            int month = cal.get(Calendar.MONTH);
-            int year = cal.get(Calendar.YEAR);
-            String monthKey = getMonthKey(month, year);
-
-            // Remove from monthly transactions
-            List<Transaction> monthTransactions = monthlyTransactions.get(monthKey);
-            if (monthTransactions != null) {
-                monthTransactions.remove(transaction);
-                if (monthTransactions.isEmpty()) {
-                    monthlyTransactions.remove(monthKey);
-                }
-            }
-
-            // Remove from dailyTransactions map
-            dailyTransactions.remove(day);
-
-            // Clear and reload current month data
-            loadCurrentMonthData();
-
-            updateUIForCurrentMonth();
-            saveData();
+            // The change listeners refresh what the deletion affects and save
+            if (!commitEdits(ledger.beginBatch().remove(transaction))) return;
             Toast.makeText(this, "Transaction deleted", Toast.LENGTH_SHORT).show();
         });
 
@@ -336,122 +1321,150 @@ public class MainActivity extends AppCompatActivity {
         builder.show();
     }
 
-    private void saveData() {
-        SharedPreferences prefs = getSharedPreferences(PREFS_NAME, MODE_PRIVATE);
-        SharedPreferences.Editor editor = prefs.edit();
-
-        Gson gson = new Gson();
-        String transactionsJson = gson.toJson(allTransactions);
-        editor.putString(KEY_ALL_TRANSACTIONS, transactionsJson);
+    private void saveIfChanged() {
+        // A running restore is writing the ledgers; its result is saved when it is applied
+        if (RestoreTask.isRunning()) return;
+        if (ledger != null && ledger.hasUnsavedChanges()) {
+            saveData();
+        }
+    }
 
-        String monthlyTransactionsJson = gson.toJson(monthlyTransactions);
-        editor.putString(KEY_MONTHLY_TRANSACTIONS, monthlyTransactionsJson);
+    private void saveData() {
+        if (ledger == null) return;
 
-        editor.apply();
+        long traceStart = PerfTracer.begin(PerfTracer.SAVE_DATA);
+        try {
+            // Chunks are stored as Base64, which is ASCII, so the character count is the byte count
+            PerfTracer.count(PerfTracer.BYTES_WRITTEN, ledger.save());
+            if (syncJournal != null) {
+                PerfTracer.count(PerfTracer.BYTES_WRITTEN, ledger.saveSyncJournal(syncJournal));
+            }
+        } finally {
+            PerfTracer.end(PerfTracer.SAVE_DATA, traceStart);
+        }
     }
 
     private void loadSavedData() {
-        SharedPreferences prefs = getSharedPreferences(PREFS_NAME, MODE_PRIVATE);
-        Gson gson = new Gson();
-
-        String transactionsJson = prefs.getString(KEY_ALL_TRANSACTIONS, null);
-        if (transactionsJson != null) {
-            Type transactionListType = new TypeToken<ArrayList<Transaction>>() {}.getType();
-            List<Transaction> savedTransactions = gson.fromJson(transactionsJson, transactionListType);
-            if (savedTransactions != null) {
-                allTransactions = savedTransactions;
-                rebuildMonthlyTransactions();
+        long traceStart = PerfTracer.begin(PerfTracer.LOAD_SAVED_DATA);
+        try {
+            yearPnlIndex = null;
+            equityCurve = null;
+            streakTree = null;
+            rollupCube = null;
+            distributionIndex = null;
+            syncJournal = null;
+            tradeBook = null;
+            String selectedId = accountRegistry.getSelectedId();
+            if (AccountRegistry.COMBINED_ID.equals(selectedId)) {
+                ledger = null;
+                loadCombinedAggregates();
+                return;
             }
-        }
 
-        String monthlyTransactionsJson = prefs.getString(KEY_MONTHLY_TRANSACTIONS, null);
-        if (monthlyTransactionsJson != null) {
-            Type monthlyTransactionsType = new TypeToken<HashMap<String, List<Transaction>>>() {}.getType();
-            Map<String, List<Transaction>> savedMonthlyTransactions = gson.fromJson(monthlyTransactionsJson, monthlyTransactionsType);
-            if (savedMonthlyTransactions != null) {
-                monthlyTransactions = savedMonthlyTransactions;
-                rebuildAllTransactions();
+            ledger = new Ledger(this, selectedId);
+            ledger.load();
+            syncJournal = ledger.loadSyncJournal();
+            PerfTracer.count(PerfTracer.ENTRIES_SCANNED, ledger.size());
+
+            // Sample data would overwrite months that only failed to decrypt
+            if (ledger.getUnreadableChunks() > 0) {
+                Toast.makeText(this, ledger.getUnreadableChunks() + " stored months could not be decrypted",
+                        Toast.LENGTH_LONG).show();
+            } else if (ledger.isEmpty() && Ledger.DEFAULT_ACCOUNT_ID.equals(selectedId)) {
+                initializeSampleData();
             }
-        }
-
-        if (allTransactions.isEmpty()) {
-            initializeSampleData();
+            addLedgerListeners();
+        } finally {
+            PerfTracer.end(PerfTracer.LOAD_SAVED_DATA, traceStart);
         }
     }
 
-    private void rebuildMonthlyTransactions() {
-        monthlyTransactions.clear();
-        for (Transaction transaction : allTransactions) {
-            Calendar cal = Calendar.getInstance();
-            cal.setTime(transaction.getDate());
-            String monthKey = getMonthKey(cal.get(Calendar.MONTH), cal.get(Calendar.YEAR));
+    // Delivered in registration order: indexes and the visible segment before the views
+    private void addLedgerListeners() {
+        ledger.addOnChangeListener(this::applyToIndexes);
+        ledger.addOnChangeListener(this::refreshVisibleSegment);
+        ledger.addOnChangeListener(this::repaintChangedCells);
+        ledger.addOnChangeListener(this::updateChangedRows);
+        ledger.addOnChangeListener(this::refreshChangedStats);
+        ledger.addOnChangeListener(this::refreshChangedTopDays);
+        ledger.addOnChangeListener(this::recordForSync);
+        ledger.addOnChangeListener(this::persistChanges);
+    }
 
-            List<Transaction> monthTransactions = monthlyTransactions.get(monthKey);
-            if (monthTransactions == null) {
-                monthTransactions = new ArrayList<>();
-                monthlyTransactions.put(monthKey, monthTransactions);
+    // Merges each account's per-month aggregate chunks; entries are decrypted only to migrate a
+    // partition still in an older format
+    private void loadCombinedAggregates() {
+        Map<Integer, MonthAggregate> combinedAggregates = new HashMap<>();
+        for (Account account : accountRegistry.getAccounts()) {
+            Collection<MonthAggregate> aggregates;
+            Map<String, MonthAggregate> stored = Ledger.loadAggregates(this, account.getId());
+            if (stored != null) {
+                aggregates = stored.values();
+            } else {
+                // Partition still in the older plaintext format: load it and save it once as chunks
+                Ledger legacyLedger = new Ledger(this, account.getId());
+                legacyLedger.load();
+                legacyLedger.save();
+                aggregates = new ArrayList<>();
+                for (MonthSegment segment : legacyLedger.snapshot().getSegments().values()) {
+                    aggregates.add(segment.toAggregate());
+                }
             }
-            monthTransactions.add(transaction);
-        }
-    }
 
-    private void rebuildAllTransactions() {
-        allTransactions.clear();
-        for (List<Transaction> monthTransactions : monthlyTransactions.values()) {
-            allTransactions.addAll(monthTransactions);
+            for (MonthAggregate source : aggregates) {
+                int key = Ledger.monthKey(source.month, source.year);
+                MonthAggregate merged = combinedAggregates.get(key);
+                if (merged == null) {
+                    merged = new MonthAggregate(source.month, source.year);
+                    combinedAggregates.put(key, merged);
+                }
+                merged.merge(source);
+            }
+            PerfTracer.count(PerfTracer.ENTRIES_SCANNED, aggregates.size());
         }
+        combinedSnapshot = LedgerSnapshot.fromAggregates(combinedAggregates.values());
     }
 
     private void initializeSampleData() {
         Calendar cal = Calendar.getInstance();
+        Ledger.Batch batch = ledger.beginBatch();
 
         // Add sample transactions for current month
         cal.set(Calendar.DAY_OF_MONTH, 23);
-        addSampleTransaction(cal.getTime(), -5136.99, false);
+        addSampleTransaction(batch, cal.getTime(), -5136.99, false);
 
         cal.set(Calendar.DAY_OF_MONTH, 22);
-        addSampleTransaction(cal.getTime(), -261.00, false);
+        addSampleTransaction(batch, cal.getTime(), -261.00, false);
 
         cal.set(Calendar.DAY_OF_MONTH, 19);
-        addSampleTransaction(cal.getTime(), 571.00, true);
+        addSampleTransaction(batch, cal.getTime(), 571.00, true);
 
         cal.set(Calendar.DAY_OF_MONTH, 18);
-        addSampleTransaction(cal.getTime(), 1072.00, true);
+        addSampleTransaction(batch, cal.getTime(), 1072.00, true);
 
         cal.set(Calendar.DAY_OF_MONTH, 17);
-        addSampleTransaction(cal.getTime(), 1562.00, true);
+        addSampleTransaction(batch, cal.getTime(), 1562.00, true);
 
         cal.set(Calendar.DAY_OF_MONTH, 15);
-        addSampleTransaction(cal.getTime(), 450.00, true);
+        addSampleTransaction(batch, cal.getTime(), 450.00, true);
 
         cal.set(Calendar.DAY_OF_MONTH, 14);
-        addSampleTransaction(cal.getTime(), -120.50, false);
+        addSampleTransaction(batch, cal.getTime(), -120.50, false);
 
         cal.set(Calendar.DAY_OF_MONTH, 10);
-        addSampleTransaction(cal.getTime(), 890.75, true);
+        addSampleTransaction(batch, cal.getTime(), 890.75, true);
 
         // Add some sample data for previous months
         cal.add(Calendar.MONTH, -1);
         cal.set(Calendar.DAY_OF_MONTH, 15);
-        addSampleTransaction(cal.getTime(), 1200.50, true);
+        addSampleTransaction(batch, cal.getTime(), 1200.50, true);
 
+        batch.commit();
         saveData();
     }
 
-    private void addSampleTransaction(Date date, double amount, boolean isProfit) {
-        Transaction transaction = new Transaction(date, amount, isProfit);
-        allTransactions.add(transaction);
-
-        Calendar cal = Calendar.getInstance();
-        cal.setTime(date);
-        String monthKey = getMonthKey(cal.get(Calendar.MONTH), cal.get(Calendar.YEAR));
-
-        List<Transaction> monthTransactions = monthlyTransactions.get(monthKey);
-        if (monthTransactions == null) {
-            monthTransactions = new ArrayList<>();
-            monthlyTransactions.put(monthKey, monthTransactions);
-        }
-        monthTransactions.add(transaction);
+    private void addSampleTransaction(Ledger.Batch batch, Date date, double amount, boolean isProfit) {
+        batch.put(new Transaction(date, amount, isProfit));
     }
 
     private void updateUIForCurrentMonth() {
@@ -459,9 +1472,19 @@ public class MainActivity extends AppCompatActivity {
         updateMostProfitableDays();
         updateCalendarDisplay();
         updateTransactionList();
+        refreshPerfHud();
     }
 
     private void updateCalendarDisplay() {
+        long traceStart = PerfTracer.begin(PerfTracer.UPDATE_CALENDAR_DISPLAY);
+        try {
+            buildCalendarCells();
+        } finally {
+            PerfTracer.end(PerfTracer.UPDATE_CALENDAR_DISPLAY, traceStart);
+        }
+    }
+
+    private void buildCalendarCells() {
         // Clear all week layouts
         for (LinearLayout weekLayout : weekLayouts) {
             weekLayout.removeAllViews();
@@ -489,14 +1512,14 @@ public class MainActivity extends AppCompatActivity {
 
         // Add empty cells for days before the first day of month
         for (int i = 0; i < startOffset; i++) {
-            TextView emptyView = createEmptyDateView();
+            TextView emptyView = obtainEmptyDateView(i);
             weekLayouts[weekIndex].addView(emptyView);
         }
 
         // Add date cells for each day of the month
         while (dayCounter <= daysInMonth) {
-            // Create date view for current day
-            TextView dateView = createDateView(dayCounter);
+            // Reuse the cell for this day, creating it on first use
+            TextView dateView = obtainDateView(dayCounter);
             weekLayouts[weekIndex].addView(dateView);
 
             // Move to next day
@@ -521,6 +1544,22 @@ public class MainActivity extends AppCompatActivity {
         updateCalendarColors();
     }
 
+    private TextView obtainEmptyDateView(int index) {
+        while (emptyCells.size() <= index) {
+            emptyCells.add(createEmptyDateView());
+        }
+        return emptyCells.get(index);
+    }
+
+    private TextView obtainDateView(int day) {
+        TextView dateView = dayCells[day];
+        if (dateView == null) {
+            dateView = createDateView(day);
+            dayCells[day] = dateView;
+        }
+        return dateView;
+    }
+
     private TextView createEmptyDateView() {
         TextView emptyView = new TextView(this);
         LinearLayout.LayoutParams params = new LinearLayout.LayoutParams(
@@ -546,7 +1585,7 @@ public class MainActivity extends AppCompatActivity {
         dateView.setLayoutParams(params);
         dateView.setBackgroundResource(R.drawable.date_background);
         dateView.setGravity(android.view.Gravity.CENTER);
-        dateView.setText(String.valueOf(day));
+        dateView.setText(Formatters.number(day));
         dateView.setTextSize(14);
         dateView.setTextColor(Color.BLACK);
 
@@ -554,10 +1593,10 @@ public class MainActivity extends AppCompatActivity {
         dateView.setOnClickListener(new View.OnClickListener() {
             @Override
             public void onClick(View v) {
-                Transaction t = dailyTransactions.get(day);
+                Transaction t = currentSegment.getTransaction(day);
                 if (t != null) {
                     showTransactionDetails(day);
-                } else {
+                } else if (ensureEditableAccount()) {
                     // If no transaction, allow adding one
                     showAddTransactionForDay(day);
                 }
@@ -593,52 +1632,94 @@ public class MainActivity extends AppCompatActivity {
         tempCal.set(Calendar.DAY_OF_MONTH, 1);
         int daysInMonth = tempCal.getActualMaximum(Calendar.DAY_OF_MONTH);
 
+        PerfTracer.count(PerfTracer.ENTRIES_SCANNED, daysInMonth);
         for (int day = 1; day <= daysInMonth; day++) {
-            Transaction t = dailyTransactions.get(day);
+            paintDayCell(day, currentSegment.getTransaction(day));
+        }
+    }
 
-            // Find the TextView for this day
-            TextView dateView = findDateViewForDay(day);
-            if (dateView != null) {
-                if (t != null) {
-                    if (t.isProfit()) {
-                        dateView.setBackgroundColor(Color.parseColor("#E8F5E8"));
-                        dateView.setTextColor(Color.parseColor("#4CAF50"));
-                    } else {
-                        dateView.setBackgroundColor(Color.parseColor("#FFEBEE"));
-                        dateView.setTextColor(Color.parseColor("#F44336"));
-                    }
-                } else {
-                    dateView.setBackgroundColor(Color.WHITE);
-                    dateView.setTextColor(Color.BLACK);
-                }
+    private void paintDayCell(int day, Transaction t) {
+        TextView dateView = dayCells[day];
+        if (dateView == null) return;
+        if (t != null) {
+            if (t.isProfit()) {
+                dateView.setBackgroundColor(Formatters.COLOR_PROFIT_BACKGROUND);
+                dateView.setTextColor(Formatters.COLOR_PROFIT);
+            } else {
+                dateView.setBackgroundColor(Formatters.COLOR_LOSS_BACKGROUND);
+                dateView.setTextColor(Formatters.COLOR_LOSS);
             }
+        } else {
+            dateView.setBackgroundColor(Color.WHITE);
+            dateView.setTextColor(Color.BLACK);
         }
     }
 
-    private TextView findDateViewForDay(int day) {
-        // Search through all week layouts to find the TextView for this day
-        for (LinearLayout weekLayout : weekLayouts) {
-            if (weekLayout.getVisibility() == View.VISIBLE) {
-                for (int i = 0; i < weekLayout.getChildCount(); i++) {
-                    View child = weekLayout.getChildAt(i);
-                    if (child instanceof TextView) {
-                        TextView textView = (TextView) child;
-                        String text = textView.getText().toString();
-                        if (!text.isEmpty()) {
-                            try {
-                                int viewDay = Integer.parseInt(text);
-                                if (viewDay == day) {
-                                    return textView;
-                                }
-                            } catch (NumberFormatException e) {
-                                // Not a number, continue
-                            }
-                        }
-                    }
-                }
-            }
+    private boolean isDebuggable() {
+        return (getApplicationInfo().flags & ApplicationInfo.FLAG_DEBUGGABLE) != 0;
+    }
+
+    // Debug builds only: long-press the header to toggle the performance HUD
+    private void setupPerfHud() {
+        if (!isDebuggable()) return;
+
+        TextView tvHeader = findViewById(R.id.tv_header);
+        tvHeader.setOnLongClickListener(v -> {
+            togglePerfHud();
+            return true;
+        });
+    }
+
+    private void togglePerfHud() {
+        if (tvPerfHud == null) {
+            tvPerfHud = new TextView(this);
+            tvPerfHud.setTypeface(Typeface.MONOSPACE);
+            tvPerfHud.setTextSize(10);
+            tvPerfHud.setTextColor(Color.WHITE);
+            tvPerfHud.setBackgroundColor(Formatters.COLOR_HUD_BACKGROUND);
+            tvPerfHud.setPadding(dpToPx(8), dpToPx(8), dpToPx(8), dpToPx(8));
+            tvPerfHud.setElevation(dpToPx(12));
+
+            RelativeLayout.LayoutParams params = new RelativeLayout.LayoutParams(
+                    RelativeLayout.LayoutParams.MATCH_PARENT,
+                    RelativeLayout.LayoutParams.WRAP_CONTENT
+            );
+            params.addRule(RelativeLayout.ALIGN_PARENT_TOP);
+            tvPerfHud.setLayoutParams(params);
+
+            // Tap the HUD to export the report, long-press to reset the numbers
+            tvPerfHud.setOnClickListener(v -> exportPerfReport());
+            tvPerfHud.setOnLongClickListener(v -> {
+                PerfTracer.reset();
+                refreshPerfHud();
+                return true;
+            });
+
+            RelativeLayout rootLayout = findViewById(R.id.root_layout);
+            rootLayout.addView(tvPerfHud);
+        } else {
+            tvPerfHud.setVisibility(tvPerfHud.getVisibility() == View.VISIBLE ? View.GONE : View.VISIBLE);
         }
-        return null;
+        refreshPerfHud();
+    }
+
+    private void refreshPerfHud() {
+        if (tvPerfHud != null && tvPerfHud.getVisibility() == View.VISIBLE) {
+            tvPerfHud.setText(PerfTracer.report());
+        }
+    }
+
+    private void exportPerfReport() {
+        String report = "Device: " + Build.MANUFACTURER + " " + Build.MODEL
+                + " (API " + Build.VERSION.SDK_INT + ")\n"
+                + "Transactions: " + getVisibleSnapshot().size() + "\n\n"
+                + PerfTracer.report();
+
+        Intent sendIntent = new Intent(Intent.ACTION_SEND);
+        sendIntent.setType("text/plain");
+        sendIntent.putExtra(Intent.EXTRA_SUBJECT, "Trader's Diary performance report");
+        sendIntent.putExtra(Intent.EXTRA_TEXT, report);
+        startActivity(Intent.createChooser(sendIntent, "Export performance report"));
     }
 
     private int dpToPx(int dp) {
@@ -661,7 +1742,7 @@ public class MainActivity extends AppCompatActivity {
         // Set the date to the selected day
         Calendar selectedCal = (Calendar) currentCalendar.clone();
         selectedCal.set(Calendar.DAY_OF_MONTH, day);
-        SimpleDateFormat sdf = new SimpleDateFormat("MMM dd, yyyy", Locale.getDefault());
+        SimpleDateFormat sdf = formatters.dateFormat(Formatters.PATTERN_SHORT_DATE);
         tvDate.setText(sdf.format(selectedCal.getTime()));
 
         // Hide date selector since we're setting it automatically
@@ -691,7 +1772,7 @@ public class MainActivity extends AppCompatActivity {
             cal.set(Calendar.DAY_OF_MONTH, day);
             Date transactionDate = cal.getTime();
 
-            addNewTransaction(transactionDate, amount, isProfit, day, currentMonth, currentYear, false);
+            addNewTransaction(transactionDate, amount, isProfit);
 
         } catch (NumberFormatException e) {
             Toast.makeText(MainActivity.this, "Invalid amount", Toast.LENGTH_SHORT).show();
@@ -711,72 +1792,91 @@ public class MainActivity extends AppCompatActivity {
     }
 
     private void calculateAndDisplayStats() {
-        double totalProfit = 0;
-        double totalLoss = 0;
-
-        for (Transaction t : currentMonthTransactions) {
-            if (t.isProfit()) {
-                totalProfit += t.getAmount();
-            } else {
-                totalLoss += Math.abs(t.getAmount());
-            }
+        long traceStart = PerfTracer.begin(PerfTracer.CALCULATE_AND_DISPLAY_STATS);
+        try {
+            computeAndShowStats();
+        } finally {
+            PerfTracer.end(PerfTracer.CALCULATE_AND_DISPLAY_STATS, traceStart);
         }
+    }
 
-        totalPnl = totalProfit - totalLoss;
-        tvTotalPnl.setText(String.format("₹ %.2f", totalPnl));
-        tvTotalPnl.setTextColor(totalPnl >= 0 ? Color.parseColor("#4CAF50") : Color.parseColor("#F44336"));
+    private void computeAndShowStats() {
+        totalPnl = currentSegment.getTotalNet();
+        monthText.bindStats(currentSegment);
+        tvTotalPnl.setText(monthText.totalChars, 0, monthText.totalLength);
+        tvTotalPnl.setTextColor(Formatters.amountColor(totalPnl >= 0));
 
         Calendar tempCal = (Calendar) currentCalendar.clone();
         tempCal.set(Calendar.DAY_OF_MONTH, 1);
         int totalDaysInMonth = tempCal.getActualMaximum(Calendar.DAY_OF_MONTH);
 
-        int tradedDays = dailyTransactions.size();
-        int profitableDays = 0;
-        int winningStreak = 0;
-        int currentStreak = 0;
-
-        for (int day = 1; day <= totalDaysInMonth; day++) {
-            Transaction t = dailyTransactions.get(day);
-            if (t != null) {
-                if (t.isProfit()) {
-                    profitableDays++;
-                    currentStreak++;
-                    winningStreak = Math.max(winningStreak, currentStreak);
-                } else {
-                    currentStreak = 0;
-                }
-            }
-        }
+        int tradedDays = currentSegment.getTradedDays();
+        int profitableDays = currentSegment.getProfitableDays();
 
-        tvInTradingDays.setText(String.valueOf(totalDaysInMonth));
-        tvInAddedOn.setText(String.valueOf(tradedDays));
-        tvInProductDays.setText(String.valueOf(profitableDays));
-        tvWinningsStruck.setText(String.valueOf(winningStreak));
+        tvInTradingDays.setText(Formatters.number(totalDaysInMonth));
+        tvInAddedOn.setText(Formatters.number(tradedDays));
+        tvInProductDays.setText(Formatters.number(profitableDays));
+        showStreaks();
+        showDistribution();
 
-        tvProfitableDaysCount.setText(String.format("%d/%d Traded Days", profitableDays, tradedDays));
+        tvProfitableDaysCount.setText(monthText.tradedDaysChars, 0, monthText.tradedDaysLength);
+        PerfTracer.count(PerfTracer.ENTRIES_SCANNED, totalDaysInMonth);
     }
 
-    private void updateMostProfitableDays() {
-        layoutMostProfitableDays.removeAllViews();
+    private void showDistribution() {
+        if (distributionIndex == null) {
+            distributionIndex = DistributionIndex.build(getVisibleSnapshot());
+        }
+        int scope = rgDistributionScope.getCheckedRadioButtonId();
+        if (scope == R.id.rb_scope_year) {
+            distributionIndex.year(currentYear, shownDistribution);
+        } else if (scope == R.id.rb_scope_all) {
+            distributionIndex.allTime(shownDistribution);
+        } else {
+            distributionIndex.month(visibleMonthKey(), shownDistribution);
+        }
+        tvDistributionSummary.setText(distributionChars, 0,
+                Formatters.formatDistribution(shownDistribution, distributionChars));
+        distributionView.setDistribution(shownDistribution);
+    }
 
-        List<Transaction> profitableTransactions = new ArrayList<>();
-        for (Transaction t : currentMonthTransactions) {
-            if (t.isProfit()) {
-                profitableTransactions.add(t);
-            }
+    private void showStreaks() {
+        if (streakTree == null) {
+            streakTree = StreakTree.build(getVisibleSnapshot());
         }
+        int monthStart = EpochDays.of(currentYear, currentMonth, 1);
+        int monthEnd = EpochDays.of(visibleMonthKey() + 1, 1) - 1;
+        streakTree.query(monthStart, monthEnd, monthStreaks);
+        streakTree.query(EpochDays.of(currentYear, Calendar.JANUARY, 1),
+                EpochDays.of(currentYear, Calendar.DECEMBER, 31), yearStreaks);
+        // The running streak at month end carries over from earlier months
+        streakTree.query(Integer.MIN_VALUE, monthEnd, runningStreaks);
+
+        tvWinningsStruck.setText(Formatters.number(monthStreaks.getLongestWins()));
+        tvStreaks.setText(streakChars, 0, Formatters.formatStreaks(
+                runningStreaks, monthStreaks, yearStreaks, streakTree.getAllTime(), streakChars));
+    }
 
-        Collections.sort(profitableTransactions, (t1, t2) ->
-                Double.compare(Math.abs(t2.getAmount()), Math.abs(t1.getAmount())));
+    private void updateMostProfitableDays() {
+        layoutMostProfitableDays.removeAllViews();
+        int count = monthText.bindTopDays(currentSegment);
+        for (int index = 0; index < count; index++) {
+            addMostProfitableDayView(index);
+        }
+    }
 
-        int count = Math.min(2, profitableTransactions.size());
-        for (int i = 0; i < count; i++) {
-            Transaction t = profitableTransactions.get(i);
-            addMostProfitableDayView(t, i == 0);
+    private void addMostProfitableDayView(int index) {
+        ProfitableDayRow row = profitableDayRows[index];
+        if (row == null) {
+            row = createProfitableDayRow(index == 0);
+            profitableDayRows[index] = row;
         }
+        row.textView.setText(monthText.topDayChars[index], 0, monthText.topDayLengths[index]);
+        layoutMostProfitableDays.addView(row.itemLayout);
     }
 
-    private void addMostProfitableDayView(Transaction transaction, boolean isFirst) {
+    private ProfitableDayRow createProfitableDayRow(boolean isFirst) {
+        ProfitableDayRow row = new ProfitableDayRow();
         LinearLayout itemLayout = new LinearLayout(this);
         itemLayout.setOrientation(LinearLayout.HORIZONTAL);
         itemLayout.setBackgroundResource(R.drawable.transaction_item_background);
@@ -797,32 +1897,68 @@ public class MainActivity extends AppCompatActivity {
         itemLayout.addView(emojiView);
 
         TextView textView = new TextView(this);
-        SimpleDateFormat sdf = new SimpleDateFormat("dd MMM yyyy", Locale.getDefault());
-        String dateStr = sdf.format(transaction.getDate());
-        textView.setText(String.format("%s: ₹ %.2f", dateStr, transaction.getAmount()));
         textView.setTextSize(14);
         textView.setTextColor(Color.BLACK);
         textView.setPadding(8, 0, 0, 0);
         itemLayout.addView(textView);
 
-        layoutMostProfitableDays.addView(itemLayout);
+        row.itemLayout = itemLayout;
+        row.textView = textView;
+        return row;
     }
 
     private void updateTransactionList() {
-        layoutTransactionList.removeAllViews();
+        long traceStart = PerfTracer.begin(PerfTracer.UPDATE_TRANSACTION_LIST);
+        try {
+            layoutTransactionList.removeAllViews();
+
+            // Newest day first, walking the segment's days so nothing is sorted here
+            int remaining = currentSegment.getTradedDays();
+            for (int day = 31; day >= 1; day--) {
+                Transaction transaction = currentSegment.getTransaction(day);
+                if (transaction == null) continue;
+                TransactionRow row = bindTransactionRow(day, transaction);
+                setBottomMargin(row.itemLayout, --remaining == 0 ? 0 : 8);
+                layoutTransactionList.addView(row.itemLayout);
+            }
+            PerfTracer.count(PerfTracer.ENTRIES_SCANNED, currentSegment.getTradedDays());
+        } finally {
+            PerfTracer.end(PerfTracer.UPDATE_TRANSACTION_LIST, traceStart);
+        }
+    }
+
+    // Index of the day's row in the newest-first list
+    private int rowPosition(int day) {
+        int position = 0;
+        for (int later = day + 1; later <= 31; later++) {
+            if (currentSegment.getTransaction(later) != null) position++;
+        }
+        return position;
+    }
 
-        // Sort transactions by date (newest first)
-        Collections.sort(currentMonthTransactions, (t1, t2) ->
-                t2.getDate().compareTo(t1.getDate()));
+    private static void setBottomMargin(View itemLayout, int margin) {
+        LinearLayout.LayoutParams params = (LinearLayout.LayoutParams) itemLayout.getLayoutParams();
+        if (params.bottomMargin == margin) return;
+        params.bottomMargin = margin;
+        itemLayout.setLayoutParams(params);
+    }
 
-        // Display all transactions for current month
-        for (int i = 0; i < currentMonthTransactions.size(); i++) {
-            Transaction t = currentMonthTransactions.get(i);
-            addTransactionView(t, i == currentMonthTransactions.size() - 1);
+    private TransactionRow bindTransactionRow(int day, Transaction transaction) {
+        TransactionRow row = transactionRows[day];
+        if (row == null) {
+            row = createTransactionRow();
+            transactionRows[day] = row;
         }
+
+        monthText.bindRow(day, transaction);
+        row.dateView.setText(monthText.dateChars[day], 0, monthText.dateLengths[day]);
+        row.amountView.setText(monthText.amountChars[day], 0, monthText.amountLengths[day]);
+        row.amountView.setTextColor(Formatters.amountColor(transaction.isProfit()));
+        return row;
     }
 
-    private void addTransactionView(Transaction transaction, boolean isLast) {
+    private TransactionRow createTransactionRow() {
+        TransactionRow row = new TransactionRow();
         LinearLayout itemLayout = new LinearLayout(this);
         itemLayout.setOrientation(LinearLayout.HORIZONTAL);
         itemLayout.setBackgroundResource(R.drawable.transaction_item_background);
@@ -832,12 +1968,9 @@ public class MainActivity extends AppCompatActivity {
                 LinearLayout.LayoutParams.MATCH_PARENT,
                 LinearLayout.LayoutParams.WRAP_CONTENT
         );
-        params.bottomMargin = isLast ? 0 : 8;
         itemLayout.setLayoutParams(params);
 
         TextView dateView = new TextView(this);
-        SimpleDateFormat sdf = new SimpleDateFormat("MMM dd, yyyy", Locale.getDefault());
-        dateView.setText(String.format("%s:", sdf.format(transaction.getDate())));
         dateView.setTextSize(14);
         dateView.setTextColor(Color.BLACK);
         dateView.setLayoutParams(new LinearLayout.LayoutParams(
@@ -845,14 +1978,14 @@ public class MainActivity extends AppCompatActivity {
         itemLayout.addView(dateView);
 
         TextView amountView = new TextView(this);
-        amountView.setText(String.format("₹ %.2f", transaction.getAmount()));
         amountView.setTextSize(14);
         amountView.setTypeface(amountView.getTypeface(), android.graphics.Typeface.BOLD);
-        amountView.setTextColor(transaction.isProfit() ?
-                Color.parseColor("#4CAF50") : Color.parseColor("#F44336"));
         itemLayout.addView(amountView);
 
-        layoutTransactionList.addView(itemLayout);
+        row.itemLayout = itemLayout;
+        row.dateView = dateView;
+        row.amountView = amountView;
+        return row;
     }
 
     private void showAddTransactionDialog() {
@@ -871,7 +2004,7 @@ public class MainActivity extends AppCompatActivity {
         Button btnSelectDate = dialogView.findViewById(R.id.btn_select_date);
 
         Date selectedDate = new Date();
-        SimpleDateFormat sdf = new SimpleDateFormat("MMM dd, yyyy", Locale.getDefault());
+        SimpleDateFormat sdf = formatters.dateFormat(Formatters.PATTERN_SHORT_DATE);
         tvDate.setText(sdf.format(selectedDate));
 
         btnSelectDate.setOnClickListener(v -> showDatePickerDialog(tvDate));
@@ -898,7 +2031,7 @@ public class MainActivity extends AppCompatActivity {
 
             Date transactionDate;
             try {
-                SimpleDateFormat sdf = new SimpleDateFormat("MMM dd, yyyy", Locale.getDefault());
+                SimpleDateFormat sdf = formatters.dateFormat(Formatters.PATTERN_SHORT_DATE);
                 transactionDate = sdf.parse(tvDate.getText().toString());
             } catch (Exception e) {
                 transactionDate = new Date();
@@ -913,49 +2046,40 @@ public class MainActivity extends AppCompatActivity {
             final Date finalTransactionDate = transactionDate;
             final double finalAmount = amount;
             final boolean finalIsProfit = isProfit;
-            final int finalDay = day;
             final int finalMonth = month;
             final int finalYear = year;
 
             // Check if transaction is for current month
             if (month == currentMonth && year == currentYear) {
                 // Check if transaction already exists for this day
-                if (dailyTransactions.containsKey(day)) {
+                if (currentSegment.getTransaction(day) != null) {
                     AlertDialog.Builder confirmBuilder = new AlertDialog.Builder(this);
                     confirmBuilder.setTitle("Transaction Exists");
                     confirmBuilder.setMessage("A transaction already exists for this day. Do you want to replace it?");
 
                     confirmBuilder.setPositiveButton("Replace", (dialog1, which1) -> {
-                        addNewTransaction(finalTransactionDate, finalAmount, finalIsProfit, finalDay, finalMonth, finalYear, true);
+                        addNewTransaction(finalTransactionDate, finalAmount, finalIsProfit);
                     });
 
                     confirmBuilder.setNegativeButton("Cancel", null);
                     confirmBuilder.show();
                 } else {
-                    addNewTransaction(finalTransactionDate, finalAmount, finalIsProfit, finalDay, finalMonth, finalYear, false);
+                    addNewTransaction(finalTransactionDate, finalAmount, finalIsProfit);
                 }
             } else {
                 AlertDialog.Builder monthBuilder = new AlertDialog.Builder(this);
                 monthBuilder.setTitle("Different Month");
                 monthBuilder.setMessage("This transaction is for " +
-                        new SimpleDateFormat("MMMM yyyy", Locale.getDefault()).format(transactionDate) +
+                        formatters.dateFormat(Formatters.PATTERN_MONTH_YEAR).format(transactionDate) +
                         ". Do you want to add it and switch to that month?");
 
                 monthBuilder.setPositiveButton("Add and Switch", (dialog1, which1) -> {
-                    addNewTransaction(finalTransactionDate, finalAmount, finalIsProfit, finalDay, finalMonth, finalYear, false);
-
-                    currentCalendar.set(Calendar.MONTH, finalMonth);
-                    currentCalendar.set(Calendar.YEAR, finalYear);
-                    currentMonth = finalMonth;
-                    currentYear = finalYear;
-
-                    updateMonthYearDisplay();
-                    loadCurrentMonthData();
-                    updateUIForCurrentMonth();
+                    addNewTransaction(finalTransactionDate, finalAmount, finalIsProfit);
+                    showMonth(finalMonth, finalYear);
                 });
 
                 monthBuilder.setNegativeButton("Add Only", (dialog1, which1) -> {
-                    addNewTransaction(finalTransactionDate, finalAmount, finalIsProfit, finalDay, finalMonth, finalYear, false);
+                    addNewTransaction(finalTransactionDate, finalAmount, finalIsProfit);
                 });
 
                 monthBuilder.setNeutralButton("Cancel", null);
@@ -979,7 +2103,7 @@ public class MainActivity extends AppCompatActivity {
                     Calendar selectedCal = Calendar.getInstance();
                     selectedCal.set(selectedYear, selectedMonth, selectedDay);
 
-                    SimpleDateFormat sdf = new SimpleDateFormat("MMM dd, yyyy", Locale.getDefault());
+                    SimpleDateFormat sdf = formatters.dateFormat(Formatters.PATTERN_SHORT_DATE);
                     tvDate.setText(sdf.format(selectedCal.getTime()));
                 },
                 year, month, day
@@ -988,60 +2112,169 @@ public class MainActivity extends AppCompatActivity {
         datePickerDialog.show();
     }
 
-    private void addNewTransaction(Date date, double amount, boolean isProfit, int day, int month, int year, boolean replaceExisting) {
+    private void addNewTransaction(Date date, double amount, boolean isProfit) {
         Transaction newTransaction = new Transaction(date,
                 isProfit ? amount : -amount, isProfit);
 
-        String monthKey = getMonthKey(month, year);
-        List<Transaction> monthTransactions = monthlyTransactions.get(monthKey);
+        // Replaces any existing entry for the same day; the change listeners refresh and save
+        if (!commitEdits(ledger.beginBatch().put(newTransaction))) return;
 
-        if (monthTransactions == null) {
-            monthTransactions = new ArrayList<>();
-            monthlyTransactions.put(monthKey, monthTransactions);
+        Toast.makeText(this, "Transaction added", Toast.LENGTH_SHORT).show();
+    }
+
+    // Publishes the edits unless they touch a month whose entries could not be decrypted;
+    // such a month is read-only, so its stored chunk is never written over
+    private boolean commitEdits(Ledger.Batch batch) {
+        try {
+            batch.commit();
+            return true;
+        } catch (MonthSegment.UnreadableMonthException e) {
+            Toast.makeText(this, e.getMessage() + "; the month is read-only", Toast.LENGTH_LONG).show();
+            return false;
         }
+    }
 
-        // Remove existing transaction if replacing
-        if (replaceExisting) {
-            Transaction existing = dailyTransactions.get(day);
-            if (existing != null) {
-                // Remove from all data structures
-                allTransactions.remove(existing);
-                monthTransactions.remove(existing);
-                dailyTransactions.remove(day);
+    private int visibleMonthKey() {
+        return Ledger.monthKey(currentMonth, currentYear);
+    }
+
+    // Ledger change listeners, one per section; each refreshes only what the changes touch
+
+    private void applyToIndexes(LedgerSnapshot snapshot, List<LedgerChange> changes) {
+        yearPnlIndex = null;
+        equityCurve = null;
+        for (LedgerChange change : changes) {
+            int monthKey = change.getMonthKey();
+            int day = change.getDay();
+            Transaction after = change.getAfter();
+            if (streakTree != null && change.changesOutcome()) {
+                if (after != null) {
+                    streakTree.set(EpochDays.of(monthKey, day), after.isProfit());
+                } else {
+                    streakTree.remove(EpochDays.of(monthKey, day));
+                }
             }
-        } else {
-            // Check if transaction for same day exists (for duplicate prevention)
-            Transaction existing = null;
-            for (Transaction t : monthTransactions) {
-                Calendar cal = Calendar.getInstance();
-                cal.setTime(t.getDate());
-                if (cal.get(Calendar.DAY_OF_MONTH) == day) {
-                    existing = t;
-                    break;
+            if (distributionIndex != null && change.changesAggregate()) {
+                distributionIndex.apply(change);
+            }
+            if (rollupCube != null) {
+                if (after != null) {
+                    rollupCube.put(Ledger.yearOf(monthKey), Ledger.monthOf(monthKey), day, after.getNetAmount());
+                } else {
+                    rollupCube.remove(Ledger.yearOf(monthKey), Ledger.monthOf(monthKey), day);
                 }
             }
+        }
+    }
 
-            if (existing != null) {
-                // Remove existing duplicate
-                allTransactions.remove(existing);
-                monthTransactions.remove(existing);
+    private void refreshVisibleSegment(LedgerSnapshot snapshot, List<LedgerChange> changes) {
+        int monthKey = visibleMonthKey();
+        for (LedgerChange change : changes) {
+            if (change.getMonthKey() == monthKey) {
+                loadCurrentMonthData();
+                return;
             }
         }
+    }
 
-        // Add new transaction
-        allTransactions.add(newTransaction);
-        monthTransactions.add(newTransaction);
+    private void repaintChangedCells(LedgerSnapshot snapshot, List<LedgerChange> changes) {
+        int monthKey = visibleMonthKey();
+        for (LedgerChange change : changes) {
+            if (change.getMonthKey() == monthKey) {
+                paintDayCell(change.getDay(), change.getAfter());
+            }
+        }
+    }
 
-        // Update current month data if applicable
-        if (month == currentMonth && year == currentYear) {
-            dailyTransactions.put(day, newTransaction);
-            currentMonthTransactions = monthTransactions;
+    private void updateChangedRows(LedgerSnapshot snapshot, List<LedgerChange> changes) {
+        int monthKey = visibleMonthKey();
+        int childCount = layoutTransactionList.getChildCount();
+        View previousLast = childCount > 0 ? layoutTransactionList.getChildAt(childCount - 1) : null;
+        boolean changed = false;
+
+        // Newest day first, so every later day already has its final row when a row is inserted
+        for (int i = changes.size() - 1; i >= 0; i--) {
+            LedgerChange change = changes.get(i);
+            if (change.getMonthKey() != monthKey) continue;
+            int day = change.getDay();
+            switch (change.getType()) {
+                case ADDED:
+                    TransactionRow row = bindTransactionRow(day, change.getAfter());
+                    setBottomMargin(row.itemLayout, 8);
+                    layoutTransactionList.addView(row.itemLayout, rowPosition(day));
+                    break;
+                case UPDATED:
+                    bindTransactionRow(day, change.getAfter());
+                    break;
+                case REMOVED:
+                    // A day that never had a row here has nothing to remove
+                    TransactionRow removed = transactionRows[day];
+                    if (removed == null) continue;
+                    layoutTransactionList.removeView(removed.itemLayout);
+                    break;
+            }
+            changed = true;
         }
+        if (!changed) return;
 
-        // Update UI and save data
-        updateUIForCurrentMonth();
-        saveData();
+        // Only the old and the new last row can change margin
+        childCount = layoutTransactionList.getChildCount();
+        View last = childCount > 0 ? layoutTransactionList.getChildAt(childCount - 1) : null;
+        if (previousLast != null && previousLast != last) {
+            setBottomMargin(previousLast, 8);
+        }
+        if (last != null) {
+            setBottomMargin(last, 0);
+        }
+    }
 
-        Toast.makeText(this, "Transaction added", Toast.LENGTH_SHORT).show();
+    private void refreshChangedStats(LedgerSnapshot snapshot, List<LedgerChange> changes) {
+        int monthKey = visibleMonthKey();
+        boolean monthChanged = false;
+        boolean yearChanged = false;
+        boolean anyChanged = false;
+        boolean outcomeChanged = false;
+        for (LedgerChange change : changes) {
+            if (change.changesAggregate()) {
+                anyChanged = true;
+                if (Ledger.yearOf(change.getMonthKey()) == currentYear) yearChanged = true;
+                if (change.getMonthKey() == monthKey) monthChanged = true;
+            }
+            if (change.changesOutcome()) outcomeChanged = true;
+        }
+        if (monthChanged) {
+            calculateAndDisplayStats();
+            return;
+        }
+        // Year and all-time figures move with days outside the visible month
+        if (outcomeChanged) {
+            showStreaks();
+        }
+        int scope = rgDistributionScope.getCheckedRadioButtonId();
+        if (scope == R.id.rb_scope_all ? anyChanged : scope == R.id.rb_scope_year && yearChanged) {
+            showDistribution();
+        }
+    }
+
+    private void refreshChangedTopDays(LedgerSnapshot snapshot, List<LedgerChange> changes) {
+        int monthKey = visibleMonthKey();
+        for (LedgerChange change : changes) {
+            if (change.getMonthKey() == monthKey && change.changesAggregate()) {
+                updateMostProfitableDays();
+                return;
+            }
+        }
+    }
+
+    private void recordForSync(LedgerSnapshot snapshot, List<LedgerChange> changes) {
+        if (syncJournal != null && !applyingSyncedChanges) {
+            syncJournal.record(changes);
+        }
+    }
+
+    // One save per committed batch
+    private void persistChanges(LedgerSnapshot snapshot, List<LedgerChange> changes) {
+        refreshPerfHud();
+        saveData();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,226 @@
+package com.homecarcharge.mytrade;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bootstrap simulation of future P&L: each path resamples historical daily results with
+ * replacement for the given number of trading days. Paths are split across a
+ * {@link ForkJoinPool}; every leaf task owns a {@link SplittableRandom} split off its
+ * parent, so a seed gives the same result on any core count. Per-path state lives in
+ * locals and results go to shared primitive arrays at disjoint indices.
+ *
+ * {@link #run} blocks and must be called off the main thread; {@link #getProgress} and
+ * {@link #cancel} may be called from any thread.
+ */
+public class MonteCarloEngine {
+
+    public static final double[] PERCENTILES = {5, 25, 50, 75, 95};
+
+    private static final int LEAF_PATHS = 256;
+    private static final int MAX_CHECKPOINTS = 12;
+
+    public static class Result {
+        public final int paths;
+        public final int horizonDays;
+        // Trading day (1-based) of each band row
+        public final int[] checkpointDays;
+        // [checkpoint][percentile] cumulative P&L from the start value
+        public final double[][] bands;
+        public final double[] finalPercentiles;
+        public final double probabilityOfLoss;
+        // Period P&L finishing at or below minus the drawdown limit
+        public final double probabilityOfEndingBelowLimit;
+        // A peak-to-trough fall of at least the limit at any point in the horizon
+        public final double probabilityOfDrawdownBreach;
+        public final long elapsedNanos;
+
+        Result(int paths, int horizonDays, int[] checkpointDays, double[][] bands, double[] finalPercentiles,
+               double probabilityOfLoss, double probabilityOfEndingBelowLimit,
+               double probabilityOfDrawdownBreach, long elapsedNanos) {
+            this.paths = paths;
+            this.horizonDays = horizonDays;
+            this.checkpointDays = checkpointDays;
+            this.bands = bands;
+            this.finalPercentiles = finalPercentiles;
+            this.probabilityOfLoss = probabilityOfLoss;
+            this.probabilityOfEndingBelowLimit = probabilityOfEndingBelowLimit;
+            this.probabilityOfDrawdownBreach = probabilityOfDrawdownBreach;
+            this.elapsedNanos = elapsedNanos;
+        }
+    }
+
+    private final double[] samples;
+    private final int paths;
+    private final int horizonDays;
+    private final double startValue;
+    private final double drawdownLimit;
+    private final long seed;
+
+    private final AtomicInteger completedPaths = new AtomicInteger();
+    private volatile boolean cancelled;
+
+    /**
+     * @param samples       historical daily net results to resample; not modified
+     * @param startValue    P&L already realised in the period, added to every path
+     * @param drawdownLimit loss that counts as a breach, as a positive amount
+     */
+    public MonteCarloEngine(double[] samples, int paths, int horizonDays,
+                            double startValue, double drawdownLimit, long seed) {
+        if (samples.length == 0) throw new IllegalArgumentException("No daily results to resample");
+        if (paths <= 0 || horizonDays <= 0) throw new IllegalArgumentException("Nothing to simulate");
+        this.samples = samples;
+        this.paths = paths;
+        this.horizonDays = horizonDays;
+        this.startValue = startValue;
+        this.drawdownLimit = drawdownLimit;
+        this.seed = seed;
+    }
+
+    // Every day's net in the snapshot, oldest month first
+    public static double[] dailyResults(LedgerSnapshot snapshot) {
+        double[] results = new double[snapshot.size()];
+        int i = 0;
+        for (MonthSegment segment : snapshot.getSegments().values()) {
+            for (Transaction t : segment.getTransactions()) {
+                results[i++] = t.getNetAmount();
+            }
+        }
+        return results;
+    }
+
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    // Fraction of paths finished, 0..1
+    public float getProgress() {
+        return (float) completedPaths.get() / paths;
+    }
+
+    /** Runs every path on the given pool; throws CancellationException if cancelled. */
+    public Result run(ForkJoinPool pool) {
+        long start = System.nanoTime();
+
+        int checkpoints = Math.min(horizonDays, MAX_CHECKPOINTS);
+        int[] checkpointDays = new int[checkpoints];
+        for (int c = 0; c < checkpoints; c++) {
+            checkpointDays[c] = (int) Math.round((double) horizonDays * (c + 1) / checkpoints);
+        }
+
+        double[] finalValues = new double[paths];
+        // [checkpoint][path]; floats keep tens of thousands of paths within a few MB
+        float[][] checkpointValues = new float[checkpoints][paths];
+        // Losses, endings below the limit and drawdown breaches
+        AtomicLongArray counts = new AtomicLongArray(3);
+
+        pool.invoke(new PathTask(0, paths, new SplittableRandom(seed),
+                checkpointDays, finalValues, checkpointValues, counts));
+        if (cancelled) throw new CancellationException();
+
+        double[][] bands = new double[checkpoints][];
+        for (int c = 0; c < checkpoints; c++) {
+            float[] values = checkpointValues[c];
+            Arrays.sort(values);
+            bands[c] = new double[PERCENTILES.length];
+            for (int p = 0; p < PERCENTILES.length; p++) {
+                bands[c][p] = values[rank(PERCENTILES[p])];
+            }
+        }
+
+        Arrays.sort(finalValues);
+        double[] finalPercentiles = new double[PERCENTILES.length];
+        for (int p = 0; p < PERCENTILES.length; p++) {
+            finalPercentiles[p] = finalValues[rank(PERCENTILES[p])];
+        }
+
+        return new Result(paths, horizonDays, checkpointDays, bands, finalPercentiles,
+                (double) counts.get(0) / paths, (double) counts.get(1) / paths,
+                (double) counts.get(2) / paths, System.nanoTime() - start);
+    }
+
+    private int rank(double percentile) {
+        return (int) Math.min(paths - 1, Math.round(percentile / 100 * (paths - 1)));
+    }
+
+    private class PathTask extends RecursiveAction {
+        private final int from;
+        private final int to;
+        private final SplittableRandom random;
+        private final int[] checkpointDays;
+        private final double[] finalValues;
+        private final float[][] checkpointValues;
+        private final AtomicLongArray counts;
+
+        PathTask(int from, int to, SplittableRandom random, int[] checkpointDays, double[] finalValues,
+                 float[][] checkpointValues, AtomicLongArray counts) {
+            this.from = from;
+            this.to = to;
+            this.random = random;
+            this.checkpointDays = checkpointDays;
+            this.finalValues = finalValues;
+            this.checkpointValues = checkpointValues;
+            this.counts = counts;
+        }
+
+        @Override
+        protected void compute() {
+            if (cancelled) return;
+            if (to - from > LEAF_PATHS) {
+                int mid = (from + to) >>> 1;
+                // Split before forking so the streams depend only on the path range
+                PathTask left = new PathTask(from, mid, random.split(), checkpointDays,
+                        finalValues, checkpointValues, counts);
+                PathTask right = new PathTask(mid, to, random.split(), checkpointDays,
+                        finalValues, checkpointValues, counts);
+                invokeAll(left, right);
+                return;
+            }
+
+            double[] samples = MonteCarloEngine.this.samples;
+            int sampleCount = samples.length;
+            long localLosses = 0;
+            long localBelowLimit = 0;
+            long localBreaches = 0;
+
+            for (int path = from; path < to; path++) {
+                if (cancelled) return;
+                double value = 0;
+                double peak = 0;
+                double maxDrawdown = 0;
+                int checkpoint = 0;
+                for (int day = 1; day <= horizonDays; day++) {
+                    value += samples[random.nextInt(sampleCount)];
+                    if (value > peak) {
+                        peak = value;
+                    } else if (peak - value > maxDrawdown) {
+                        maxDrawdown = peak - value;
+                    }
+                    if (day == checkpointDays[checkpoint]) {
+                        checkpointValues[checkpoint][path] = (float) (startValue + value);
+                        if (checkpoint < checkpointDays.length - 1) checkpoint++;
+                    }
+                }
+                double total = startValue + value;
+                finalValues[path] = total;
+                if (total < 0) localLosses++;
+                if (total <= -drawdownLimit) localBelowLimit++;
+                if (maxDrawdown >= drawdownLimit) localBreaches++;
+            }
+
+            counts.addAndGet(0, localLosses);
+            counts.addAndGet(1, localBelowLimit);
+            counts.addAndGet(2, localBreaches);
+            completedPaths.addAndGet(to - from);
+        }
+    }
+}
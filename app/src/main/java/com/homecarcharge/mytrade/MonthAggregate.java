@@ -0,0 +1,65 @@
+package com.homecarcharge.mytrade;
+
+/**
+ * Per-day net P&L and totals for one month of one account. Small enough to persist
+ * next to the transactions, so views that only need totals (such as the combined
+ * all-accounts view) can merge these instead of loading every account's entries.
+ */
+public class MonthAggregate {
+
+    public int month;
+    public int year;
+    // Index is the day of month; only days with their bit set in dayMask hold a value
+    public double[] dailyNet = new double[32];
+    public int dayMask;
+    public double totalNet;
+
+    public MonthAggregate(int month, int year) {
+        this.month = month;
+        this.year = year;
+    }
+
+    public boolean hasDay(int day) {
+        return (dayMask & (1 << day)) != 0;
+    }
+
+    public int getTradedDays() {
+        return Integer.bitCount(dayMask);
+    }
+
+    public int getProfitableDays() {
+        int count = 0;
+        for (int day = 1; day <= 31; day++) {
+            if (hasDay(day) && Transaction.isProfitNet(dailyNet[day])) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    public boolean isEmpty() {
+        return dayMask == 0;
+    }
+
+    public void add(int day, double net) {
+        // Assigned on the first add so a zero-amount loss keeps its -0.0
+        dailyNet[day] = hasDay(day) ? dailyNet[day] + net : net;
+        dayMask |= 1 << day;
+        totalNet += net;
+    }
+
+    public void clearDay(int day) {
+        if (!hasDay(day)) return;
+        totalNet -= dailyNet[day];
+        dailyNet[day] = 0;
+        dayMask &= ~(1 << day);
+    }
+
+    public void merge(MonthAggregate other) {
+        for (int day = 1; day <= 31; day++) {
+            if (other.hasDay(day)) {
+                add(day, other.dailyNet[day]);
+            }
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.homecarcharge.mytrade;
+
+import java.util.Arrays;
+
+/**
+ * Sorted per-month summary of a snapshot held in parallel primitive arrays: int month
+ * key, net P&L, traded days and profitable days. Built in O(months) from the segments'
+ * precomputed totals without reading any transaction.
+ */
+public final class MonthIndex {
+
+    private final int[] monthKeys;
+    private final double[] netPnl;
+    private final int[] tradedDays;
+    private final int[] profitableDays;
+
+    private MonthIndex(int size) {
+        monthKeys = new int[size];
+        netPnl = new double[size];
+        tradedDays = new int[size];
+        profitableDays = new int[size];
+    }
+
+    static MonthIndex build(LedgerSnapshot snapshot) {
+        MonthIndex index = new MonthIndex(snapshot.getSegments().size());
+        int i = 0;
+        for (MonthSegment segment : snapshot.getSegments().values()) {
+            index.monthKeys[i] = segment.getMonthKey();
+            index.netPnl[i] = segment.getTotalNet();
+            index.tradedDays[i] = segment.getTradedDays();
+            index.profitableDays[i] = segment.getProfitableDays();
+            i++;
+        }
+        return index;
+    }
+
+    public int size() {
+        return monthKeys.length;
+    }
+
+    // Position of the month (ascending order), or a negative value if it has no entries
+    public int indexOf(int monthKey) {
+        return Arrays.binarySearch(monthKeys, monthKey);
+    }
+
+    public int getMonthKey(int i) {
+        return monthKeys[i];
+    }
+
+    public double getNetPnl(int i) {
+        return netPnl[i];
+    }
+
+    public int getTradedDays(int i) {
+        return tradedDays[i];
+    }
+
+    public int getProfitableDays(int i) {
+        return profitableDays[i];
+    }
+
+    // Whole percent of traded days that closed in profit
+    public int getWinRatePercent(int i) {
+        return tradedDays[i] == 0 ? 0 : Math.round(100f * profitableDays[i] / tradedDays[i]);
+    }
+}
@@ -0,0 +1,102 @@
+package com.homecarcharge.mytrade;
+
+import android.graphics.Color;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.BaseAdapter;
+import android.widget.TextView;
+
+/**
+ * Rows of the month picker, newest month first, rendered straight from a
+ * {@link MonthIndex}. The viewed month is listed even when it has no entries.
+ */
+public class MonthPickerAdapter extends BaseAdapter {
+
+    private static class RowHolder {
+        TextView nameView;
+        TextView pnlView;
+        TextView statsView;
+        final char[] pnlChars = new char[Formatters.CURRENCY_CAPACITY];
+        final char[] statsChars = new char[48];
+    }
+
+    private final LayoutInflater inflater;
+    private final Formatters formatters;
+    private final MonthIndex index;
+    // Month keys in display order
+    private final int[] rowKeys;
+
+    public MonthPickerAdapter(LayoutInflater inflater, Formatters formatters, MonthIndex index, int viewedMonthKey) {
+        this.inflater = inflater;
+        this.formatters = formatters;
+        this.index = index;
+
+        boolean insertViewed = index.indexOf(viewedMonthKey) < 0;
+        rowKeys = new int[index.size() + (insertViewed ? 1 : 0)];
+        int row = 0;
+        for (int i = index.size() - 1; i >= 0; i--) {
+            int key = index.getMonthKey(i);
+            if (insertViewed && viewedMonthKey > key) {
+                rowKeys[row++] = viewedMonthKey;
+                insertViewed = false;
+            }
+            rowKeys[row++] = key;
+        }
+        if (insertViewed) {
+            rowKeys[row] = viewedMonthKey;
+        }
+    }
+
+    public int getMonthKey(int position) {
+        return rowKeys[position];
+    }
+
+    @Override
+    public int getCount() {
+        return rowKeys.length;
+    }
+
+    @Override
+    public Object getItem(int position) {
+        return rowKeys[position];
+    }
+
+    @Override
+    public long getItemId(int position) {
+        return rowKeys[position];
+    }
+
+    @Override
+    public View getView(int position, View convertView, ViewGroup parent) {
+        RowHolder holder;
+        if (convertView == null) {
+            convertView = inflater.inflate(R.layout.item_month_summary, parent, false);
+            holder = new RowHolder();
+            holder.nameView = convertView.findViewById(R.id.tv_month_name);
+            holder.pnlView = convertView.findViewById(R.id.tv_month_pnl);
+            holder.statsView = convertView.findViewById(R.id.tv_month_stats);
+            convertView.setTag(holder);
+        } else {
+            holder = (RowHolder) convertView.getTag();
+        }
+
+        int monthKey = rowKeys[position];
+        holder.nameView.setText(formatters.monthTitle(Ledger.monthOf(monthKey), Ledger.yearOf(monthKey)));
+
+        int i = index.indexOf(monthKey);
+        if (i < 0) {
+            holder.pnlView.setText("—");
+            holder.pnlView.setTextColor(Color.GRAY);
+            holder.statsView.setText("No entries");
+            return convertView;
+        }
+
+        double net = index.getNetPnl(i);
+        holder.pnlView.setText(holder.pnlChars, 0, Formatters.formatCurrency(net, holder.pnlChars));
+        holder.pnlView.setTextColor(Formatters.amountColor(net >= 0));
+        holder.statsView.setText(holder.statsChars, 0, Formatters.formatMonthStats(
+                index.getTradedDays(i), index.getWinRatePercent(i), holder.statsChars));
+        return convertView;
+    }
+}
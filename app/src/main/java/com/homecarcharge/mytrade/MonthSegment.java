@@ -0,0 +1,225 @@
+package com.homecarcharge.mytrade;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Immutable view of one month: at most one transaction per day plus the month's
+ * aggregates. Edits produce a new segment (copy-on-write), so a segment can be shared
+ * by any number of snapshots and read from any thread.
+ *
+ * A segment loaded from storage starts with only its {@link MonthAggregate}, which answers
+ * the totals and each day's net; the month's entries are read through its {@link Loader}
+ * once, the first time an entry is asked for. If they cannot be read the month shows no
+ * entries and refuses edits, so nothing is written over the stored chunk.
+ */
+public final class MonthSegment {
+
+    /** Reads the entries of a month whose segment was loaded with its aggregate only. */
+    interface Loader {
+        // Length 32, indexed by day of month; null if the entries cannot be read
+        Transaction[] load(int monthKey, MonthAggregate aggregate);
+    }
+
+    public static class UnreadableMonthException extends IllegalStateException {
+        UnreadableMonthException(String message) {
+            super(message);
+        }
+    }
+
+    /** Both views of the entries, published together by one volatile store. */
+    private static final class Days {
+        // Index is the day of month; null where the day has no entry
+        final Transaction[] byDay;
+        final List<Transaction> newestFirst;
+        final boolean readable;
+
+        Days(Transaction[] byDay) {
+            this.readable = byDay != null;
+            this.byDay = readable ? byDay : new Transaction[32];
+            List<Transaction> entries = new ArrayList<>();
+            for (int day = 31; day >= 1; day--) {
+                if (this.byDay[day] != null) {
+                    entries.add(this.byDay[day]);
+                }
+            }
+            this.newestFirst = Collections.unmodifiableList(entries);
+        }
+    }
+
+    private final int monthKey;
+    // Null until loaded
+    private volatile Days days;
+    // Set only on segments loaded lazily
+    private final MonthAggregate aggregate;
+    private final Loader loader;
+    private final int tradedDays;
+    private final double totalNet;
+    private final int profitableDays;
+
+    private MonthSegment(int monthKey, Transaction[] byDay) {
+        this.monthKey = monthKey;
+        this.days = new Days(byDay);
+        this.aggregate = null;
+        this.loader = null;
+
+        double net = 0;
+        int profitable = 0;
+        for (Transaction t : days.newestFirst) {
+            net += t.getNetAmount();
+            if (t.isProfit()) {
+                profitable++;
+            }
+        }
+        this.tradedDays = days.newestFirst.size();
+        this.totalNet = net;
+        this.profitableDays = profitable;
+    }
+
+    private MonthSegment(MonthAggregate aggregate, Loader loader) {
+        this.monthKey = Ledger.monthKey(aggregate.month, aggregate.year);
+        this.aggregate = aggregate;
+        this.loader = loader;
+
+        // Summed newest day first, like the loaded entries, so the total is the same double
+        double net = 0;
+        for (int day = 31; day >= 1; day--) {
+            if (aggregate.hasDay(day)) {
+                net += aggregate.dailyNet[day];
+            }
+        }
+        this.tradedDays = aggregate.getTradedDays();
+        this.totalNet = net;
+        this.profitableDays = aggregate.getProfitableDays();
+    }
+
+    public static MonthSegment empty(int monthKey) {
+        return new MonthSegment(monthKey, new Transaction[32]);
+    }
+
+    // Takes ownership of byDay (length 32, indexed by day of month)
+    static MonthSegment of(int monthKey, Transaction[] byDay) {
+        return new MonthSegment(monthKey, byDay);
+    }
+
+    // Answers totals from the aggregate and reads the entries when first asked for; the
+    // aggregate must not be modified afterwards
+    static MonthSegment lazy(MonthAggregate aggregate, Loader loader) {
+        return new MonthSegment(aggregate, loader);
+    }
+
+    // One synthetic entry per day carrying the aggregate's net for that day
+    public static MonthSegment fromAggregate(MonthAggregate aggregate) {
+        Transaction[] byDay = new Transaction[32];
+        Calendar cal = Calendar.getInstance();
+        cal.clear();
+        cal.set(aggregate.year, aggregate.month, 1);
+        for (int day = 1; day <= 31; day++) {
+            if (!aggregate.hasDay(day)) continue;
+            cal.set(Calendar.DAY_OF_MONTH, day);
+            double net = aggregate.dailyNet[day];
+            byDay[day] = new Transaction(cal.getTime(), net, Transaction.isProfitNet(net));
+        }
+        return new MonthSegment(Ledger.monthKey(aggregate.month, aggregate.year), byDay);
+    }
+
+    // Loads at most once, so every reader sees the same Transaction objects; removals
+    // match entries by identity
+    private Days days() {
+        Days loaded = days;
+        if (loaded == null) {
+            synchronized (this) {
+                loaded = days;
+                if (loaded == null) {
+                    loaded = new Days(loader.load(monthKey, aggregate));
+                    days = loaded;
+                }
+            }
+        }
+        return loaded;
+    }
+
+    // Mutable copy of the day slots, for building the next version
+    Transaction[] copyDays() {
+        Days loaded = days();
+        if (!loaded.readable) {
+            throw new UnreadableMonthException("Entries of " + (getMonth() + 1) + "/" + getYear()
+                    + " could not be decrypted");
+        }
+        return loaded.byDay.clone();
+    }
+
+    // False once a lazy load found the entries unreadable; such a month shows no entries,
+    // keeps its totals and cannot be edited
+    public boolean isReadable() {
+        return days().readable;
+    }
+
+    public int getMonthKey() {
+        return monthKey;
+    }
+
+    public int getMonth() {
+        return Ledger.monthOf(monthKey);
+    }
+
+    public int getYear() {
+        return Ledger.yearOf(monthKey);
+    }
+
+    public Transaction getTransaction(int day) {
+        return day >= 1 && day <= 31 ? days().byDay[day] : null;
+    }
+
+    // Unmodifiable, newest day first
+    public List<Transaction> getTransactions() {
+        return days().newestFirst;
+    }
+
+    // Whether the day has an entry; answered from the aggregate while the entries are unread
+    public boolean hasDay(int day) {
+        Days loaded = days;
+        if (loaded == null || !loaded.readable) {
+            return aggregate.hasDay(day);
+        }
+        return loaded.byDay[day] != null;
+    }
+
+    // The day's net P&L, as getNetAmount() of its entry; only meaningful where hasDay(day)
+    public double getDayNet(int day) {
+        Days loaded = days;
+        if (loaded == null || !loaded.readable) {
+            return aggregate.dailyNet[day];
+        }
+        return loaded.byDay[day].getNetAmount();
+    }
+
+    public boolean isEmpty() {
+        return tradedDays == 0;
+    }
+
+    public int getTradedDays() {
+        return tradedDays;
+    }
+
+    public int getProfitableDays() {
+        return profitableDays;
+    }
+
+    public double getTotalNet() {
+        return totalNet;
+    }
+
+    // Persistable, mergeable copy of this month's per-day totals
+    public MonthAggregate toAggregate() {
+        MonthAggregate copy = new MonthAggregate(getMonth(), getYear());
+        for (int day = 1; day <= 31; day++) {
+            if (hasDay(day)) {
+                copy.add(day, getDayNet(day));
+            }
+        }
+        return copy;
+    }
+}
@@ -0,0 +1,81 @@
+package com.homecarcharge.mytrade;
+
+/**
+ * The text of a month render written into reusable char buffers: the month's total and
+ * traded-days line, each entry's date and amount, and the two most profitable days.
+ * MainActivity binds its views straight from these buffers, so after the first render
+ * rebinding a month allocates nothing. Main thread only.
+ */
+public final class MonthText {
+
+    public static final int TOP_DAYS = 2;
+
+    private final Formatters formatters;
+
+    final char[] totalChars = new char[Formatters.CURRENCY_CAPACITY];
+    int totalLength;
+    final char[] tradedDaysChars = new char[32];
+    int tradedDaysLength;
+
+    // Indexed by day of month
+    final char[][] dateChars = new char[32][Formatters.DATE_CAPACITY + 1];
+    final int[] dateLengths = new int[32];
+    final char[][] amountChars = new char[32][Formatters.CURRENCY_CAPACITY];
+    final int[] amountLengths = new int[32];
+
+    // Best day first
+    final char[][] topDayChars = new char[TOP_DAYS][Formatters.DATE_CAPACITY + Formatters.CURRENCY_CAPACITY];
+    final int[] topDayLengths = new int[TOP_DAYS];
+
+    public MonthText(Formatters formatters) {
+        this.formatters = formatters;
+    }
+
+    public void bindStats(MonthSegment segment) {
+        totalLength = Formatters.formatCurrency(segment.getTotalNet(), totalChars);
+        tradedDaysLength = Formatters.formatTradedDays(segment.getProfitableDays(), segment.getTradedDays(),
+                tradedDaysChars);
+    }
+
+    // "MMM dd, yyyy:" and the amount for the day's row
+    public void bindRow(int day, Transaction transaction) {
+        int length = formatters.formatShortDate(transaction.getDate(), dateChars[day]);
+        dateChars[day][length++] = ':';
+        dateLengths[day] = length;
+        amountLengths[day] = Formatters.formatCurrency(transaction.getAmount(), amountChars[day]);
+    }
+
+    // Top profitable days by amount, in one pass without sorting; returns how many there are
+    public int bindTopDays(MonthSegment segment) {
+        Transaction first = null;
+        Transaction second = null;
+        // Newest day first, so ties go to the later day
+        for (int day = 31; day >= 1; day--) {
+            Transaction t = segment.getTransaction(day);
+            if (t == null || !t.isProfit()) continue;
+            double amount = Math.abs(t.getAmount());
+            if (first == null || amount > Math.abs(first.getAmount())) {
+                second = first;
+                first = t;
+            } else if (second == null || amount > Math.abs(second.getAmount())) {
+                second = t;
+            }
+        }
+
+        if (first == null) return 0;
+        bindTopDay(0, first);
+        if (second == null) return 1;
+        bindTopDay(1, second);
+        return 2;
+    }
+
+    // "dd MMM yyyy: ₹ 1234.56"
+    private void bindTopDay(int index, Transaction transaction) {
+        char[] dest = topDayChars[index];
+        int length = formatters.formatDayMonthYear(transaction.getDate(), dest);
+        dest[length++] = ':';
+        dest[length++] = ' ';
+        length += Formatters.formatCurrency(transaction.getAmount(), dest, length);
+        topDayLengths[index] = length;
+    }
+}
@@ -0,0 +1,91 @@
+package com.homecarcharge.mytrade;
+
+import android.os.Build;
+import android.os.Trace;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Wraps the app's hot paths in android.os.Trace sections and keeps in-process
+ * latency histograms and counters so slow stages can be seen without a profiler.
+ */
+public final class PerfTracer {
+
+    // Section names, also shown as slice labels in systrace/Perfetto
+    public static final String LOAD_SAVED_DATA = "loadSavedData";
+    public static final String SAVE_DATA = "saveData";
+    public static final String LOAD_CURRENT_MONTH_DATA = "loadCurrentMonthData";
+    public static final String UPDATE_CALENDAR_DISPLAY = "updateCalendarDisplay";
+    public static final String UPDATE_TRANSACTION_LIST = "updateTransactionList";
+    public static final String CALCULATE_AND_DISPLAY_STATS = "calculateAndDisplayStats";
+
+    // Counter names
+    public static final String BYTES_WRITTEN = "bytesWritten";
+    public static final String ENTRIES_SCANNED = "entriesScanned";
+
+    private static final Map<String, LatencyHistogram> histograms = new LinkedHashMap<>();
+    private static final Map<String, long[]> counters = new LinkedHashMap<>();
+
+    private PerfTracer() {
+    }
+
+    // Opens a trace section; pass the returned start time to end() on the same thread
+    public static long begin(String section) {
+        Trace.beginSection(section);
+        return System.nanoTime();
+    }
+
+    public static void end(String section, long startNanos) {
+        long elapsed = System.nanoTime() - startNanos;
+        Trace.endSection();
+        histogram(section).record(elapsed);
+    }
+
+    public static synchronized LatencyHistogram histogram(String section) {
+        LatencyHistogram histogram = histograms.get(section);
+        if (histogram == null) {
+            histogram = new LatencyHistogram();
+            histograms.put(section, histogram);
+        }
+        return histogram;
+    }
+
+    public static synchronized void count(String counter, long delta) {
+        long[] value = counters.get(counter);
+        if (value == null) {
+            value = new long[1];
+            counters.put(counter, value);
+        }
+        value[0] += delta;
+
+        // Counter tracks show up next to the trace sections on API 29+
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+            Trace.setCounter(counter, value[0]);
+        }
+    }
+
+    public static synchronized long getCounter(String counter) {
+        long[] value = counters.get(counter);
+        return value == null ? 0 : value[0];
+    }
+
+    public static synchronized void reset() {
+        for (LatencyHistogram histogram : histograms.values()) {
+            histogram.reset();
+        }
+        counters.clear();
+    }
+
+    public static synchronized String report() {
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<String, LatencyHistogram> entry : histograms.entrySet()) {
+            sb.append(entry.getKey()).append('\n')
+                    .append("  ").append(entry.getValue().summary()).append('\n');
+        }
+        for (Map.Entry<String, long[]> entry : counters.entrySet()) {
+            sb.append(entry.getKey()).append(": ").append(entry.getValue()[0]).append('\n');
+        }
+        return sb.toString();
+    }
+}
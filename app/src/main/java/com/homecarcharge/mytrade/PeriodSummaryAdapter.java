@@ -0,0 +1,103 @@
+package com.homecarcharge.mytrade;
+
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.BaseAdapter;
+import android.widget.TextView;
+
+import java.text.SimpleDateFormat;
+import java.util.Map;
+import java.util.NavigableMap;
+
+/**
+ * Rows of the period summary for one {@link RollupCube.Level}, newest period first. Each
+ * row reads one precomputed node of the cube.
+ */
+public class PeriodSummaryAdapter extends BaseAdapter {
+
+    private static final String[] QUARTER_NAMES = {"Jan–Mar", "Apr–Jun", "Jul–Sep", "Oct–Dec"};
+
+    private static class RowHolder {
+        TextView nameView;
+        TextView pnlView;
+        TextView statsView;
+        final char[] pnlChars = new char[Formatters.CURRENCY_CAPACITY];
+        final char[] statsChars = new char[48];
+    }
+
+    private final LayoutInflater inflater;
+    private final Formatters formatters;
+    private final RollupCube.Level level;
+    private final int[] keys;
+    private final RollupCube.PeriodTotals[] totals;
+
+    public PeriodSummaryAdapter(LayoutInflater inflater, Formatters formatters, RollupCube.Level level,
+                                NavigableMap<Integer, RollupCube.PeriodTotals> periods) {
+        this.inflater = inflater;
+        this.formatters = formatters;
+        this.level = level;
+        keys = new int[periods.size()];
+        totals = new RollupCube.PeriodTotals[periods.size()];
+        int i = 0;
+        for (Map.Entry<Integer, RollupCube.PeriodTotals> entry : periods.descendingMap().entrySet()) {
+            keys[i] = entry.getKey();
+            totals[i] = entry.getValue();
+            i++;
+        }
+    }
+
+    @Override
+    public int getCount() {
+        return keys.length;
+    }
+
+    @Override
+    public Object getItem(int position) {
+        return totals[position];
+    }
+
+    @Override
+    public long getItemId(int position) {
+        return keys[position];
+    }
+
+    @Override
+    public View getView(int position, View convertView, ViewGroup parent) {
+        RowHolder holder;
+        if (convertView == null) {
+            convertView = inflater.inflate(R.layout.item_month_summary, parent, false);
+            holder = new RowHolder();
+            holder.nameView = convertView.findViewById(R.id.tv_month_name);
+            holder.pnlView = convertView.findViewById(R.id.tv_month_pnl);
+            holder.statsView = convertView.findViewById(R.id.tv_month_stats);
+            convertView.setTag(holder);
+        } else {
+            holder = (RowHolder) convertView.getTag();
+        }
+
+        RollupCube.PeriodTotals period = totals[position];
+        holder.nameView.setText(getLabel(keys[position]));
+        holder.pnlView.setText(holder.pnlChars, 0, Formatters.formatCurrency(period.getNet(), holder.pnlChars));
+        holder.pnlView.setTextColor(Formatters.amountColor(period.getNet() >= 0));
+        holder.statsView.setText(holder.statsChars, 0, Formatters.formatMonthStats(
+                period.getTradedDays(), period.getWinRatePercent(), holder.statsChars));
+        return convertView;
+    }
+
+    private String getLabel(int key) {
+        switch (level) {
+            case DAY:
+            case WEEK:
+                SimpleDateFormat sdf = formatters.dateFormat(Formatters.PATTERN_SHORT_DATE);
+                String date = sdf.format(EpochDays.toCalendar(key).getTime());
+                return level == RollupCube.Level.WEEK ? "Week of " + date : date;
+            case MONTH:
+                return formatters.monthTitle(Ledger.monthOf(key), Ledger.yearOf(key));
+            case QUARTER:
+                return QUARTER_NAMES[key % 4] + " " + key / 4;
+            default:
+                return "FY " + key + "-" + String.format("%02d", (key + 1) % 100);
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.homecarcharge.mytrade;
+
+import java.util.Arrays;
+
+/**
+ * Distribution of daily net P&L over a period: a {@link QuantileSketch} for the median and
+ * tails, and counts in fixed amount buckets for a histogram. Both merge by adding counts,
+ * so a year or all-time distribution is the merge of its months.
+ */
+public class PnlDistribution {
+
+    // Bucket i holds days in [EDGES[i - 1], EDGES[i]); the first and last are open-ended
+    public static final double[] EDGES = {-10000, -5000, -2000, -1000, -500, 0, 500, 1000, 2000, 5000, 10000};
+    public static final int BUCKETS = EDGES.length + 1;
+
+    private final QuantileSketch sketch = new QuantileSketch();
+    private final int[] buckets = new int[BUCKETS];
+
+    public static int bucketOf(double net) {
+        int i = Arrays.binarySearch(EDGES, net);
+        // An exact edge starts the bucket above it
+        return i >= 0 ? i + 1 : -i - 1;
+    }
+
+    public void add(double net) {
+        sketch.add(net);
+        buckets[bucketOf(net)]++;
+    }
+
+    public void remove(double net) {
+        if (sketch.remove(net)) {
+            buckets[bucketOf(net)]--;
+        }
+    }
+
+    public void merge(PnlDistribution other) {
+        sketch.merge(other.sketch);
+        for (int i = 0; i < BUCKETS; i++) {
+            buckets[i] += other.buckets[i];
+        }
+    }
+
+    public void clear() {
+        sketch.clear();
+        Arrays.fill(buckets, 0);
+    }
+
+    public int getDays() {
+        return (int) sketch.getCount();
+    }
+
+    // NaN when the period has no entries
+    public double quantile(double q) {
+        return sketch.quantile(q);
+    }
+
+    // Read-only view of the bucket counts
+    public int getBucketCount(int bucket) {
+        return buckets[bucket];
+    }
+}
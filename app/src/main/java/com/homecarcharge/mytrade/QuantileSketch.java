@@ -0,0 +1,144 @@
+package com.homecarcharge.mytrade;
+
+import java.util.Arrays;
+
+/**
+ * Quantiles of a stream of amounts with bounded relative error, in the manner of DDSketch:
+ * each magnitude falls in a logarithmic bin whose bounds differ by a factor of
+ * gamma = (1 + a) / (1 - a), so the value returned for any quantile is within a fraction
+ * a of a true sample. Positive and negative amounts keep separate bins, zero its own
+ * count. Bins are counts, so sketches merge by adding counts and single values can be
+ * removed again; neither depends on how many amounts were seen.
+ */
+public class QuantileSketch {
+
+    public static final double RELATIVE_ACCURACY = 0.01;
+
+    private static final double GAMMA = (1 + RELATIVE_ACCURACY) / (1 - RELATIVE_ACCURACY);
+    private static final double LOG_GAMMA = Math.log(GAMMA);
+    // Smaller magnitudes count as zero
+    private static final double MIN_MAGNITUDE = 1e-6;
+
+    private final Bins positive = new Bins();
+    private final Bins negative = new Bins();
+    private long zeroCount;
+    private long count;
+
+    /** Counts per bin index over the range [offset, offset + counts.length). */
+    private static class Bins {
+        long[] counts = new long[0];
+        int offset;
+
+        void add(int index, long n) {
+            if (counts.length == 0) {
+                counts = new long[16];
+                offset = index - 8;
+            } else if (index < offset || index >= offset + counts.length) {
+                grow(index);
+            }
+            counts[index - offset] += n;
+        }
+
+        // Returns false if the bin was empty
+        boolean remove(int index) {
+            if (index < offset || index >= offset + counts.length || counts[index - offset] == 0) {
+                return false;
+            }
+            counts[index - offset]--;
+            return true;
+        }
+
+        void addAll(Bins other) {
+            for (int i = 0; i < other.counts.length; i++) {
+                if (other.counts[i] != 0) {
+                    add(other.offset + i, other.counts[i]);
+                }
+            }
+        }
+
+        private void grow(int index) {
+            int from = Math.min(offset, index);
+            int to = Math.max(offset + counts.length - 1, index);
+            // Double the span so repeated growth at one end stays amortized O(1)
+            int length = Math.max(counts.length * 2, to - from + 1);
+            long[] grown = new long[length];
+            int newOffset = index < offset ? to - length + 1 : from;
+            System.arraycopy(counts, 0, grown, offset - newOffset, counts.length);
+            counts = grown;
+            offset = newOffset;
+        }
+    }
+
+    public void add(double value) {
+        if (Double.isNaN(value)) return;
+        if (Math.abs(value) < MIN_MAGNITUDE) {
+            zeroCount++;
+        } else {
+            (value > 0 ? positive : negative).add(index(Math.abs(value)), 1);
+        }
+        count++;
+    }
+
+    // Removes one earlier added value; returns false if no such value was counted
+    public boolean remove(double value) {
+        if (Double.isNaN(value)) return false;
+        boolean removed;
+        if (Math.abs(value) < MIN_MAGNITUDE) {
+            removed = zeroCount > 0;
+            if (removed) zeroCount--;
+        } else {
+            removed = (value > 0 ? positive : negative).remove(index(Math.abs(value)));
+        }
+        if (removed) count--;
+        return removed;
+    }
+
+    public void merge(QuantileSketch other) {
+        positive.addAll(other.positive);
+        negative.addAll(other.negative);
+        zeroCount += other.zeroCount;
+        count += other.count;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    /** The q-quantile (0..1), lower rank convention; NaN when nothing was added. */
+    public double quantile(double q) {
+        if (count == 0) return Double.NaN;
+        long rank = (long) (Math.max(0, Math.min(1, q)) * (count - 1));
+
+        // Most negative first: negative bins from the largest magnitude down
+        long seen = 0;
+        long[] bins = negative.counts;
+        for (int i = bins.length - 1; i >= 0; i--) {
+            seen += bins[i];
+            if (seen > rank) return -value(negative.offset + i);
+        }
+        seen += zeroCount;
+        if (seen > rank) return 0;
+        bins = positive.counts;
+        for (int i = 0; i < bins.length; i++) {
+            seen += bins[i];
+            if (seen > rank) return value(positive.offset + i);
+        }
+        return value(positive.offset + bins.length - 1);
+    }
+
+    public void clear() {
+        Arrays.fill(positive.counts, 0);
+        Arrays.fill(negative.counts, 0);
+        zeroCount = 0;
+        count = 0;
+    }
+
+    private static int index(double magnitude) {
+        return (int) Math.ceil(Math.log(magnitude) / LOG_GAMMA);
+    }
+
+    // The point of the bin (gamma^(i-1), gamma^i] within the relative accuracy of both bounds
+    private static double value(int index) {
+        return 2 * Math.pow(GAMMA, index) / (GAMMA + 1);
+    }
+}
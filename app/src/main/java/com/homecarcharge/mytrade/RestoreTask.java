@@ -0,0 +1,156 @@
+package com.homecarcharge.mytrade;
+
+import android.content.Context;
+import android.net.Uri;
+import android.os.Handler;
+import android.os.Looper;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A backup restore that outlives the Activity that started it. The worker never touches an
+ * Activity: whichever one is current attaches as the listener, shows progress while the
+ * restore runs and applies the result once, so a rotation mid-restore neither updates a
+ * destroyed Activity nor leaves the new one editable or on stale indexes. At most one
+ * restore runs per process. Main thread only, apart from the worker.
+ */
+final class RestoreTask {
+
+    interface Listener {
+        void onRestoreFinished(Result result);
+    }
+
+    static final class Result {
+        // Null if the file failed validation and nothing was replaced
+        final List<Account> accounts;
+        final int entries;
+        final long elapsedMs;
+        // Null on success
+        final String error;
+        // The ledger open when the restore started, and its rebuilt journal; null if it had none
+        final Ledger openLedger;
+        final SyncJournal openJournal;
+
+        Result(List<Account> accounts, int entries, long elapsedMs, String error, Ledger openLedger,
+               SyncJournal openJournal) {
+            this.accounts = accounts;
+            this.entries = entries;
+            this.elapsedMs = elapsedMs;
+            this.error = error;
+            this.openLedger = openLedger;
+            this.openJournal = openJournal;
+        }
+    }
+
+    private static RestoreTask current;
+
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private Listener listener;
+    private Result result;
+
+    private RestoreTask() {
+    }
+
+    // The restore running or finished but not yet taken by an Activity, else null
+    static RestoreTask current() {
+        return current;
+    }
+
+    static boolean isRunning() {
+        return current != null && current.result == null;
+    }
+
+    /**
+     * Starts replacing every account in the backup. The open ledger's journal is rebuilt but
+     * not saved; the listener saves it with the ledger, so the journal an Activity still holds
+     * is never written over it.
+     */
+    static RestoreTask start(Context context, Uri uri, Ledger open, SyncJournal openJournal, String deviceId) {
+        RestoreTask task = new RestoreTask();
+        current = task;
+        Context appContext = context.getApplicationContext();
+        new Thread(() -> {
+            Result result = run(appContext, uri, open, openJournal, deviceId);
+            task.handler.post(() -> task.finish(result));
+        }, "restore-backup").start();
+        return task;
+    }
+
+    // The Activity that shows this restore; a finished one is delivered at once
+    void attach(Listener listener) {
+        this.listener = listener;
+        deliver();
+    }
+
+    void detach(Listener listener) {
+        if (this.listener == listener) {
+            this.listener = null;
+        }
+    }
+
+    private void finish(Result result) {
+        this.result = result;
+        deliver();
+    }
+
+    private void deliver() {
+        if (listener == null || result == null) return;
+        // Delivered once; the next Activity finds no restore
+        current = null;
+        listener.onRestoreFinished(result);
+    }
+
+    private static Result run(Context context, Uri uri, Ledger open, SyncJournal openJournal, String deviceId) {
+        long start = System.nanoTime();
+        try (InputStream in = context.getContentResolver().openInputStream(uri)) {
+            if (in == null) throw new IOException("Cannot open file");
+            // Fully validated before anything is replaced
+            BackupSnapshot.validate(in);
+        } catch (IOException e) {
+            return new Result(null, 0, 0, e.getMessage(), open, openJournal);
+        }
+
+        // Read again, replacing one account at a time so only its entries are held
+        List<Account> accounts = new ArrayList<>();
+        int[] entries = new int[1];
+        SyncJournal[] restoredJournal = {openJournal};
+        String failure = null;
+        try (InputStream in = context.getContentResolver().openInputStream(uri)) {
+            if (in == null) throw new IOException("Cannot open file");
+            BackupSnapshot.read(in, data -> {
+                Ledger target = open;
+                if (target == null || !target.getAccountId().equals(data.id)) {
+                    target = new Ledger(context, data.id);
+                }
+                target.replaceAll(data.transactions);
+                PerfTracer.count(PerfTracer.BYTES_WRITTEN, target.save());
+                // Backups from before trades were included leave the trade book as it is
+                if (data.trades != null) {
+                    PerfTracer.count(PerfTracer.BYTES_WRITTEN, target.saveTradeBook(data.trades));
+                }
+                accounts.add(new Account(data.id, data.name));
+                entries[0] += data.transactions.size();
+
+                // The restore bypasses the journal, so a synced account gets a new one that
+                // exports the restored entries, and removals of the days the backup lacks
+                SyncJournal journal = target == open ? openJournal : target.loadSyncJournal();
+                if (journal == null) return;
+                journal = SyncJournal.create(data.id, deviceId, target.snapshot(), journal);
+                if (target == open) {
+                    restoredJournal[0] = journal;
+                } else {
+                    PerfTracer.count(PerfTracer.BYTES_WRITTEN, target.saveSyncJournal(journal));
+                }
+            });
+        } catch (IOException e) {
+            // The file changed after it was validated; the accounts replaced so far stay
+            failure = e.getMessage();
+        }
+
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+        return new Result(accounts, entries[0], elapsedMs, failure, open, restoredJournal[0]);
+    }
+}
@@ -0,0 +1,202 @@
+package com.homecarcharge.mytrade;
+
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Totals at day, week, month, quarter and Indian financial year (April to March) level,
+ * each level a sorted map from period key to {@link PeriodTotals}. Built from a snapshot in
+ * one pass; a single day's add or delete then refreshes only the nodes on its paths (its
+ * week, and its month, quarter and financial year), each from a bounded number of
+ * children, so neither updates nor lookups depend on history size. Main thread only.
+ *
+ * Keys: DAY and WEEK are epoch days (weeks start on Monday), MONTH is
+ * {@link Ledger#monthKey}, QUARTER is year * 4 + quarter index, FINANCIAL_YEAR is the
+ * calendar year in which the financial year starts.
+ */
+public class RollupCube {
+
+    public enum Level {
+        DAY, WEEK, MONTH, QUARTER, FINANCIAL_YEAR
+    }
+
+    public static class PeriodTotals {
+        double net;
+        double grossProfit;
+        double grossLoss;
+        int tradedDays;
+        int profitableDays;
+        double bestDay = Double.NaN;
+        double worstDay = Double.NaN;
+
+        public double getNet() {
+            return net;
+        }
+
+        public double getGrossProfit() {
+            return grossProfit;
+        }
+
+        // As a positive amount
+        public double getGrossLoss() {
+            return grossLoss;
+        }
+
+        public int getTradedDays() {
+            return tradedDays;
+        }
+
+        public int getProfitableDays() {
+            return profitableDays;
+        }
+
+        public int getWinRatePercent() {
+            return tradedDays == 0 ? 0 : Math.round(100f * profitableDays / tradedDays);
+        }
+
+        // NaN when the period has no entries
+        public double getBestDay() {
+            return bestDay;
+        }
+
+        public double getWorstDay() {
+            return worstDay;
+        }
+
+        void addDay(double dayNet) {
+            combine(dayNet, dayNet > 0 ? dayNet : 0, dayNet < 0 ? -dayNet : 0, 1,
+                    Transaction.isProfitNet(dayNet) ? 1 : 0, dayNet, dayNet);
+        }
+
+        void add(PeriodTotals child) {
+            combine(child.net, child.grossProfit, child.grossLoss, child.tradedDays, child.profitableDays,
+                    child.bestDay, child.worstDay);
+        }
+
+        private void combine(double net, double grossProfit, double grossLoss, int tradedDays,
+                             int profitableDays, double best, double worst) {
+            if (tradedDays == 0) return;
+            this.net += net;
+            this.grossProfit += grossProfit;
+            this.grossLoss += grossLoss;
+            this.tradedDays += tradedDays;
+            this.profitableDays += profitableDays;
+            bestDay = Double.isNaN(bestDay) ? best : Math.max(bestDay, best);
+            worstDay = Double.isNaN(worstDay) ? worst : Math.min(worstDay, worst);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private final TreeMap<Integer, PeriodTotals>[] levels = new TreeMap[Level.values().length];
+
+    public RollupCube() {
+        for (int i = 0; i < levels.length; i++) {
+            levels[i] = new TreeMap<>();
+        }
+    }
+
+    public static RollupCube build(LedgerSnapshot snapshot) {
+        RollupCube cube = new RollupCube();
+        for (MonthSegment segment : snapshot.getSegments().values()) {
+            int year = segment.getYear();
+            int month = segment.getMonth();
+            for (int day = 1; day <= 31; day++) {
+                Transaction t = segment.getTransaction(day);
+                if (t == null) continue;
+                int epochDay = EpochDays.of(year, month, day);
+                double net = t.getNetAmount();
+                cube.totalsFor(Level.DAY, epochDay).addDay(net);
+                cube.totalsFor(Level.WEEK, EpochDays.weekStart(epochDay)).addDay(net);
+                cube.totalsFor(Level.MONTH, Ledger.monthKey(month, year)).addDay(net);
+                cube.totalsFor(Level.QUARTER, quarterKey(month, year)).addDay(net);
+                cube.totalsFor(Level.FINANCIAL_YEAR, financialYear(month, year)).addDay(net);
+            }
+        }
+        return cube;
+    }
+
+    public static int quarterKey(int month, int year) {
+        return year * 4 + month / 3;
+    }
+
+    public static int financialYear(int month, int year) {
+        return month >= Calendar.APRIL ? year : year - 1;
+    }
+
+    // Null when the period has no entries
+    public PeriodTotals get(Level level, int key) {
+        return levels[level.ordinal()].get(key);
+    }
+
+    // Periods with entries, oldest first; read-only
+    public NavigableMap<Integer, PeriodTotals> getPeriods(Level level) {
+        return Collections.unmodifiableNavigableMap(levels[level.ordinal()]);
+    }
+
+    // Sets the day's net, replacing any earlier entry for that day
+    public void put(int year, int month, int day, double net) {
+        int epochDay = EpochDays.of(year, month, day);
+        PeriodTotals leaf = new PeriodTotals();
+        leaf.addDay(net);
+        levels[Level.DAY.ordinal()].put(epochDay, leaf);
+        refreshPaths(year, month, epochDay);
+    }
+
+    public void remove(int year, int month, int day) {
+        int epochDay = EpochDays.of(year, month, day);
+        if (levels[Level.DAY.ordinal()].remove(epochDay) != null) {
+            refreshPaths(year, month, epochDay);
+        }
+    }
+
+    // Rebuilds each ancestor of the day from its children: at most 7, 31, 3 and 4 of them
+    private void refreshPaths(int year, int month, int epochDay) {
+        TreeMap<Integer, PeriodTotals> days = levels[Level.DAY.ordinal()];
+
+        int weekStart = EpochDays.weekStart(epochDay);
+        store(Level.WEEK, weekStart, sum(days, weekStart, weekStart + 6));
+
+        int monthStart = EpochDays.of(year, month, 1);
+        int nextMonthStart = month == Calendar.DECEMBER
+                ? EpochDays.of(year + 1, Calendar.JANUARY, 1)
+                : EpochDays.of(year, month + 1, 1);
+        store(Level.MONTH, Ledger.monthKey(month, year), sum(days, monthStart, nextMonthStart - 1));
+
+        int firstMonth = month - month % 3;
+        store(Level.QUARTER, quarterKey(month, year), sum(levels[Level.MONTH.ordinal()],
+                Ledger.monthKey(firstMonth, year), Ledger.monthKey(firstMonth + 2, year)));
+
+        int financialYear = financialYear(month, year);
+        int firstQuarter = quarterKey(Calendar.APRIL, financialYear);
+        store(Level.FINANCIAL_YEAR, financialYear,
+                sum(levels[Level.QUARTER.ordinal()], firstQuarter, firstQuarter + 3));
+    }
+
+    private static PeriodTotals sum(TreeMap<Integer, PeriodTotals> children, int fromKey, int toKey) {
+        PeriodTotals totals = new PeriodTotals();
+        for (PeriodTotals child : children.subMap(fromKey, true, toKey, true).values()) {
+            totals.add(child);
+        }
+        return totals;
+    }
+
+    private void store(Level level, int key, PeriodTotals totals) {
+        if (totals.tradedDays == 0) {
+            levels[level.ordinal()].remove(key);
+        } else {
+            levels[level.ordinal()].put(key, totals);
+        }
+    }
+
+    private PeriodTotals totalsFor(Level level, int key) {
+        TreeMap<Integer, PeriodTotals> periods = levels[level.ordinal()];
+        PeriodTotals totals = periods.get(key);
+        if (totals == null) {
+            totals = new PeriodTotals();
+            periods.put(key, totals);
+        }
+        return totals;
+    }
+}
@@ -0,0 +1,77 @@
+package com.homecarcharge.mytrade;
+
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.BaseAdapter;
+import android.widget.TextView;
+
+/**
+ * Rows of the insights screen: one per group of a {@link SeasonalityEngine.Dimension}, in
+ * the dimension's natural order, reading the precomputed totals.
+ */
+public class SeasonalityAdapter extends BaseAdapter {
+
+    private static class RowHolder {
+        TextView nameView;
+        TextView pnlView;
+        TextView statsView;
+        final char[] pnlChars = new char[Formatters.CURRENCY_CAPACITY];
+        final char[] statsChars = new char[80];
+    }
+
+    private final LayoutInflater inflater;
+    private final SeasonalityEngine.Result result;
+    private SeasonalityEngine.Dimension dimension;
+
+    public SeasonalityAdapter(LayoutInflater inflater, SeasonalityEngine.Result result,
+                              SeasonalityEngine.Dimension dimension) {
+        this.inflater = inflater;
+        this.result = result;
+        this.dimension = dimension;
+    }
+
+    public void setDimension(SeasonalityEngine.Dimension dimension) {
+        this.dimension = dimension;
+        notifyDataSetChanged();
+    }
+
+    @Override
+    public int getCount() {
+        return dimension.getGroups();
+    }
+
+    @Override
+    public Object getItem(int position) {
+        return SeasonalityEngine.groupLabel(dimension, position);
+    }
+
+    @Override
+    public long getItemId(int position) {
+        return position;
+    }
+
+    @Override
+    public View getView(int position, View convertView, ViewGroup parent) {
+        RowHolder holder;
+        if (convertView == null) {
+            convertView = inflater.inflate(R.layout.item_month_summary, parent, false);
+            holder = new RowHolder();
+            holder.nameView = convertView.findViewById(R.id.tv_month_name);
+            holder.pnlView = convertView.findViewById(R.id.tv_month_pnl);
+            holder.statsView = convertView.findViewById(R.id.tv_month_stats);
+            convertView.setTag(holder);
+        } else {
+            holder = (RowHolder) convertView.getTag();
+        }
+
+        double sum = result.getSum(dimension, position);
+        holder.nameView.setText(SeasonalityEngine.groupLabel(dimension, position));
+        holder.pnlView.setText(holder.pnlChars, 0, Formatters.formatCurrency(sum, holder.pnlChars));
+        holder.pnlView.setTextColor(Formatters.amountColor(sum >= 0));
+        holder.statsView.setText(holder.statsChars, 0, Formatters.formatGroupStats(
+                result.getCount(dimension, position), result.getMean(dimension, position),
+                result.getWinRatePercent(dimension, position), holder.statsChars));
+        return convertView;
+    }
+}
@@ -0,0 +1,205 @@
+package com.homecarcharge.mytrade;
+
+import java.text.DateFormatSymbols;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Group-by over every traded day: sum, count, mean and win rate of daily net P&L by day of
+ * week, week of month, month of year and amount bucket, all in one pass.
+ *
+ * The snapshot is first flattened into primitive columns. The row range is then split
+ * across a {@link ForkJoinPool}; each leaf task totals its rows into its own small arrays
+ * for every dimension and parents add their children's arrays together, so no totals are
+ * shared between threads. {@link #run} blocks and must be called off the main thread.
+ */
+public class SeasonalityEngine {
+
+    private static final int LEAF_ROWS = 8192;
+
+    public enum Dimension {
+        DAY_OF_WEEK(7, 0),
+        WEEK_OF_MONTH(5, 7),
+        MONTH_OF_YEAR(12, 12),
+        AMOUNT_BUCKET(PnlDistribution.BUCKETS, 24);
+
+        final int groups;
+        // Where this dimension's groups start in the combined totals arrays
+        final int offset;
+
+        Dimension(int groups, int offset) {
+            this.groups = groups;
+            this.offset = offset;
+        }
+
+        public int getGroups() {
+            return groups;
+        }
+    }
+
+    private static final int TOTAL_GROUPS = Dimension.AMOUNT_BUCKET.offset + Dimension.AMOUNT_BUCKET.groups;
+
+    /** Totals for every group of every dimension. */
+    public static class Result {
+        private final double[] sums;
+        private final int[] counts;
+        private final int[] wins;
+        public final int rows;
+        public final long elapsedNanos;
+
+        Result(Partial totals, int rows, long elapsedNanos) {
+            this.sums = totals.sums;
+            this.counts = totals.counts;
+            this.wins = totals.wins;
+            this.rows = rows;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        public double getSum(Dimension dimension, int group) {
+            return sums[dimension.offset + group];
+        }
+
+        public int getCount(Dimension dimension, int group) {
+            return counts[dimension.offset + group];
+        }
+
+        // 0 for a group without days
+        public double getMean(Dimension dimension, int group) {
+            int count = getCount(dimension, group);
+            return count == 0 ? 0 : getSum(dimension, group) / count;
+        }
+
+        public int getWinRatePercent(Dimension dimension, int group) {
+            int count = getCount(dimension, group);
+            return count == 0 ? 0 : Math.round(100f * wins[dimension.offset + group] / count);
+        }
+    }
+
+    // One task's totals, indexed by dimension offset plus group
+    private static class Partial {
+        final double[] sums = new double[TOTAL_GROUPS];
+        final int[] counts = new int[TOTAL_GROUPS];
+        final int[] wins = new int[TOTAL_GROUPS];
+
+        void add(Partial other) {
+            for (int i = 0; i < TOTAL_GROUPS; i++) {
+                sums[i] += other.sums[i];
+                counts[i] += other.counts[i];
+                wins[i] += other.wins[i];
+            }
+        }
+    }
+
+    // Columns, one row per traded day
+    private final byte[] weekdays;    // 0 = Monday
+    private final byte[] daysOfMonth;
+    private final byte[] months;
+    private final double[] nets;
+    private final boolean[] profits;
+
+    private SeasonalityEngine(int rows) {
+        weekdays = new byte[rows];
+        daysOfMonth = new byte[rows];
+        months = new byte[rows];
+        nets = new double[rows];
+        profits = new boolean[rows];
+    }
+
+    // Flattens the snapshot in one scan; snapshots are immutable, so any thread may call this
+    public static SeasonalityEngine from(LedgerSnapshot snapshot) {
+        SeasonalityEngine engine = new SeasonalityEngine(snapshot.size());
+        int row = 0;
+        for (MonthSegment segment : snapshot.getSegments().values()) {
+            for (int day = 1; day <= 31; day++) {
+                Transaction t = segment.getTransaction(day);
+                if (t == null) continue;
+                // 1970-01-01 was a Thursday
+                engine.weekdays[row] = (byte) Math.floorMod(EpochDays.of(segment.getMonthKey(), day) + 3, 7);
+                engine.daysOfMonth[row] = (byte) day;
+                engine.months[row] = (byte) segment.getMonth();
+                engine.nets[row] = t.getNetAmount();
+                engine.profits[row] = t.isProfit();
+                row++;
+            }
+        }
+        return engine;
+    }
+
+    public int getRows() {
+        return nets.length;
+    }
+
+    public Result run(ForkJoinPool pool) {
+        long start = System.nanoTime();
+        Partial totals = pool.invoke(new GroupTask(0, nets.length));
+        return new Result(totals, nets.length, System.nanoTime() - start);
+    }
+
+    public static String groupLabel(Dimension dimension, int group) {
+        switch (dimension) {
+            case DAY_OF_WEEK:
+                // DateFormatSymbols numbers days from Sunday = 1
+                return DateFormatSymbols.getInstance().getShortWeekdays()[group == 6 ? 1 : group + 2];
+            case WEEK_OF_MONTH:
+                return group == 4 ? "Days 29–31" : "Days " + (group * 7 + 1) + "–" + (group * 7 + 7);
+            case MONTH_OF_YEAR:
+                return DateFormatSymbols.getInstance().getShortMonths()[group];
+            default:
+                double[] edges = PnlDistribution.EDGES;
+                if (group == 0) return "Below " + Formatters.number((int) edges[0]);
+                if (group == edges.length) return Formatters.number((int) edges[group - 1]) + " and above";
+                return Formatters.number((int) edges[group - 1]) + " to " + Formatters.number((int) edges[group]);
+        }
+    }
+
+    private class GroupTask extends RecursiveTask<Partial> {
+        private final int from;
+        private final int to;
+
+        GroupTask(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Partial compute() {
+            if (to - from > LEAF_ROWS) {
+                int mid = (from + to) >>> 1;
+                GroupTask right = new GroupTask(mid, to);
+                right.fork();
+                Partial left = new GroupTask(from, mid).compute();
+                left.add(right.join());
+                return left;
+            }
+
+            Partial partial = new Partial();
+            double[] sums = partial.sums;
+            int[] counts = partial.counts;
+            int[] wins = partial.wins;
+            int weekOfMonth = Dimension.WEEK_OF_MONTH.offset;
+            int monthOfYear = Dimension.MONTH_OF_YEAR.offset;
+            int amountBucket = Dimension.AMOUNT_BUCKET.offset;
+            for (int row = from; row < to; row++) {
+                double net = nets[row];
+                int win = profits[row] ? 1 : 0;
+                int g = weekdays[row];
+                sums[g] += net;
+                counts[g]++;
+                wins[g] += win;
+                g = weekOfMonth + (daysOfMonth[row] - 1) / 7;
+                sums[g] += net;
+                counts[g]++;
+                wins[g] += win;
+                g = monthOfYear + months[row];
+                sums[g] += net;
+                counts[g]++;
+                wins[g] += win;
+                g = amountBucket + PnlDistribution.bucketOf(net);
+                sums[g] += net;
+                counts[g]++;
+                wins[g] += win;
+            }
+            return partial;
+        }
+    }
+}
@@ -0,0 +1,309 @@
+package com.homecarcharge.mytrade;
+
+import java.util.Arrays;
+
+/**
+ * Win and loss streaks over the ordered sequence of trading days, across month and year
+ * boundaries. A segment tree keyed by epoch day keeps, per node, the number of traded
+ * days and the prefix, suffix and best run of wins and of losses; days without an entry
+ * are identity nodes, so weekends and holidays never break a streak.
+ *
+ * A day after the last traded day only extends the all-time summary (O(1)) and is queued;
+ * queued days reach the tree before the next range query or edit in the past, which
+ * costs O(log n) each. Main thread only.
+ */
+public class StreakTree {
+
+    /** Streak figures for a range of days; "current" runs end at the range's last traded day. */
+    public static class Streaks {
+        int days;
+        int winPrefix, winSuffix, winBest;
+        int lossPrefix, lossSuffix, lossBest;
+
+        public int getTradedDays() {
+            return days;
+        }
+
+        public int getCurrentWins() {
+            return winSuffix;
+        }
+
+        public int getCurrentLosses() {
+            return lossSuffix;
+        }
+
+        public int getLongestWins() {
+            return winBest;
+        }
+
+        public int getLongestLosses() {
+            return lossBest;
+        }
+
+        void clear() {
+            days = winPrefix = winSuffix = winBest = lossPrefix = lossSuffix = lossBest = 0;
+        }
+
+        void setDay(boolean win) {
+            days = 1;
+            winPrefix = winSuffix = winBest = win ? 1 : 0;
+            lossPrefix = lossSuffix = lossBest = win ? 0 : 1;
+        }
+
+        void copyFrom(Streaks other) {
+            days = other.days;
+            winPrefix = other.winPrefix;
+            winSuffix = other.winSuffix;
+            winBest = other.winBest;
+            lossPrefix = other.lossPrefix;
+            lossSuffix = other.lossSuffix;
+            lossBest = other.lossBest;
+        }
+
+        // this = this followed by next
+        void append(Streaks next) {
+            if (next.days == 0) return;
+            if (days == 0) {
+                copyFrom(next);
+                return;
+            }
+            winBest = Math.max(Math.max(winBest, next.winBest), winSuffix + next.winPrefix);
+            lossBest = Math.max(Math.max(lossBest, next.lossBest), lossSuffix + next.lossPrefix);
+            if (winPrefix == days) winPrefix += next.winPrefix;
+            if (lossPrefix == days) lossPrefix += next.lossPrefix;
+            winSuffix = next.winSuffix == next.days ? winSuffix + next.days : next.winSuffix;
+            lossSuffix = next.lossSuffix == next.days ? lossSuffix + next.days : next.lossSuffix;
+            days += next.days;
+        }
+
+        // this = previous followed by this
+        void prepend(Streaks previous) {
+            if (previous.days == 0) return;
+            if (days == 0) {
+                copyFrom(previous);
+                return;
+            }
+            winBest = Math.max(Math.max(winBest, previous.winBest), previous.winSuffix + winPrefix);
+            lossBest = Math.max(Math.max(lossBest, previous.lossBest), previous.lossSuffix + lossPrefix);
+            if (winSuffix == days) winSuffix += previous.winSuffix;
+            if (lossSuffix == days) lossSuffix += previous.lossSuffix;
+            winPrefix = previous.winPrefix == previous.days ? previous.days + winPrefix : previous.winPrefix;
+            lossPrefix = previous.lossPrefix == previous.days ? previous.days + lossPrefix : previous.lossPrefix;
+            days += previous.days;
+        }
+    }
+
+    private static final int MIN_CAPACITY = 512;
+
+    // Tree nodes as parallel arrays; leaves start at index capacity
+    private int capacity;
+    private int firstDay;
+    private int[] days, winPrefix, winSuffix, winBest, lossPrefix, lossSuffix, lossBest;
+
+    // Days appended after the last traded day that are not in the tree yet
+    private int[] pendingDays = new int[16];
+    private boolean[] pendingWins = new boolean[16];
+    private int pendingCount;
+
+    private final Streaks allTime = new Streaks();
+    private int lastDay = Integer.MIN_VALUE;
+
+    // Scratch nodes for queries and updates
+    private final Streaks left = new Streaks();
+    private final Streaks right = new Streaks();
+    private final Streaks node = new Streaks();
+
+    public StreakTree() {
+        allocate(0, MIN_CAPACITY);
+    }
+
+    public static StreakTree build(LedgerSnapshot snapshot) {
+        StreakTree tree = new StreakTree();
+        if (snapshot.isEmpty()) return tree;
+
+        int first = EpochDays.of(snapshot.getSegments().firstKey(), 1);
+        int last = EpochDays.of(snapshot.getSegments().lastKey(), 31);
+        tree.allocate(first, capacityFor(last - first + 1));
+
+        for (MonthSegment segment : snapshot.getSegments().values()) {
+            int monthStart = EpochDays.of(segment.getMonthKey(), 1) - tree.firstDay + tree.capacity - 1;
+            // Per-day nets, so months whose entries are not loaded stay unread
+            for (int day = 1; day <= 31; day++) {
+                if (!segment.hasDay(day)) continue;
+                tree.node.setDay(Transaction.isProfitNet(segment.getDayNet(day)));
+                tree.store(monthStart + day, tree.node);
+                tree.lastDay = EpochDays.of(segment.getMonthKey(), day);
+            }
+        }
+        for (int i = tree.capacity - 1; i >= 1; i--) {
+            tree.pull(i);
+        }
+        tree.load(1, tree.allTime);
+        return tree;
+    }
+
+    // Records the day's outcome, replacing any earlier entry for that day
+    public void set(int epochDay, boolean win) {
+        if (epochDay > lastDay) {
+            // Appending: days in between are identity, so the all-time summary extends in O(1)
+            node.setDay(win);
+            allTime.append(node);
+            lastDay = epochDay;
+            queue(epochDay, win);
+            return;
+        }
+        flushPending();
+        node.setDay(win);
+        update(epochDay, node);
+    }
+
+    public void remove(int epochDay) {
+        if (epochDay > lastDay) return;
+        flushPending();
+        node.clear();
+        update(epochDay, node);
+        if (epochDay == lastDay) {
+            lastDay = allTime.days == 0 ? Integer.MIN_VALUE : findLastDay();
+        }
+    }
+
+    public Streaks getAllTime() {
+        return allTime;
+    }
+
+    // Streaks over [fromDay, toDay] written into out
+    public void query(int fromDay, int toDay, Streaks out) {
+        flushPending();
+        left.clear();
+        right.clear();
+        int lo = fromDay <= firstDay ? 0 : (int) Math.min((long) fromDay - firstDay, capacity);
+        int hi = toDay >= firstDay + capacity - 1 ? capacity - 1 : (int) Math.max((long) toDay - firstDay, -1);
+        if (lo <= hi) {
+            lo += capacity;
+            hi += capacity + 1;
+            while (lo < hi) {
+                if ((lo & 1) == 1) {
+                    load(lo++, node);
+                    left.append(node);
+                }
+                if ((hi & 1) == 1) {
+                    load(--hi, node);
+                    right.prepend(node);
+                }
+                lo >>= 1;
+                hi >>= 1;
+            }
+        }
+        out.copyFrom(left);
+        out.append(right);
+    }
+
+    private void queue(int epochDay, boolean win) {
+        if (pendingCount == pendingDays.length) {
+            pendingDays = Arrays.copyOf(pendingDays, pendingCount * 2);
+            pendingWins = Arrays.copyOf(pendingWins, pendingCount * 2);
+        }
+        pendingDays[pendingCount] = epochDay;
+        pendingWins[pendingCount] = win;
+        pendingCount++;
+    }
+
+    private void flushPending() {
+        for (int i = 0; i < pendingCount; i++) {
+            node.setDay(pendingWins[i]);
+            update(pendingDays[i], node);
+        }
+        pendingCount = 0;
+    }
+
+    private void update(int epochDay, Streaks leaf) {
+        if (epochDay < firstDay || epochDay >= firstDay + capacity) {
+            grow(epochDay);
+        }
+        int i = epochDay - firstDay + capacity;
+        store(i, leaf);
+        for (i >>= 1; i >= 1; i >>= 1) {
+            pull(i);
+        }
+        load(1, allTime);
+    }
+
+    // Re-roots the tree so the day fits, keeping every existing leaf
+    private void grow(int epochDay) {
+        int oldFirst = firstDay;
+        int oldCapacity = capacity;
+        int[] oldDays = days, oldWinPrefix = winPrefix, oldLossPrefix = lossPrefix;
+
+        int from = Math.min(oldFirst, epochDay);
+        int to = Math.max(oldFirst + oldCapacity - 1, epochDay);
+        int newCapacity = capacityFor((to - from + 1) * 2);
+        // Leave the headroom on the side that grew
+        allocate(epochDay < oldFirst ? to - newCapacity + 1 : from, newCapacity);
+
+        for (int i = 0; i < oldCapacity; i++) {
+            if (oldDays[oldCapacity + i] == 0) continue;
+            int leaf = oldFirst + i - firstDay + capacity;
+            days[leaf] = 1;
+            winPrefix[leaf] = winSuffix[leaf] = winBest[leaf] = oldWinPrefix[oldCapacity + i];
+            lossPrefix[leaf] = lossSuffix[leaf] = lossBest[leaf] = oldLossPrefix[oldCapacity + i];
+        }
+        for (int i = capacity - 1; i >= 1; i--) {
+            pull(i);
+        }
+    }
+
+    private int findLastDay() {
+        int i = 1;
+        while (i < capacity) {
+            i = days[2 * i + 1] > 0 ? 2 * i + 1 : 2 * i;
+        }
+        return firstDay + i - capacity;
+    }
+
+    private static int capacityFor(int span) {
+        int capacity = MIN_CAPACITY;
+        while (capacity < span) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+
+    private void allocate(int first, int newCapacity) {
+        firstDay = first;
+        capacity = newCapacity;
+        days = new int[2 * capacity];
+        winPrefix = new int[2 * capacity];
+        winSuffix = new int[2 * capacity];
+        winBest = new int[2 * capacity];
+        lossPrefix = new int[2 * capacity];
+        lossSuffix = new int[2 * capacity];
+        lossBest = new int[2 * capacity];
+    }
+
+    private void pull(int i) {
+        load(2 * i, left);
+        load(2 * i + 1, right);
+        left.append(right);
+        store(i, left);
+    }
+
+    private void load(int i, Streaks out) {
+        out.days = days[i];
+        out.winPrefix = winPrefix[i];
+        out.winSuffix = winSuffix[i];
+        out.winBest = winBest[i];
+        out.lossPrefix = lossPrefix[i];
+        out.lossSuffix = lossSuffix[i];
+        out.lossBest = lossBest[i];
+    }
+
+    private void store(int i, Streaks in) {
+        days[i] = in.days;
+        winPrefix[i] = in.winPrefix;
+        winSuffix[i] = in.winSuffix;
+        winBest[i] = in.winBest;
+        lossPrefix[i] = in.lossPrefix;
+        lossSuffix[i] = in.lossSuffix;
+        lossBest[i] = in.lossBest;
+    }
+}
@@ -0,0 +1,59 @@
+package com.homecarcharge.mytrade;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Interns instrument symbols as dense int ids, so each name is stored once and per-symbol
+ * data can live in arrays indexed by id. Ids are never reused; names are trimmed and upper
+ * case, so "infy" and "INFY " are the same instrument.
+ */
+public class SymbolDictionary {
+
+    private final List<String> names = new ArrayList<>();
+    // Rebuilt from names after loading
+    private transient Map<String, Integer> ids = new HashMap<>();
+
+    public static String normalize(String symbol) {
+        return symbol.trim().toUpperCase(Locale.US);
+    }
+
+    // The id of the symbol, assigning the next one if it is new
+    public int intern(String symbol) {
+        String name = normalize(symbol);
+        Integer id = ids().get(name);
+        if (id == null) {
+            id = names.size();
+            names.add(name);
+            ids.put(name, id);
+        }
+        return id;
+    }
+
+    // -1 if the symbol was never interned
+    public int find(String symbol) {
+        Integer id = ids().get(normalize(symbol));
+        return id != null ? id : -1;
+    }
+
+    public String name(int id) {
+        return names.get(id);
+    }
+
+    public int size() {
+        return names.size();
+    }
+
+    private Map<String, Integer> ids() {
+        if (ids == null || ids.size() != names.size()) {
+            ids = new HashMap<>();
+            for (int i = 0; i < names.size(); i++) {
+                ids.put(names.get(i), i);
+            }
+        }
+        return ids;
+    }
+}
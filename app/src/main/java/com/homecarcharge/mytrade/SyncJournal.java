@@ -0,0 +1,294 @@
+package com.homecarcharge.mytrade;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.UUID;
+
+/**
+ * Sync state of one account on this device: local edits not yet exported, the version
+ * stamp of every day's entry, and how far each other device's edits have been merged.
+ *
+ * Every local edit gets the next sequence number and a clock value; export hands out the
+ * edits after the watermark as a {@link ChangeLog}. On merge, a record older than the
+ * device's merged sequence was already applied and is skipped; otherwise it wins over the
+ * day's current entry only with a newer stamp (clock, then device id), so every device
+ * converges on the same entry whatever order the files arrive in.
+ *
+ * Sequence numbers restart with each journal, so each journal gets its own id: the
+ * install's device id plus a random suffix. A journal recreated after being lost is then a
+ * new source to its peers rather than one whose edits they take as already merged. The
+ * clock is a hybrid one, never behind the wall clock in milliseconds and always past every
+ * clock seen, so a new journal's edits are not outranked by stamps from before it existed.
+ *
+ * Stored next to the account's entries in chunks (see {@link Ledger#saveSyncJournal}): the
+ * fields below as a small header, the stamps in blocks of STAMP_BLOCK_DAYS days and the
+ * pending edits in blocks of PENDING_BLOCK_RECORDS sequence numbers, so a save rewrites
+ * only the blocks that changed.
+ */
+public class SyncJournal {
+
+    /** Version of a day's entry: the edit with the higher clock wins, then the higher device id. */
+    static class Stamp {
+        long clock;
+        String deviceId;
+
+        Stamp(long clock, String deviceId) {
+            this.clock = clock;
+            this.deviceId = deviceId;
+        }
+
+        boolean isNewerThan(Stamp other) {
+            if (other == null) return true;
+            if (clock != other.clock) return clock > other.clock;
+            return deviceId.compareTo(other.deviceId) > 0;
+        }
+    }
+
+    public static class MergeResult {
+        // The winning edits, at most one per day, to apply to the ledger
+        public final List<ChangeLog.Record> applied;
+        public final int alreadyApplied;
+        public final int superseded;
+
+        MergeResult(List<ChangeLog.Record> applied, int alreadyApplied, int superseded) {
+            this.applied = applied;
+            this.alreadyApplied = alreadyApplied;
+            this.superseded = superseded;
+        }
+    }
+
+    public static class MissingChangesException extends Exception {
+        MissingChangesException(String message) {
+            super(message);
+        }
+    }
+
+    public static class WrongAccountException extends Exception {
+        WrongAccountException(String message) {
+            super(message);
+        }
+    }
+
+    static final int STAMP_BLOCK_DAYS = 32;
+    static final int PENDING_BLOCK_RECORDS = 256;
+
+    private String accountId;
+    private String deviceId;
+    private long lastSeq;
+    private long exportedSeq;
+    private long clock;
+    // Last merged sequence number per other device
+    private Map<String, Long> mergedSeqs = new HashMap<>();
+    // Local edits after exportedSeq, oldest first, so pending.get(i) has sequence exportedSeq + 1 + i
+    private transient List<ChangeLog.Record> pending = new ArrayList<>();
+    // By epoch day; days that never had an entry have no stamp
+    private transient Map<Integer, Stamp> stamps = new HashMap<>();
+    // Stamp blocks changed since they were taken for saving
+    private transient Set<Integer> dirtyStampBlocks = new HashSet<>();
+
+    private SyncJournal() {
+    }
+
+    /** A new journal whose first export carries every entry already in the snapshot. */
+    public static SyncJournal create(String accountId, String deviceId, LedgerSnapshot snapshot) {
+        return create(accountId, deviceId, snapshot, null);
+    }
+
+    /**
+     * Like {@link #create(String, String, LedgerSnapshot)}, replacing an earlier journal of the
+     * account, e.g. after a restore: days that journal had stamped but the snapshot lacks are
+     * exported as removals, and what it had merged from other devices is kept.
+     */
+    public static SyncJournal create(String accountId, String deviceId, LedgerSnapshot snapshot,
+                                     SyncJournal replaced) {
+        SyncJournal journal = new SyncJournal();
+        journal.accountId = accountId;
+        journal.deviceId = deviceId + "/" + UUID.randomUUID();
+        if (replaced != null) {
+            journal.clock = replaced.clock;
+            journal.mergedSeqs.putAll(replaced.mergedSeqs);
+        }
+        Set<Integer> removedDays = replaced != null ? new TreeSet<>(replaced.stamps.keySet()) : new TreeSet<>();
+        for (MonthSegment segment : snapshot.getSegments().values()) {
+            for (int day = 1; day <= 31; day++) {
+                Transaction t = segment.getTransaction(day);
+                if (t != null) {
+                    int epochDay = EpochDays.of(segment.getMonthKey(), day);
+                    journal.append(epochDay, t);
+                    removedDays.remove(epochDay);
+                }
+            }
+        }
+        for (int epochDay : removedDays) {
+            journal.append(epochDay, null);
+        }
+        return journal;
+    }
+
+    public String getAccountId() {
+        return accountId;
+    }
+
+    // This journal's id: the device id it was created with plus its own suffix
+    public String getDeviceId() {
+        return deviceId;
+    }
+
+    long getLastSeq() {
+        return lastSeq;
+    }
+
+    long getExportedSeq() {
+        return exportedSeq;
+    }
+
+    public int getPendingCount() {
+        return pending.size();
+    }
+
+    // Records committed local edits; changes applied by merge must not be passed here
+    public void record(List<LedgerChange> changes) {
+        for (LedgerChange change : changes) {
+            append(EpochDays.of(change.getMonthKey(), change.getDay()), change.getAfter());
+        }
+    }
+
+    /** The edits after the watermark; the watermark moves only on {@link #markExported}. */
+    public ChangeLog exportPending() {
+        return new ChangeLog(accountId, deviceId, exportedSeq + 1, new ArrayList<>(pending));
+    }
+
+    // Call once the exported file is safely written
+    public void markExported(ChangeLog log) {
+        long upTo = Math.min(log.getLastSeq(), lastSeq);
+        // The exported edits are the first upTo - exportedSeq; removed in one shift
+        int exported = (int) Math.max(0, Math.min(pending.size(), upTo - exportedSeq));
+        pending.subList(0, exported).clear();
+        exportedSeq = Math.max(exportedSeq, upTo);
+    }
+
+    /**
+     * Decides which of another device's edits win. The caller applies {@link MergeResult#applied}
+     * to the ledger without recording them as local edits.
+     *
+     * @throws WrongAccountException if the file holds another account's edits
+     * @throws MissingChangesException if an earlier file from that device was never merged
+     */
+    public MergeResult merge(ChangeLog log) throws WrongAccountException, MissingChangesException {
+        if (!log.getAccountId().equals(accountId)) {
+            throw new WrongAccountException("These changes belong to another account");
+        }
+        String from = log.getDeviceId();
+        List<ChangeLog.Record> applied = new ArrayList<>();
+        if (from.equals(deviceId)) {
+            return new MergeResult(applied, log.getRecords().size(), 0);
+        }
+
+        Long merged = mergedSeqs.get(from);
+        long mergedSeq = merged != null ? merged : 0;
+        if (log.getFirstSeq() > mergedSeq + 1) {
+            throw new MissingChangesException("Changes " + (mergedSeq + 1) + " to " + (log.getFirstSeq() - 1)
+                    + " from that device have not been imported yet");
+        }
+
+        // Later records of the same day replace earlier winners, so each day is applied once
+        Map<Integer, ChangeLog.Record> winners = new LinkedHashMap<>();
+        int alreadyApplied = 0;
+        int superseded = 0;
+        for (ChangeLog.Record record : log.getRecords()) {
+            clock = Math.max(clock, record.clock);
+            if (record.seq <= mergedSeq) {
+                alreadyApplied++;
+                continue;
+            }
+            Stamp stamp = new Stamp(record.clock, from);
+            if (stamp.isNewerThan(stamps.get(record.epochDay))) {
+                putStamp(record.epochDay, stamp);
+                if (winners.put(record.epochDay, record) != null) superseded++;
+            } else {
+                superseded++;
+            }
+        }
+        mergedSeqs.put(from, Math.max(mergedSeq, log.getLastSeq()));
+        applied.addAll(winners.values());
+        return new MergeResult(applied, alreadyApplied, superseded);
+    }
+
+    private void append(int epochDay, Transaction after) {
+        clock = Math.max(clock + 1, System.currentTimeMillis());
+        lastSeq++;
+        putStamp(epochDay, new Stamp(clock, deviceId));
+        pending.add(after == null
+                ? new ChangeLog.Record(lastSeq, clock, epochDay, 0, false, true)
+                : new ChangeLog.Record(lastSeq, clock, epochDay, after.getAmount(), after.isProfit(), false));
+    }
+
+    private void putStamp(int epochDay, Stamp stamp) {
+        stamps.put(epochDay, stamp);
+        dirtyStampBlocks.add(stampBlockOf(epochDay));
+    }
+
+    static int stampBlockOf(int epochDay) {
+        return Math.floorDiv(epochDay, STAMP_BLOCK_DAYS);
+    }
+
+    static int pendingBlockOf(long seq) {
+        return (int) ((seq - 1) / PENDING_BLOCK_RECORDS);
+    }
+
+    // Every block that holds a stamp
+    Set<Integer> getStampBlocks() {
+        Set<Integer> blocks = new HashSet<>();
+        for (int epochDay : stamps.keySet()) {
+            blocks.add(stampBlockOf(epochDay));
+        }
+        return blocks;
+    }
+
+    // The blocks changed since the last call, which the caller saves
+    Set<Integer> takeDirtyStampBlocks() {
+        Set<Integer> blocks = dirtyStampBlocks;
+        dirtyStampBlocks = new HashSet<>();
+        return blocks;
+    }
+
+    Map<Integer, Stamp> getStampBlock(int block) {
+        Map<Integer, Stamp> blockStamps = new HashMap<>();
+        int first = block * STAMP_BLOCK_DAYS;
+        for (int epochDay = first; epochDay < first + STAMP_BLOCK_DAYS; epochDay++) {
+            Stamp stamp = stamps.get(epochDay);
+            if (stamp != null) {
+                blockStamps.put(epochDay, stamp);
+            }
+        }
+        return blockStamps;
+    }
+
+    // The pending edits whose sequence numbers fall in the block
+    List<ChangeLog.Record> getPendingBlock(int block) {
+        long first = Math.max((long) block * PENDING_BLOCK_RECORDS + 1, exportedSeq + 1);
+        long last = Math.min((long) (block + 1) * PENDING_BLOCK_RECORDS, lastSeq);
+        if (first > last) return new ArrayList<>();
+        return new ArrayList<>(pending.subList((int) (first - exportedSeq - 1), (int) (last - exportedSeq)));
+    }
+
+    // Loading: stamps as saved, not marked as changed
+    void addStamps(Map<Integer, Stamp> loaded) {
+        stamps.putAll(loaded);
+    }
+
+    // Loading: pending blocks in sequence order; edits already exported are skipped
+    void addPending(List<ChangeLog.Record> loaded) {
+        for (ChangeLog.Record record : loaded) {
+            if (record.seq > exportedSeq + pending.size()) {
+                pending.add(record);
+            }
+        }
+    }
+}
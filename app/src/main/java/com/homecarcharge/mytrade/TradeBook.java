@@ -0,0 +1,314 @@
+package com.homecarcharge.mytrade;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * The trades of one account, stored column-wise in primitive arrays, with running totals
+ * and a list of trade indices per instrument in arrays indexed by symbol id. Adding or
+ * removing a trade touches only its symbol's totals and list, so per-instrument figures,
+ * the leaderboard and one instrument's trades never rescan the whole book.
+ * Persisted by {@link Ledger#saveTradeBook} as the symbol names plus blocks of BLOCK_TRADES
+ * trades by index; a save rewrites only the blocks edited since the last one. The totals
+ * are derived and rebuilt after loading. A book loaded with unreadable chunks is read-only.
+ * Main thread only.
+ */
+public class TradeBook {
+
+    static final int BLOCK_TRADES = 256;
+
+    /** The trades of one stored block, column-wise like the book. */
+    static class Block {
+        int[] days;
+        int[] symbolIds;
+        int[] quantities;
+        boolean[] sells;
+        double[] pnl;
+    }
+
+    private final SymbolDictionary symbols;
+    private int size;
+    private int[] days = new int[16];
+    private int[] symbolIds = new int[16];
+    private int[] quantities = new int[16];
+    private boolean[] sells = new boolean[16];
+    private double[] pnl = new double[16];
+
+    // By symbol id
+    private transient double[] symbolNet = new double[8];
+    private transient double[] symbolGrossProfit = new double[8];
+    private transient double[] symbolGrossLoss = new double[8];
+    private transient int[] symbolTrades = new int[8];
+    private transient int[] symbolWins = new int[8];
+    private transient long[] symbolQuantity = new long[8];
+    // By symbol id: the symbol's trade indices, in no order; the first symbolTrades[id] are used
+    private transient int[][] symbolIndices = new int[8][];
+    // By trade index: where the trade sits in its symbol's indices
+    private transient int[] slots = new int[16];
+    // Blocks edited since they were taken for saving
+    private transient BitSet dirtyBlocks = new BitSet();
+    private transient boolean readOnly;
+
+    public TradeBook() {
+        this(new SymbolDictionary());
+    }
+
+    // Loading: an empty book over stored symbol names, filled by appendBlock
+    TradeBook(SymbolDictionary symbols) {
+        this.symbols = symbols;
+    }
+
+    public SymbolDictionary getSymbols() {
+        return symbols;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // True if some stored trades could not be read; add and remove then throw
+    public boolean isReadOnly() {
+        return readOnly;
+    }
+
+    // Loading: set when a chunk of the book could not be read
+    void markReadOnly() {
+        readOnly = true;
+    }
+
+    // Returns the new trade's index
+    public int add(String symbol, int epochDay, int quantity, TradeEntry.Side side, double tradePnl) {
+        checkWritable();
+        int symbolId = symbols.intern(symbol);
+        ensureCapacity(size + 1);
+        days[size] = epochDay;
+        symbolIds[size] = symbolId;
+        quantities[size] = quantity;
+        sells[size] = side == TradeEntry.Side.SELL;
+        pnl[size] = tradePnl;
+        link(size);
+        count(size, 1);
+        dirtyBlocks.set(size / BLOCK_TRADES);
+        return size++;
+    }
+
+    public TradeEntry get(int index) {
+        return new TradeEntry(days[index], symbolIds[index], quantities[index],
+                sells[index] ? TradeEntry.Side.SELL : TradeEntry.Side.BUY, pnl[index]);
+    }
+
+    // The last trade takes the removed one's index
+    public void remove(int index) {
+        checkWritable();
+        unlink(index);
+        count(index, -1);
+        int last = --size;
+        dirtyBlocks.set(index / BLOCK_TRADES);
+        if (last == index) return;
+        dirtyBlocks.set(last / BLOCK_TRADES);
+        days[index] = days[last];
+        symbolIds[index] = symbolIds[last];
+        quantities[index] = quantities[last];
+        sells[index] = sells[last];
+        pnl[index] = pnl[last];
+        slots[index] = slots[last];
+        symbolIndices[symbolIds[index]][slots[index]] = index;
+    }
+
+    // Indices of the symbol's trades, newest day first; reads only that symbol's trades
+    public int[] tradesOf(int symbolId) {
+        if (symbolId < 0 || symbolId >= symbols.size()) return new int[0];
+        int n = symbolTrades[symbolId];
+        int[] indices = symbolIndices[symbolId];
+        // Day in the high half and index in the low half sort by day without boxing
+        long[] keyed = new long[n];
+        for (int i = 0; i < n; i++) {
+            keyed[i] = ((long) days[indices[i]] << 32) | indices[i];
+        }
+        Arrays.sort(keyed);
+        int[] newestFirst = new int[n];
+        for (int i = 0; i < n; i++) {
+            newestFirst[i] = (int) keyed[n - 1 - i];
+        }
+        return newestFirst;
+    }
+
+    /** Ids of up to limit traded symbols by net P&L, highest first if best, else lowest first. */
+    public int[] leaderboard(int limit, boolean best) {
+        int[] top = new int[Math.min(limit, symbols.size())];
+        int n = 0;
+        // Insertion into a short sorted array: O(symbols * limit), no boxing or full sort
+        for (int id = 0; id < symbols.size(); id++) {
+            if (symbolTrades[id] == 0) continue;
+            double net = best ? symbolNet[id] : -symbolNet[id];
+            int pos = n < top.length ? n++ : top.length;
+            while (pos > 0 && net > (best ? symbolNet[top[pos - 1]] : -symbolNet[top[pos - 1]])) {
+                if (pos < top.length) top[pos] = top[pos - 1];
+                pos--;
+            }
+            if (pos < top.length) top[pos] = id;
+        }
+        return Arrays.copyOf(top, n);
+    }
+
+    public double getNet(int symbolId) {
+        return symbolNet[symbolId];
+    }
+
+    public double getGrossProfit(int symbolId) {
+        return symbolGrossProfit[symbolId];
+    }
+
+    // As a positive amount
+    public double getGrossLoss(int symbolId) {
+        return symbolGrossLoss[symbolId];
+    }
+
+    public int getTradeCount(int symbolId) {
+        return symbolTrades[symbolId];
+    }
+
+    public int getWinRatePercent(int symbolId) {
+        int trades = symbolTrades[symbolId];
+        return trades == 0 ? 0 : Math.round(100f * symbolWins[symbolId] / trades);
+    }
+
+    public long getQuantity(int symbolId) {
+        return symbolQuantity[symbolId];
+    }
+
+    int getBlockCount() {
+        return (size + BLOCK_TRADES - 1) / BLOCK_TRADES;
+    }
+
+    Block getBlock(int block) {
+        int from = block * BLOCK_TRADES;
+        int to = Math.min(size, from + BLOCK_TRADES);
+        Block copy = new Block();
+        copy.days = Arrays.copyOfRange(days, from, to);
+        copy.symbolIds = Arrays.copyOfRange(symbolIds, from, to);
+        copy.quantities = Arrays.copyOfRange(quantities, from, to);
+        copy.sells = Arrays.copyOfRange(sells, from, to);
+        copy.pnl = Arrays.copyOfRange(pnl, from, to);
+        return copy;
+    }
+
+    // A copy to read on another thread, e.g. for a backup, while this book is edited
+    TradeBook copy() {
+        SymbolDictionary names = new SymbolDictionary();
+        for (int id = 0; id < symbols.size(); id++) {
+            names.intern(symbols.name(id));
+        }
+        TradeBook copy = new TradeBook(names);
+        for (int block = 0; block < getBlockCount(); block++) {
+            copy.appendBlock(getBlock(block));
+        }
+        copy.rebuildTotals();
+        copy.readOnly = readOnly;
+        return copy;
+    }
+
+    // Loading: appends a stored block's trades; call rebuildTotals once every block is in
+    void appendBlock(Block block) {
+        int n = block.days.length;
+        ensureCapacity(size + n);
+        System.arraycopy(block.days, 0, days, size, n);
+        System.arraycopy(block.symbolIds, 0, symbolIds, size, n);
+        System.arraycopy(block.quantities, 0, quantities, size, n);
+        System.arraycopy(block.sells, 0, sells, size, n);
+        System.arraycopy(block.pnl, 0, pnl, size, n);
+        size += n;
+    }
+
+    // The blocks edited since the last call, which the caller saves; may include blocks past
+    // the end after removals
+    BitSet takeDirtyBlocks() {
+        BitSet blocks = dirtyBlocks;
+        dirtyBlocks = new BitSet();
+        return blocks;
+    }
+
+    private void checkWritable() {
+        if (readOnly) {
+            throw new IllegalStateException("Some trades could not be decrypted; the trade book is read-only");
+        }
+    }
+
+    private void ensureCapacity(int needed) {
+        if (needed <= days.length) return;
+        int capacity = Math.max(needed, Math.max(16, days.length * 2));
+        days = Arrays.copyOf(days, capacity);
+        symbolIds = Arrays.copyOf(symbolIds, capacity);
+        quantities = Arrays.copyOf(quantities, capacity);
+        sells = Arrays.copyOf(sells, capacity);
+        pnl = Arrays.copyOf(pnl, capacity);
+        slots = Arrays.copyOf(slots, capacity);
+    }
+
+    // Recomputes every symbol's totals and trade indices in one pass, e.g. after loading
+    void rebuildTotals() {
+        int capacity = Math.max(8, symbols.size());
+        symbolNet = new double[capacity];
+        symbolGrossProfit = new double[capacity];
+        symbolGrossLoss = new double[capacity];
+        symbolTrades = new int[capacity];
+        symbolWins = new int[capacity];
+        symbolQuantity = new long[capacity];
+        symbolIndices = new int[capacity][];
+        slots = new int[days.length];
+        for (int i = 0; i < size; i++) {
+            link(i);
+            count(i, 1);
+        }
+    }
+
+    // Appends the trade at index to its symbol's indices; call before count(index, 1)
+    private void link(int index) {
+        int id = symbolIds[index];
+        ensureSymbolCapacity(id);
+        int n = symbolTrades[id];
+        int[] indices = symbolIndices[id];
+        if (indices == null || n == indices.length) {
+            indices = Arrays.copyOf(indices == null ? new int[0] : indices, Math.max(4, n * 2));
+            symbolIndices[id] = indices;
+        }
+        indices[n] = index;
+        slots[index] = n;
+    }
+
+    // Fills the trade's slot with the symbol's last index; call before count(index, -1)
+    private void unlink(int index) {
+        int[] indices = symbolIndices[symbolIds[index]];
+        int moved = indices[symbolTrades[symbolIds[index]] - 1];
+        indices[slots[index]] = moved;
+        slots[moved] = slots[index];
+    }
+
+    private void ensureSymbolCapacity(int id) {
+        if (id < symbolNet.length) return;
+        int capacity = Math.max(symbolNet.length * 2, id + 1);
+        symbolNet = Arrays.copyOf(symbolNet, capacity);
+        symbolGrossProfit = Arrays.copyOf(symbolGrossProfit, capacity);
+        symbolGrossLoss = Arrays.copyOf(symbolGrossLoss, capacity);
+        symbolTrades = Arrays.copyOf(symbolTrades, capacity);
+        symbolWins = Arrays.copyOf(symbolWins, capacity);
+        symbolQuantity = Arrays.copyOf(symbolQuantity, capacity);
+        symbolIndices = Arrays.copyOf(symbolIndices, capacity);
+    }
+
+    // Adds (sign 1) or takes away (sign -1) the trade at index from its symbol's totals
+    private void count(int index, int sign) {
+        int id = symbolIds[index];
+        ensureSymbolCapacity(id);
+        double tradePnl = pnl[index];
+        symbolNet[id] += sign * tradePnl;
+        if (tradePnl > 0) {
+            symbolGrossProfit[id] += sign * tradePnl;
+            symbolWins[id] += sign;
+        } else {
+            symbolGrossLoss[id] -= sign * tradePnl;
+        }
+        symbolTrades[id] += sign;
+        symbolQuantity[id] += sign * quantities[index];
+    }
+}
@@ -1,4 +1,54 @@
 package com.homecarcharge.mytrade;
 
+import java.util.Date;
+
+/**
+ * One trade: the instrument, as an id in its {@link TradeBook}'s symbol dictionary, the
+ * quantity, the side and the realised P&L. Trades give per-instrument detail and sit next
+ * to the day entries; they do not change a day's net.
+ */
 public class TradeEntry {
+
+    public enum Side {
+        BUY, SELL
+    }
+
+    private final int epochDay;
+    private final int symbolId;
+    private final int quantity;
+    private final Side side;
+    private final double pnl;
+
+    public TradeEntry(int epochDay, int symbolId, int quantity, Side side, double pnl) {
+        this.epochDay = epochDay;
+        this.symbolId = symbolId;
+        this.quantity = quantity;
+        this.side = side;
+        this.pnl = pnl;
+    }
+
+    public int getEpochDay() {
+        return epochDay;
+    }
+
+    public Date getDate() {
+        return EpochDays.toCalendar(epochDay).getTime();
+    }
+
+    public int getSymbolId() {
+        return symbolId;
+    }
+
+    public int getQuantity() {
+        return quantity;
+    }
+
+    public Side getSide() {
+        return side;
+    }
+
+    // Signed: negative for a losing trade
+    public double getPnl() {
+        return pnl;
+    }
 }
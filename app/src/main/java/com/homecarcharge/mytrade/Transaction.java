@@ -26,7 +26,14 @@ public class Transaction implements Serializable {
         return isProfit;
     }
 
-    public void setProfit(boolean profit) {
-        isProfit = profit;
+    // Signed P&L for the day, regardless of how the amount was stored
+    public double getNetAmount() {
+        return isProfit ? Math.abs(amount) : -Math.abs(amount);
+    }
+
+    // isProfit() recovered from a net amount: a zero-amount loss nets to -0.0, which
+    // Double.compare orders below 0.0
+    public static boolean isProfitNet(double net) {
+        return Double.compare(net, 0.0) >= 0;
     }
 }
\ No newline at end of file
@@ -0,0 +1,149 @@
+package com.homecarcharge.mytrade;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.util.AttributeSet;
+import android.view.MotionEvent;
+import android.view.View;
+
+import java.text.DateFormatSymbols;
+
+/**
+ * Draws a whole year as a 12 x 31 grid of day cells (one row per month) coloured by
+ * daily net P&L. Cell colours are computed once per year in setYear(), so onDraw is a
+ * single loop of drawRect calls with no allocation. Tapping a row reports its month.
+ */
+public class YearHeatmapView extends View {
+
+    public interface OnMonthClickListener {
+        void onMonthClick(int month);
+    }
+
+    private static final int ROWS = 12;
+    private static final int COLUMNS = 31;
+    private static final int[] DAYS_IN_MONTH = {31, 28, 31, 30, 31, 30, 31, 31, 30, 31, 30, 31};
+
+    private static final int COLOR_EMPTY = 0xFFEEEEEE;
+    private static final int COLOR_PROFIT_LOW = 0xFFC8E6C9;
+    private static final int COLOR_PROFIT_HIGH = 0xFF2E7D32;
+    private static final int COLOR_LOSS_LOW = 0xFFFFCDD2;
+    private static final int COLOR_LOSS_HIGH = 0xFFC62828;
+    private static final int COLOR_LABEL = 0xFF666666;
+
+    // 0 marks cells that are not a date (e.g. Feb 30)
+    private final int[] cellColors = new int[ROWS * COLUMNS];
+    private final Paint cellPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint labelPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final String[] monthLabels = DateFormatSymbols.getInstance().getShortMonths();
+
+    private float labelWidth;
+    private float cellSize;
+    private float cellGap;
+    private OnMonthClickListener listener;
+
+    public YearHeatmapView(Context context) {
+        this(context, null);
+    }
+
+    public YearHeatmapView(Context context, AttributeSet attrs) {
+        super(context, attrs);
+        float density = getResources().getDisplayMetrics().density;
+        cellGap = density;
+        labelPaint.setColor(COLOR_LABEL);
+        labelPaint.setTextSize(10 * density);
+        labelWidth = 32 * density;
+    }
+
+    public void setOnMonthClickListener(OnMonthClickListener listener) {
+        this.listener = listener;
+    }
+
+    // yearData may be null for a year without entries
+    public void setYear(int year, YearPnlIndex.YearData yearData) {
+        boolean leap = (year % 4 == 0 && year % 100 != 0) || year % 400 == 0;
+        int dayOfYear = 0;
+        for (int month = 0; month < ROWS; month++) {
+            int days = DAYS_IN_MONTH[month] + (month == 1 && leap ? 1 : 0);
+            for (int day = 0; day < COLUMNS; day++) {
+                int cell = month * COLUMNS + day;
+                if (day >= days) {
+                    cellColors[cell] = 0;
+                    continue;
+                }
+                double net = yearData == null ? Double.NaN : yearData.dailyNet[dayOfYear];
+                cellColors[cell] = colorFor(net, yearData == null ? 0 : yearData.maxAbs);
+                dayOfYear++;
+            }
+        }
+        invalidate();
+    }
+
+    private static int colorFor(double net, double maxAbs) {
+        if (Double.isNaN(net)) return COLOR_EMPTY;
+        if (maxAbs <= 0) return COLOR_PROFIT_LOW;
+
+        // Square root keeps small days visible next to a few outsized ones
+        float intensity = (float) Math.sqrt(Math.min(1.0, Math.abs(net) / maxAbs));
+        return net >= 0
+                ? blend(COLOR_PROFIT_LOW, COLOR_PROFIT_HIGH, intensity)
+                : blend(COLOR_LOSS_LOW, COLOR_LOSS_HIGH, intensity);
+    }
+
+    private static int blend(int from, int to, float t) {
+        int r = (int) (((from >> 16) & 0xFF) + (((to >> 16) & 0xFF) - ((from >> 16) & 0xFF)) * t);
+        int g = (int) (((from >> 8) & 0xFF) + (((to >> 8) & 0xFF) - ((from >> 8) & 0xFF)) * t);
+        int b = (int) ((from & 0xFF) + ((to & 0xFF) - (from & 0xFF)) * t);
+        return 0xFF000000 | (r << 16) | (g << 8) | b;
+    }
+
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        int width = MeasureSpec.getSize(widthMeasureSpec);
+        float available = width - getPaddingLeft() - getPaddingRight() - labelWidth;
+        cellSize = Math.max(1, available / COLUMNS - cellGap);
+        int height = (int) (ROWS * (cellSize + cellGap)) + getPaddingTop() + getPaddingBottom();
+        setMeasuredDimension(width, resolveSize(height, heightMeasureSpec));
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        float pitch = cellSize + cellGap;
+        float left = getPaddingLeft() + labelWidth;
+        float top = getPaddingTop();
+
+        for (int month = 0; month < ROWS; month++) {
+            float y = top + month * pitch;
+            canvas.drawText(monthLabels[month], getPaddingLeft(), y + cellSize * 0.8f, labelPaint);
+
+            for (int day = 0; day < COLUMNS; day++) {
+                int color = cellColors[month * COLUMNS + day];
+                if (color == 0) continue;
+                float x = left + day * pitch;
+                cellPaint.setColor(color);
+                canvas.drawRect(x, y, x + cellSize, y + cellSize, cellPaint);
+            }
+        }
+    }
+
+    @Override
+    public boolean onTouchEvent(MotionEvent event) {
+        if (event.getAction() == MotionEvent.ACTION_DOWN) {
+            return true;
+        }
+        if (event.getAction() == MotionEvent.ACTION_UP) {
+            int month = (int) ((event.getY() - getPaddingTop()) / (cellSize + cellGap));
+            if (month >= 0 && month < ROWS && listener != null) {
+                performClick();
+                listener.onMonthClick(month);
+            }
+            return true;
+        }
+        return super.onTouchEvent(event);
+    }
+
+    @Override
+    public boolean performClick() {
+        return super.performClick();
+    }
+}
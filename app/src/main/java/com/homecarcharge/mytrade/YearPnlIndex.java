@@ -0,0 +1,60 @@
+package com.homecarcharge.mytrade;
+
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Daily net P&L per year as primitive arrays indexed by day of year, built from a
+ * ledger snapshot's month segments in one linear scan. Days without an entry hold NaN.
+ */
+public class YearPnlIndex {
+
+    public static class YearData {
+        public final int year;
+        public final double[] dailyNet = new double[366];
+        public double total;
+        public int tradedDays;
+        public double maxAbs;
+
+        YearData(int year) {
+            this.year = year;
+            Arrays.fill(dailyNet, Double.NaN);
+        }
+    }
+
+    private final Map<Integer, YearData> years = new HashMap<>();
+
+    public static YearPnlIndex build(LedgerSnapshot snapshot) {
+        YearPnlIndex index = new YearPnlIndex();
+        Calendar cal = Calendar.getInstance();
+        for (MonthSegment segment : snapshot.getSegments().values()) {
+            int year = segment.getYear();
+            YearData data = index.years.get(year);
+            if (data == null) {
+                data = new YearData(year);
+                index.years.put(year, data);
+            }
+
+            cal.clear();
+            cal.set(year, segment.getMonth(), 1);
+            int firstDayIndex = cal.get(Calendar.DAY_OF_YEAR) - 1;
+            for (int day = 1; day <= 31; day++) {
+                Transaction t = segment.getTransaction(day);
+                if (t == null) continue;
+                double net = t.getNetAmount();
+                data.dailyNet[firstDayIndex + day - 1] = net;
+                data.tradedDays++;
+                data.total += net;
+                data.maxAbs = Math.max(data.maxAbs, Math.abs(net));
+            }
+        }
+        return index;
+    }
+
+    // Null when the year has no entries
+    public YearData get(int year) {
+        return years.get(year);
+    }
+}
@@ -0,0 +1,165 @@
+package com.homecarcharge.mytrade;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class BackupSnapshotTest {
+
+    private static final long DAY_MS = 24L * 60 * 60 * 1000;
+
+    private static byte[] writeSnapshot(int entriesPerAccount) throws IOException {
+        return writeSnapshot(entriesPerAccount, new long[1]);
+    }
+
+    // bytesWritten[0] receives what the writer reports
+    private static byte[] writeSnapshot(int entriesPerAccount, long[] bytesWritten) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        BackupSnapshot.Writer writer = new BackupSnapshot.Writer(out, 2);
+        writer.beginAccount("main", "Main");
+        for (int i = 0; i < entriesPerAccount; i++) {
+            double amount = i % 3 == 0 ? -(i + 0.25) : i + 0.5;
+            writer.write(new Transaction(new Date(i * DAY_MS), amount, amount >= 0));
+        }
+        writer.endAccount(trades());
+        writer.beginAccount("fno", "F&O");
+        writer.endAccount(new TradeBook());
+        writer.close();
+        bytesWritten[0] = writer.getBytesWritten();
+        return out.toByteArray();
+    }
+
+    // 300 trades, so they span two stored blocks
+    private static TradeBook trades() {
+        TradeBook book = new TradeBook();
+        for (int i = 0; i < 300; i++) {
+            book.add(i % 2 == 0 ? "INFY" : "TCS", 19_000 + i, i + 1,
+                    i % 3 == 0 ? TradeEntry.Side.SELL : TradeEntry.Side.BUY, i % 5 == 0 ? -i : i * 1.5);
+        }
+        return book;
+    }
+
+    // Both passes of a restore
+    private static List<BackupSnapshot.AccountData> read(byte[] snapshot) throws IOException {
+        BackupSnapshot.validate(new ByteArrayInputStream(snapshot));
+        List<BackupSnapshot.AccountData> accounts = new ArrayList<>();
+        BackupSnapshot.read(new ByteArrayInputStream(snapshot), accounts::add);
+        return accounts;
+    }
+
+    @Test
+    public void roundTrip_preservesAccountsAndEntries() throws IOException {
+        int entries = 10_000;
+        long[] bytesWritten = new long[1];
+        byte[] snapshot = writeSnapshot(entries, bytesWritten);
+        assertEquals(snapshot.length, bytesWritten[0]);
+        List<BackupSnapshot.AccountData> accounts = read(snapshot);
+
+        assertEquals(2, accounts.size());
+        assertEquals("main", accounts.get(0).id);
+        assertEquals("F&O", accounts.get(1).name);
+        assertEquals(0, accounts.get(1).transactions.size());
+
+        List<Transaction> restored = accounts.get(0).transactions;
+        assertEquals(entries, restored.size());
+        for (int i = 0; i < entries; i++) {
+            Transaction t = restored.get(i);
+            double amount = i % 3 == 0 ? -(i + 0.25) : i + 0.5;
+            assertEquals(i * DAY_MS, t.getDate().getTime());
+            assertEquals(amount, t.getAmount(), 0);
+            assertEquals(amount >= 0, t.isProfit());
+        }
+    }
+
+    @Test
+    public void roundTrip_preservesTrades() throws IOException {
+        List<BackupSnapshot.AccountData> accounts = read(writeSnapshot(10));
+        TradeBook expected = trades();
+        TradeBook restored = accounts.get(0).trades;
+
+        assertEquals(expected.size(), restored.size());
+        assertEquals("TCS", restored.getSymbols().name(1));
+        for (int i = 0; i < expected.size(); i++) {
+            TradeEntry want = expected.get(i);
+            TradeEntry got = restored.get(i);
+            assertEquals(want.getEpochDay(), got.getEpochDay());
+            assertEquals(want.getSymbolId(), got.getSymbolId());
+            assertEquals(want.getQuantity(), got.getQuantity());
+            assertEquals(want.getSide(), got.getSide());
+            assertEquals(want.getPnl(), got.getPnl(), 0);
+        }
+        for (int id = 0; id < 2; id++) {
+            assertEquals(expected.getNet(id), restored.getNet(id), 1e-9);
+            assertEquals(expected.getTradeCount(id), restored.getTradeCount(id));
+        }
+        assertEquals(0, accounts.get(1).trades.size());
+    }
+
+    @Test
+    public void read_rejectsFlippedSymbol() throws IOException {
+        byte[] snapshot = writeSnapshot(10);
+        // "INFY" becomes "INFX"
+        int at = new String(snapshot, StandardCharsets.ISO_8859_1).indexOf("INFY");
+        snapshot[at + 3] ^= 0x01;
+        try {
+            BackupSnapshot.validate(new ByteArrayInputStream(snapshot));
+            fail("corrupt symbol was accepted");
+        } catch (BackupSnapshot.CorruptSnapshotException expected) {
+            // expected
+        }
+    }
+
+    @Test
+    public void read_rejectsFlippedPayloadByte() throws IOException {
+        byte[] snapshot = writeSnapshot(100);
+        snapshot[snapshot.length / 2] ^= 0x10;
+        try {
+            BackupSnapshot.validate(new ByteArrayInputStream(snapshot));
+            fail("corrupt snapshot was accepted");
+        } catch (BackupSnapshot.CorruptSnapshotException expected) {
+            // expected
+        }
+        // The second pass checks again, in case the file changed after validation
+        try {
+            BackupSnapshot.read(new ByteArrayInputStream(snapshot), account -> { });
+            fail("corrupt snapshot was read");
+        } catch (BackupSnapshot.CorruptSnapshotException expected) {
+            // expected
+        }
+    }
+
+    @Test
+    public void read_rejectsFlippedAccountName() throws IOException {
+        byte[] snapshot = writeSnapshot(100);
+        // The second account's name, "F&O", becomes "F'O"
+        int at = new String(snapshot, StandardCharsets.ISO_8859_1).indexOf("F&O");
+        snapshot[at + 1] ^= 0x01;
+        try {
+            BackupSnapshot.validate(new ByteArrayInputStream(snapshot));
+            fail("corrupt account header was accepted");
+        } catch (BackupSnapshot.CorruptSnapshotException expected) {
+            // expected
+        }
+    }
+
+    @Test
+    public void read_rejectsTruncatedFile() throws IOException {
+        byte[] snapshot = writeSnapshot(100);
+        byte[] truncated = new byte[snapshot.length - 5];
+        System.arraycopy(snapshot, 0, truncated, 0, truncated.length);
+        try {
+            BackupSnapshot.validate(new ByteArrayInputStream(truncated));
+            fail("truncated snapshot was accepted");
+        } catch (BackupSnapshot.CorruptSnapshotException expected) {
+            // expected
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.homecarcharge.mytrade;
+
+import org.junit.Test;
+
+import java.text.ParseException;
+import java.util.Calendar;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class BulkEntryParserTest {
+
+    @Test
+    public void parse_readsDaysAndFullDates() throws ParseException {
+        List<Transaction> transactions = BulkEntryParser.parse(
+                "12 1500\n\n 13, -820.50 \r\n2025-04-01 ₹640", Calendar.MARCH, 2025);
+
+        assertEquals(3, transactions.size());
+        Calendar cal = Calendar.getInstance();
+        cal.setTime(transactions.get(1).getDate());
+        assertEquals(13, cal.get(Calendar.DAY_OF_MONTH));
+        assertEquals(Calendar.MARCH, cal.get(Calendar.MONTH));
+        assertEquals(-820.5, transactions.get(1).getNetAmount(), 1e-9);
+        assertFalse(transactions.get(1).isProfit());
+
+        cal.setTime(transactions.get(2).getDate());
+        assertEquals(Calendar.APRIL, cal.get(Calendar.MONTH));
+        assertEquals(640, transactions.get(2).getNetAmount(), 1e-9);
+        assertTrue(transactions.get(2).isProfit());
+    }
+
+    @Test
+    public void parse_reportsTheFailingLine() {
+        try {
+            BulkEntryParser.parse("1 100\n30 -50", Calendar.FEBRUARY, 2025);
+            fail("February has no 30th");
+        } catch (ParseException e) {
+            assertEquals(2, e.getErrorOffset());
+        }
+        try {
+            BulkEntryParser.parse("1 0", Calendar.MAY, 2025);
+            fail("Zero amounts are rejected");
+        } catch (ParseException e) {
+            assertEquals(1, e.getErrorOffset());
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.homecarcharge.mytrade;
+
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import javax.crypto.KeyGenerator;
+
+import static org.junit.Assert.*;
+
+public class ChunkCipherTest {
+
+    private static ChunkCipher newCipher() throws Exception {
+        KeyGenerator generator = KeyGenerator.getInstance("AES");
+        generator.init(256);
+        return new ChunkCipher(generator.generateKey());
+    }
+
+    @Test
+    public void open_returnsWhatWasSealed() throws Exception {
+        ChunkCipher cipher = newCipher();
+        byte[] plaintext = "{\"transactions\":[]}".getBytes(StandardCharsets.UTF_8);
+
+        byte[] first = cipher.seal(plaintext, "default/enc_month_24300");
+        byte[] second = cipher.seal(plaintext, "default/enc_month_24300");
+        assertFalse(Arrays.equals(first, second));
+        assertArrayEquals(plaintext, cipher.open(first, "default/enc_month_24300"));
+        assertArrayEquals(plaintext, cipher.open(second, "default/enc_month_24300"));
+    }
+
+    @Test
+    public void open_rejectsTamperedMovedOrForeignChunks() throws Exception {
+        ChunkCipher cipher = newCipher();
+        byte[] chunk = cipher.seal("100.0".getBytes(StandardCharsets.UTF_8), "default/enc_month_24300");
+
+        byte[] tampered = chunk.clone();
+        tampered[tampered.length - 1] ^= 1;
+        assertUnreadable(cipher, tampered, "default/enc_month_24300");
+        assertUnreadable(cipher, chunk, "default/enc_month_24301");
+        assertUnreadable(newCipher(), chunk, "default/enc_month_24300");
+    }
+
+    private static void assertUnreadable(ChunkCipher cipher, byte[] chunk, String name) {
+        try {
+            cipher.open(chunk, name);
+            fail("Opened " + name);
+        } catch (ChunkCipher.UnreadableChunkException expected) {
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.homecarcharge.mytrade;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class EquityCurveTest {
+
+    private static LedgerSnapshot put(LedgerSnapshot base, int year, int month, int day, double amount) {
+        Calendar cal = Calendar.getInstance();
+        cal.clear();
+        cal.set(year, month, day);
+        return base.apply(Collections.singletonList(new Transaction(cal.getTime(), amount, amount >= 0)),
+                Collections.singletonList(false), new ArrayList<>());
+    }
+
+    @Test
+    public void build_carriesTotalsAcrossDaysWithoutEntries() {
+        LedgerSnapshot snapshot = put(LedgerSnapshot.EMPTY, 2025, Calendar.JANUARY, 30, 100);
+        snapshot = put(snapshot, 2025, Calendar.FEBRUARY, 2, -40);
+
+        EquityCurve curve = EquityCurve.build(snapshot);
+        assertEquals(EpochDays.of(2025, Calendar.JANUARY, 30), curve.getFirstDay());
+        assertEquals(4, curve.getDays());
+        assertEquals(100, curve.get(0), 0);
+        assertEquals(100, curve.get(2), 0);
+        assertEquals(60, curve.getFinal(), 0);
+        assertEquals(0, EquityCurve.build(LedgerSnapshot.EMPTY).getDays());
+
+        // The final total keeps paise beyond float precision
+        LedgerSnapshot large = put(LedgerSnapshot.EMPTY, 2025, Calendar.MARCH, 3, 1234567.89);
+        large = put(large, 2025, Calendar.MARCH, 4, 0.01);
+        assertEquals(1234567.90, EquityCurve.build(large).getFinal(), 1e-6);
+    }
+
+    @Test
+    public void downsample_keepsEachBucketsRangeInOrder() {
+        Random random = new Random(11);
+        LedgerSnapshot snapshot = LedgerSnapshot.EMPTY;
+        for (int day = 1; day <= 28; day++) {
+            for (int month = 0; month < 12; month++) {
+                snapshot = put(snapshot, 2024, month, day, random.nextInt(2001) - 1000);
+            }
+        }
+        EquityCurve curve = EquityCurve.build(snapshot);
+
+        double daysPerBucket = 7.5;
+        float[] points = curve.downsample(daysPerBucket);
+        assertEquals(curve.bucketCount(daysPerBucket) * 2, points.length);
+        for (int b = 0; b < points.length / 2; b++) {
+            int from = (int) (b * daysPerBucket);
+            int to = Math.min(curve.getDays(), (int) ((b + 1) * daysPerBucket));
+            float min = Float.MAX_VALUE;
+            float max = -Float.MAX_VALUE;
+            int minIndex = 0;
+            int maxIndex = 0;
+            for (int i = from; i < to; i++) {
+                if (curve.get(i) < min) { min = curve.get(i); minIndex = i; }
+                if (curve.get(i) > max) { max = curve.get(i); maxIndex = i; }
+            }
+            float first = minIndex <= maxIndex ? min : max;
+            float second = minIndex <= maxIndex ? max : min;
+            assertEquals(first, points[2 * b], 0);
+            assertEquals(second, points[2 * b + 1], 0);
+        }
+
+        // One day per bucket keeps every day
+        float[] full = curve.downsample(1);
+        assertEquals(curve.getDays() * 2, full.length);
+        assertEquals((float) curve.getFinal(), full[full.length - 1], 0);
+    }
+}
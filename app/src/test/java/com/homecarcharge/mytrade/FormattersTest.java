@@ -0,0 +1,155 @@
+package com.homecarcharge.mytrade;
+
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks the shared formatters against String.format and keeps the month render
+ * path within a fixed allocation budget.
+ */
+public class FormattersTest {
+
+    // Bytes a full steady-state month render may allocate in total
+    private static final long RENDER_ALLOCATION_BUDGET = 256;
+
+    @Test
+    public void formatCurrency_matchesStringFormat() {
+        char[] buffer = new char[Formatters.CURRENCY_CAPACITY];
+        double[] amounts = {0, 0.5, 0.004, 1, -261, 1072.005, -5136.99, 123456789.12, 0.1 + 0.2};
+        for (double amount : amounts) {
+            int length = Formatters.formatCurrency(amount, buffer);
+            assertEquals(String.format("₹ %.2f", amount), new String(buffer, 0, length));
+        }
+    }
+
+    @Test
+    public void formatCurrency_followsTheDefaultLocale() {
+        char[] buffer = new char[Formatters.CURRENCY_CAPACITY];
+        Locale saved = Locale.getDefault();
+        try {
+            for (Locale locale : new Locale[] {Locale.GERMANY, Locale.forLanguageTag("ar-EG"),
+                    Locale.forLanguageTag("hi-IN-u-nu-deva"), Locale.US}) {
+                Locale.setDefault(locale);
+                for (double amount : new double[] {0.5, -261, 1072.005, 123456789.12}) {
+                    int length = Formatters.formatCurrency(amount, buffer);
+                    assertEquals(String.format("₹ %.2f", amount), new String(buffer, 0, length));
+                }
+            }
+            Locale.setDefault(Locale.GERMANY);
+            int length = Formatters.formatCurrency(-5136.99, buffer);
+            assertEquals("₹ -5136,99", new String(buffer, 0, length));
+        } finally {
+            Locale.setDefault(saved);
+        }
+    }
+
+    @Test
+    public void formatCurrency_neverSignsZero() {
+        char[] buffer = new char[Formatters.CURRENCY_CAPACITY];
+        // Unlike String.format, which prints "₹ -0.00" for these
+        for (double amount : new double[] {-0.0, -0.004}) {
+            assertEquals("₹ -0.00", String.format(Locale.US, "₹ %.2f", amount));
+            assertEquals(String.format("₹ %.2f", 0.0), new String(buffer, 0, Formatters.formatCurrency(amount, buffer)));
+        }
+    }
+
+    @Test
+    public void formatShortDate_matchesSimpleDateFormat() {
+        Formatters formatters = new Formatters();
+        char[] buffer = new char[Formatters.DATE_CAPACITY];
+        Calendar cal = Calendar.getInstance();
+        cal.set(2025, Calendar.JANUARY, 5);
+        for (int i = 0; i < 400; i++) {
+            Date date = cal.getTime();
+            int length = formatters.formatShortDate(date, buffer);
+            assertEquals(formatters.dateFormat(Formatters.PATTERN_SHORT_DATE).format(date),
+                    new String(buffer, 0, length));
+            cal.add(Calendar.DAY_OF_MONTH, 1);
+        }
+    }
+
+    @Test
+    public void formatTradedDays_matchesStringFormat() {
+        char[] buffer = new char[32];
+        int length = Formatters.formatTradedDays(12, 17, buffer);
+        assertEquals("12/17 Traded Days", new String(buffer, 0, length));
+    }
+
+    @Test
+    public void monthTitle_isCached() {
+        Formatters formatters = new Formatters();
+        String first = formatters.monthTitle(Calendar.MARCH, 2025);
+        assertSame(first, formatters.monthTitle(Calendar.MARCH, 2025));
+    }
+
+    @Test
+    public void steadyStateMonthRender_staysWithinAllocationBudget() {
+        com.sun.management.ThreadMXBean threadBean =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue("Thread allocation counting unsupported", threadBean.isThreadAllocatedMemorySupported());
+        threadBean.setThreadAllocatedMemoryEnabled(true);
+
+        List<Transaction> entries = new ArrayList<>();
+        Calendar cal = Calendar.getInstance();
+        cal.clear();
+        cal.set(2025, Calendar.JULY, 1);
+        for (int i = 0; i < 31; i++) {
+            double amount = 123.45 * (i + 1);
+            entries.add(new Transaction(cal.getTime(), amount, i % 3 != 0));
+            cal.add(Calendar.DAY_OF_MONTH, 1);
+        }
+        MonthSegment segment = LedgerSnapshot.EMPTY.apply(entries, Collections.nCopies(entries.size(), false),
+                new ArrayList<>()).getSegment(Ledger.monthKey(Calendar.JULY, 2025));
+        Formatters formatters = new Formatters();
+        MonthText text = new MonthText(formatters);
+
+        // Warm up caches and JIT before measuring
+        for (int i = 0; i < 2_000; i++) {
+            renderMonth(formatters, text, segment);
+        }
+
+        long threadId = Thread.currentThread().getId();
+        long before = threadBean.getThreadAllocatedBytes(threadId);
+        long sink = 0;
+        for (int i = 0; i < 1_000; i++) {
+            sink += renderMonth(formatters, text, segment);
+        }
+        long allocated = threadBean.getThreadAllocatedBytes(threadId) - before;
+
+        assertTrue(sink > 0);
+        assertTrue("month render allocated " + allocated + " bytes over 1000 renders",
+                allocated <= RENDER_ALLOCATION_BUDGET);
+    }
+
+    // The text work of one MainActivity month render, through the same MonthText calls:
+    // title, day numbers, stats, top days and every row
+    private static long renderMonth(Formatters formatters, MonthText text, MonthSegment segment) {
+        long checksum = formatters.monthTitle(segment.getMonth(), segment.getYear()).length();
+        for (int day = 1; day <= 31; day++) {
+            checksum += Formatters.number(day).length();
+        }
+        text.bindStats(segment);
+        checksum += text.totalLength + text.tradedDaysLength;
+        int topDays = text.bindTopDays(segment);
+        for (int i = 0; i < topDays; i++) {
+            checksum += text.topDayLengths[i];
+        }
+        for (int day = 31; day >= 1; day--) {
+            Transaction transaction = segment.getTransaction(day);
+            if (transaction == null) continue;
+            text.bindRow(day, transaction);
+            checksum += text.dateLengths[day] + text.amountLengths[day];
+        }
+        return checksum;
+    }
+}
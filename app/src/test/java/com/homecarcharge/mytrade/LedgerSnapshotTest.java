@@ -0,0 +1,312 @@
+package com.homecarcharge.mytrade;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class LedgerSnapshotTest {
+
+    private static Transaction entry(int year, int month, int day, double amount) {
+        Calendar cal = Calendar.getInstance();
+        cal.clear();
+        cal.set(year, month, day);
+        return new Transaction(cal.getTime(), amount, amount >= 0);
+    }
+
+    private static LedgerSnapshot put(LedgerSnapshot base, int year, int month, int day, double amount) {
+        return put(base, entry(year, month, day, amount));
+    }
+
+    private static LedgerSnapshot put(LedgerSnapshot base, Transaction transaction) {
+        return base.apply(Collections.singletonList(transaction), Collections.singletonList(false),
+                new ArrayList<>());
+    }
+
+    @Test
+    public void apply_leavesEarlierVersionsUntouched() {
+        LedgerSnapshot v1 = put(LedgerSnapshot.EMPTY, 2025, Calendar.MARCH, 3, 100);
+        LedgerSnapshot v2 = put(v1, 2025, Calendar.MARCH, 4, -40);
+        LedgerSnapshot v3 = put(v2, 2025, Calendar.APRIL, 1, 10);
+
+        assertEquals(1, v1.size());
+        assertEquals(100, v1.getSegment(Ledger.monthKey(Calendar.MARCH, 2025)).getTotalNet(), 0);
+        assertEquals(2, v2.size());
+        assertEquals(60, v2.getSegment(Ledger.monthKey(Calendar.MARCH, 2025)).getTotalNet(), 0);
+        assertEquals(3, v3.size());
+        assertTrue(v3.getVersion() > v2.getVersion());
+
+        // Untouched months are shared between versions, not copied
+        assertSame(v2.getSegments().get(Ledger.monthKey(Calendar.MARCH, 2025)),
+                v3.getSegments().get(Ledger.monthKey(Calendar.MARCH, 2025)));
+    }
+
+    @Test
+    public void apply_publishesOneVersionWithOneChangePerDayInOrder() {
+        LedgerSnapshot base = put(LedgerSnapshot.EMPTY, 2025, Calendar.MARCH, 9, 10);
+        Transaction first = entry(2025, Calendar.APRIL, 5, 100);
+        Transaction second = entry(2025, Calendar.APRIL, 5, -20);
+        Transaction stale = entry(2025, Calendar.APRIL, 5, 100);
+        Transaction march = entry(2025, Calendar.MARCH, 9, 30);
+        Transaction april = entry(2025, Calendar.APRIL, 1, 7);
+
+        List<LedgerChange> changes = new ArrayList<>();
+        LedgerSnapshot next = base.apply(Arrays.asList(first, second, stale, march, april),
+                Arrays.asList(false, false, true, false, false), changes);
+
+        assertEquals(base.getVersion() + 1, next.getVersion());
+        assertEquals(3, next.size());
+        // The day put twice yields one change with its last entry; the stale removal is ignored
+        assertEquals(3, changes.size());
+        assertEquals(9, changes.get(0).getDay());
+        assertEquals(LedgerChange.Type.UPDATED, changes.get(0).getType());
+        assertEquals(1, changes.get(1).getDay());
+        assertEquals(5, changes.get(2).getDay());
+        assertEquals(LedgerChange.Type.ADDED, changes.get(2).getType());
+        assertSame(second, changes.get(2).getAfter());
+        assertSame(second, next.getSegment(Ledger.monthKey(Calendar.APRIL, 2025)).getTransaction(5));
+    }
+
+    @Test
+    public void apply_returnsTheSameSnapshotWhenNothingChanges() {
+        Transaction entry = entry(2025, Calendar.MARCH, 9, 10);
+        LedgerSnapshot base = put(LedgerSnapshot.EMPTY, entry);
+        Transaction added = entry(2025, Calendar.MARCH, 10, 5);
+
+        List<LedgerChange> changes = new ArrayList<>();
+        assertSame(base, base.apply(Arrays.asList(added, added, entry), Arrays.asList(false, true, false),
+                changes));
+        assertTrue(changes.isEmpty());
+    }
+
+    @Test
+    public void segment_isNewestFirstAndUnmodifiable() {
+        LedgerSnapshot snapshot = put(LedgerSnapshot.EMPTY, 2025, Calendar.MAY, 2, 5);
+        snapshot = put(snapshot, 2025, Calendar.MAY, 20, -5);
+        snapshot = put(snapshot, 2025, Calendar.MAY, 9, 7);
+
+        List<Transaction> month = snapshot.getSegment(Ledger.monthKey(Calendar.MAY, 2025)).getTransactions();
+        assertEquals(3, month.size());
+        assertEquals(-5, month.get(0).getAmount(), 0);
+        assertEquals(5, month.get(2).getAmount(), 0);
+        try {
+            month.clear();
+            fail("Segment lists must be read-only");
+        } catch (UnsupportedOperationException expected) {
+            // Expected
+        }
+    }
+
+    @Test
+    public void removingLastEntry_dropsTheMonth() {
+        int key = Ledger.monthKey(Calendar.JUNE, 2025);
+        Transaction entry = entry(2025, Calendar.JUNE, 1, 5);
+        LedgerSnapshot snapshot = put(LedgerSnapshot.EMPTY, entry);
+        snapshot = snapshot.apply(Collections.singletonList(entry), Collections.singletonList(true),
+                new ArrayList<>());
+
+        assertTrue(snapshot.isEmpty());
+        assertFalse(snapshot.getSegments().containsKey(key));
+    }
+
+    @Test
+    public void monthIndex_summarisesMonthsInOrder() {
+        LedgerSnapshot snapshot = put(LedgerSnapshot.EMPTY, 2025, Calendar.JULY, 1, 30);
+        snapshot = put(snapshot, 2024, Calendar.DECEMBER, 5, -10);
+        snapshot = put(snapshot, 2025, Calendar.JULY, 2, -10);
+        snapshot = put(snapshot, 2025, Calendar.JULY, 3, 5);
+
+        MonthIndex index = snapshot.getMonthIndex();
+        assertEquals(2, index.size());
+        assertEquals(Ledger.monthKey(Calendar.DECEMBER, 2024), index.getMonthKey(0));
+
+        int july = index.indexOf(Ledger.monthKey(Calendar.JULY, 2025));
+        assertEquals(1, july);
+        assertEquals(25, index.getNetPnl(july), 1e-9);
+        assertEquals(3, index.getTradedDays(july));
+        assertEquals(67, index.getWinRatePercent(july));
+        assertTrue(index.indexOf(Ledger.monthKey(Calendar.JANUARY, 2025)) < 0);
+    }
+
+    @Test
+    public void aggregate_countsWinsLikeIsProfit() {
+        int key = Ledger.monthKey(Calendar.SEPTEMBER, 2025);
+        Transaction zeroLoss = new Transaction(entry(2025, Calendar.SEPTEMBER, 1, 0).getDate(), 0, false);
+        LedgerSnapshot snapshot = put(LedgerSnapshot.EMPTY, zeroLoss);
+        snapshot = put(snapshot, 2025, Calendar.SEPTEMBER, 2, 0);
+        snapshot = put(snapshot, 2025, Calendar.SEPTEMBER, 3, -5);
+
+        MonthSegment segment = snapshot.getSegment(key);
+        MonthAggregate aggregate = segment.toAggregate();
+        assertEquals(1, segment.getProfitableDays());
+        assertEquals(1, aggregate.getProfitableDays());
+        assertEquals(1, MonthSegment.fromAggregate(aggregate).getProfitableDays());
+    }
+
+    @Test
+    public void ledgerChange_reportsWhatMoved() {
+        int key = Ledger.monthKey(Calendar.AUGUST, 2025);
+        Transaction win = entry(2025, Calendar.AUGUST, 4, 100);
+        Transaction sameWin = entry(2025, Calendar.AUGUST, 4, 100);
+        Transaction smallerWin = entry(2025, Calendar.AUGUST, 4, 60);
+
+        LedgerChange added = new LedgerChange(key, 4, null, win);
+        assertEquals(LedgerChange.Type.ADDED, added.getType());
+        assertTrue(added.changesOutcome());
+
+        LedgerChange resized = new LedgerChange(key, 4, win, smallerWin);
+        assertEquals(LedgerChange.Type.UPDATED, resized.getType());
+        assertFalse(resized.changesOutcome());
+        assertTrue(resized.changesAggregate());
+
+        // Re-entering the same result leaves the month's stats alone
+        assertFalse(new LedgerChange(key, 4, win, sameWin).changesAggregate());
+        assertEquals(LedgerChange.Type.REMOVED, new LedgerChange(key, 4, win, null).getType());
+    }
+
+    @Test
+    public void lazySegment_answersTotalsWithoutLoadingEntries() {
+        LedgerSnapshot loaded = put(put(put(LedgerSnapshot.EMPTY,
+                2025, Calendar.MARCH, 3, 100.1), 2025, Calendar.MARCH, 4, -40.7), 2025, Calendar.MARCH, 9, -0.0);
+        MonthSegment eager = loaded.getSegment(Ledger.monthKey(Calendar.MARCH, 2025));
+        int[] loads = {0};
+        MonthSegment lazy = MonthSegment.lazy(eager.toAggregate(), (monthKey, aggregate) -> {
+            loads[0]++;
+            return eager.copyDays();
+        });
+
+        assertEquals(eager.getMonthKey(), lazy.getMonthKey());
+        assertEquals(eager.getTotalNet(), lazy.getTotalNet(), 0);
+        assertEquals(eager.getTradedDays(), lazy.getTradedDays());
+        assertEquals(eager.getProfitableDays(), lazy.getProfitableDays());
+        assertEquals(eager.toAggregate().totalNet, lazy.toAggregate().totalNet, 0);
+        // Editing another month leaves this one unread
+        TreeMap<Integer, MonthSegment> segments = new TreeMap<>();
+        segments.put(lazy.getMonthKey(), lazy);
+        LedgerSnapshot edited = put(LedgerSnapshot.of(1, segments), 2025, Calendar.APRIL, 1, 5);
+        assertEquals(4, edited.size());
+        assertEquals(0, loads[0]);
+
+        assertSame(eager.getTransaction(4), lazy.getTransaction(4));
+        assertEquals(eager.getTransactions(), lazy.getTransactions());
+        assertEquals(1, loads[0]);
+    }
+
+    // The snapshot Ledger.load builds: one lazy segment per stored aggregate
+    private static LedgerSnapshot loadLazily(LedgerSnapshot stored, AtomicInteger loads) {
+        TreeMap<Integer, MonthSegment> segments = new TreeMap<>();
+        for (MonthSegment segment : stored.getSegments().values()) {
+            segments.put(segment.getMonthKey(), MonthSegment.lazy(segment.toAggregate(), (monthKey, aggregate) -> {
+                loads.incrementAndGet();
+                return stored.getSegment(monthKey).copyDays();
+            }));
+        }
+        return LedgerSnapshot.of(1, segments);
+    }
+
+    @Test
+    public void startupIndexes_openNoMonthChunkBeforeADayIsRead() {
+        Random random = new Random(7);
+        List<Transaction> entries = new ArrayList<>();
+        for (int i = 0; i < 400; i++) {
+            // Whole amounts, including zero-amount losses
+            double amount = random.nextInt(21) - 10;
+            Calendar cal = Calendar.getInstance();
+            cal.clear();
+            cal.set(2023, Calendar.JANUARY, 1);
+            cal.add(Calendar.DAY_OF_MONTH, random.nextInt(700));
+            entries.add(new Transaction(cal.getTime(), Math.abs(amount), amount > 0 || random.nextBoolean()));
+        }
+        LedgerSnapshot stored = LedgerSnapshot.EMPTY.apply(entries, Collections.nCopies(entries.size(), false),
+                new ArrayList<>());
+        AtomicInteger loads = new AtomicInteger();
+        LedgerSnapshot loaded = loadLazily(stored, loads);
+
+        // What the month view builds on a cold start, besides the visible month
+        MonthIndex monthIndex = loaded.getMonthIndex();
+        DistributionIndex distribution = DistributionIndex.build(loaded);
+        StreakTree streaks = StreakTree.build(loaded);
+        assertEquals(0, loads.get());
+
+        assertEquals(stored.getMonthIndex().size(), monthIndex.size());
+        PnlDistribution expected = new PnlDistribution();
+        PnlDistribution actual = new PnlDistribution();
+        DistributionIndex.build(stored).allTime(expected);
+        distribution.allTime(actual);
+        assertEquals(expected.getDays(), actual.getDays());
+        for (int bucket = 0; bucket < PnlDistribution.BUCKETS; bucket++) {
+            assertEquals(expected.getBucketCount(bucket), actual.getBucketCount(bucket));
+        }
+        StreakTree.Streaks expectedStreaks = StreakTree.build(stored).getAllTime();
+        assertEquals(expectedStreaks.getLongestWins(), streaks.getAllTime().getLongestWins());
+        assertEquals(expectedStreaks.getLongestLosses(), streaks.getAllTime().getLongestLosses());
+        assertEquals(expectedStreaks.getCurrentWins(), streaks.getAllTime().getCurrentWins());
+
+        loaded.getSegments().firstEntry().getValue().getTransaction(1);
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    public void lazySegment_loadsOnceForRacingReaders() throws Exception {
+        LedgerSnapshot stored = put(LedgerSnapshot.EMPTY, 2025, Calendar.MARCH, 3, 100);
+        AtomicInteger loads = new AtomicInteger();
+        MonthSegment lazy = loadLazily(stored, loads).getSegment(Ledger.monthKey(Calendar.MARCH, 2025));
+
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<Transaction>> reads = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                boolean byDay = i % 2 == 0;
+                reads.add(pool.submit(() -> {
+                    start.await();
+                    return byDay ? lazy.getTransaction(3) : lazy.getTransactions().get(0);
+                }));
+            }
+            start.countDown();
+            for (Future<Transaction> read : reads) {
+                assertSame(lazy.getTransaction(3), read.get());
+            }
+        } finally {
+            pool.shutdown();
+        }
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    public void unreadableMonth_keepsItsTotalsAndRefusesEdits() {
+        LedgerSnapshot stored = put(put(LedgerSnapshot.EMPTY,
+                2025, Calendar.MARCH, 3, 100), 2025, Calendar.MARCH, 4, -40);
+        MonthSegment eager = stored.getSegment(Ledger.monthKey(Calendar.MARCH, 2025));
+        TreeMap<Integer, MonthSegment> segments = new TreeMap<>();
+        segments.put(eager.getMonthKey(), MonthSegment.lazy(eager.toAggregate(), (monthKey, aggregate) -> null));
+        LedgerSnapshot loaded = LedgerSnapshot.of(1, segments);
+        MonthSegment unreadable = loaded.getSegment(eager.getMonthKey());
+
+        assertFalse(unreadable.isReadable());
+        assertTrue(unreadable.getTransactions().isEmpty());
+        assertEquals(60, unreadable.getTotalNet(), 0);
+        assertTrue(unreadable.hasDay(4));
+        assertEquals(-40, unreadable.getDayNet(4), 0);
+        try {
+            put(loaded, 2025, Calendar.MARCH, 5, 10);
+            fail("Edited a month whose entries could not be read");
+        } catch (MonthSegment.UnreadableMonthException expected) {
+            // Expected
+        }
+        assertEquals(1, put(loaded, 2025, Calendar.APRIL, 1, 10).getSegment(Ledger.monthKey(Calendar.APRIL, 2025))
+                .getTradedDays());
+    }
+}
@@ -0,0 +1,74 @@
+package com.homecarcharge.mytrade;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.*;
+
+public class MonteCarloEngineTest {
+
+    private static final double[] SAMPLES = {1200, -800, 450, -1500, 300, 900, -200, 650, -1100, 700};
+
+    private final List<ForkJoinPool> pools = new ArrayList<>();
+
+    private ForkJoinPool pool(int parallelism) {
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        pools.add(pool);
+        return pool;
+    }
+
+    @After
+    public void shutDownPools() {
+        for (ForkJoinPool pool : pools) {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void constantSamples_giveExactOutcome() {
+        MonteCarloEngine engine = new MonteCarloEngine(new double[] {-100}, 1000, 20, 500, 1000, 1);
+        MonteCarloEngine.Result result = engine.run(pool(2));
+
+        for (double value : result.finalPercentiles) {
+            assertEquals(-1500, value, 1e-9);
+        }
+        assertEquals(1.0, result.probabilityOfLoss, 0);
+        assertEquals(1.0, result.probabilityOfEndingBelowLimit, 0);
+        assertEquals(1.0, result.probabilityOfDrawdownBreach, 0);
+        assertEquals(20, result.checkpointDays[result.checkpointDays.length - 1]);
+        assertEquals(1.0f, engine.getProgress(), 0);
+    }
+
+    @Test
+    public void sameSeed_givesSameResultOnAnyPoolSize() {
+        MonteCarloEngine.Result single = new MonteCarloEngine(SAMPLES, 10_000, 60, 0, 5000, 42)
+                .run(pool(1));
+        MonteCarloEngine.Result parallel = new MonteCarloEngine(SAMPLES, 10_000, 60, 0, 5000, 42)
+                .run(pool(4));
+
+        assertArrayEquals(single.finalPercentiles, parallel.finalPercentiles, 0);
+        assertEquals(single.probabilityOfDrawdownBreach, parallel.probabilityOfDrawdownBreach, 0);
+        for (int c = 0; c < single.bands.length; c++) {
+            assertArrayEquals(single.bands[c], parallel.bands[c], 0);
+        }
+
+        // Bands are ordered by percentile
+        for (double[] band : single.bands) {
+            for (int p = 1; p < band.length; p++) {
+                assertTrue(band[p - 1] <= band[p]);
+            }
+        }
+    }
+
+    @Test(expected = CancellationException.class)
+    public void cancelledRun_throws() {
+        MonteCarloEngine engine = new MonteCarloEngine(SAMPLES, 50_000, 250, 0, 5000, 7);
+        engine.cancel();
+        engine.run(pool(2));
+    }
+}
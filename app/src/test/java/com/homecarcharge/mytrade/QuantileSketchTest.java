@@ -0,0 +1,77 @@
+package com.homecarcharge.mytrade;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class QuantileSketchTest {
+
+    private static double[] dailyResults(long seed, int days) {
+        Random random = new Random(seed);
+        double[] values = new double[days];
+        for (int i = 0; i < days; i++) {
+            // Mostly small days with a few large ones either way
+            values[i] = random.nextGaussian() * 800 + 150 + (random.nextInt(20) == 0 ? -6000 : 0);
+        }
+        return values;
+    }
+
+    private static void assertWithinAccuracy(double expected, double actual) {
+        assertEquals(expected, actual, Math.abs(expected) * QuantileSketch.RELATIVE_ACCURACY + 1e-9);
+    }
+
+    @Test
+    public void quantiles_stayWithinRelativeAccuracy() {
+        double[] values = dailyResults(7, 5000);
+        QuantileSketch sketch = new QuantileSketch();
+        for (double value : values) {
+            sketch.add(value);
+        }
+
+        double[] sorted = values.clone();
+        Arrays.sort(sorted);
+        for (double q : new double[]{0, 0.05, 0.25, 0.5, 0.75, 0.95, 1}) {
+            assertWithinAccuracy(sorted[(int) (q * (sorted.length - 1))], sketch.quantile(q));
+        }
+        assertTrue(Double.isNaN(new QuantileSketch().quantile(0.5)));
+    }
+
+    @Test
+    public void mergedMonths_matchOneSketchOfAllDays() {
+        double[] values = dailyResults(11, 600);
+        QuantileSketch whole = new QuantileSketch();
+        QuantileSketch merged = new QuantileSketch();
+        for (int month = 0; month < 12; month++) {
+            QuantileSketch part = new QuantileSketch();
+            for (int i = month * 50; i < (month + 1) * 50; i++) {
+                part.add(values[i]);
+                whole.add(values[i]);
+            }
+            merged.merge(part);
+        }
+
+        assertEquals(whole.getCount(), merged.getCount());
+        for (double q : new double[]{0.05, 0.5, 0.95}) {
+            assertEquals(whole.quantile(q), merged.quantile(q), 0);
+        }
+    }
+
+    @Test
+    public void distribution_removesEditedDays() {
+        PnlDistribution distribution = new PnlDistribution();
+        distribution.add(-700);
+        distribution.add(0);
+        distribution.add(1200);
+        distribution.remove(1200);
+        distribution.add(300);
+
+        assertEquals(3, distribution.getDays());
+        assertEquals(1, distribution.getBucketCount(PnlDistribution.bucketOf(-700)));
+        assertEquals(2, distribution.getBucketCount(PnlDistribution.bucketOf(0)));
+        assertEquals(0, distribution.getBucketCount(PnlDistribution.bucketOf(1200)));
+        assertWithinAccuracy(300, distribution.quantile(1));
+    }
+}
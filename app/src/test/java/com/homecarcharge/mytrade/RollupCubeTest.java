@@ -0,0 +1,94 @@
+package com.homecarcharge.mytrade;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.Assert.*;
+
+public class RollupCubeTest {
+
+    @Test
+    public void financialYear_runsAprilToMarch() {
+        RollupCube cube = new RollupCube();
+        cube.put(2025, Calendar.MARCH, 31, -200);
+        cube.put(2025, Calendar.APRIL, 1, 500);
+        cube.put(2026, Calendar.MARCH, 2, 100);
+
+        assertEquals(-200, cube.get(RollupCube.Level.FINANCIAL_YEAR, 2024).getNet(), 0);
+        RollupCube.PeriodTotals fy25 = cube.get(RollupCube.Level.FINANCIAL_YEAR, 2025);
+        assertEquals(600, fy25.getNet(), 0);
+        assertEquals(2, fy25.getTradedDays());
+        assertEquals(500, fy25.getBestDay(), 0);
+        assertEquals(100, fy25.getWorstDay(), 0);
+    }
+
+    @Test
+    public void weeks_startOnMondayAndCrossMonths() {
+        RollupCube cube = new RollupCube();
+        // Friday 2025-01-31 and Monday 2025-02-03 fall in different weeks
+        cube.put(2025, Calendar.JANUARY, 30, 10);
+        cube.put(2025, Calendar.JANUARY, 31, 20);
+        cube.put(2025, Calendar.FEBRUARY, 3, 40);
+
+        int week = EpochDays.weekStart(EpochDays.of(2025, Calendar.JANUARY, 31));
+        assertEquals(EpochDays.of(2025, Calendar.JANUARY, 27), week);
+        assertEquals(30, cube.get(RollupCube.Level.WEEK, week).getNet(), 0);
+        assertEquals(2, cube.getPeriods(RollupCube.Level.WEEK).size());
+        assertEquals(2, cube.getPeriods(RollupCube.Level.MONTH).size());
+    }
+
+    @Test
+    public void incrementalEdits_matchFullBuild() {
+        Random random = new Random(3);
+        RollupCube cube = new RollupCube();
+        TreeMap<Integer, Transaction> days = new TreeMap<>();
+
+        for (int step = 0; step < 3_000; step++) {
+            int year = 2023 + random.nextInt(3);
+            int month = random.nextInt(12);
+            int day = 1 + random.nextInt(28);
+            int epochDay = EpochDays.of(year, month, day);
+            if (random.nextInt(4) == 0) {
+                cube.remove(year, month, day);
+                days.remove(epochDay);
+            } else {
+                // Small amounts, so zero-amount wins and losses both occur
+                Transaction t = new Transaction(EpochDays.toCalendar(epochDay).getTime(),
+                        random.nextInt(20), random.nextBoolean());
+                cube.put(year, month, day, t.getNetAmount());
+                days.put(epochDay, t);
+            }
+        }
+
+        // Build from the surviving days in one pass and compare every level
+        List<Transaction> entries = new ArrayList<>(days.values());
+        RollupCube expected = RollupCube.build(LedgerSnapshot.EMPTY.apply(entries,
+                Collections.nCopies(entries.size(), false), new ArrayList<>()));
+        for (Transaction t : entries) {
+            Calendar cal = Calendar.getInstance();
+            cal.setTime(t.getDate());
+            RollupCube.PeriodTotals day = expected.get(RollupCube.Level.DAY, EpochDays.of(
+                    cal.get(Calendar.YEAR), cal.get(Calendar.MONTH), cal.get(Calendar.DAY_OF_MONTH)));
+            assertEquals(t.isProfit() ? 1 : 0, day.getProfitableDays());
+        }
+        for (RollupCube.Level level : RollupCube.Level.values()) {
+            assertEquals(expected.getPeriods(level).keySet(), cube.getPeriods(level).keySet());
+            for (int key : expected.getPeriods(level).keySet()) {
+                RollupCube.PeriodTotals a = expected.get(level, key);
+                RollupCube.PeriodTotals b = cube.get(level, key);
+                assertEquals(a.getNet(), b.getNet(), 1e-6);
+                assertEquals(a.getTradedDays(), b.getTradedDays());
+                assertEquals(a.getProfitableDays(), b.getProfitableDays());
+                assertEquals(a.getBestDay(), b.getBestDay(), 0);
+                assertEquals(a.getWorstDay(), b.getWorstDay(), 0);
+            }
+        }
+        assertEquals(days.size(), cube.getPeriods(RollupCube.Level.DAY).size());
+    }
+}
@@ -0,0 +1,105 @@
+package com.homecarcharge.mytrade;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.*;
+
+public class SeasonalityEngineTest {
+
+    private static Transaction entry(Calendar cal, double amount) {
+        return new Transaction(cal.getTime(), amount, amount >= 0);
+    }
+
+    @Test
+    public void groups_matchCalendarFields() {
+        Calendar cal = Calendar.getInstance();
+        cal.clear();
+        cal.set(2025, Calendar.MARCH, 3);  // Monday, days 1-7
+        Transaction monday = entry(cal, 100);
+        cal.set(2025, Calendar.MARCH, 30);  // Sunday, days 29-31
+        LedgerSnapshot snapshot = LedgerSnapshot.EMPTY.apply(Arrays.asList(monday, entry(cal, -700)),
+                Collections.nCopies(2, false), new ArrayList<>());
+
+        ForkJoinPool pool = new ForkJoinPool(2);
+        SeasonalityEngine.Result result;
+        try {
+            result = SeasonalityEngine.from(snapshot).run(pool);
+        } finally {
+            pool.shutdown();
+        }
+        assertEquals(100, result.getSum(SeasonalityEngine.Dimension.DAY_OF_WEEK, 0), 0);
+        assertEquals(-700, result.getSum(SeasonalityEngine.Dimension.DAY_OF_WEEK, 6), 0);
+        assertEquals(1, result.getCount(SeasonalityEngine.Dimension.WEEK_OF_MONTH, 4));
+        assertEquals(-300, result.getMean(SeasonalityEngine.Dimension.MONTH_OF_YEAR, Calendar.MARCH), 0);
+        assertEquals(50, result.getWinRatePercent(SeasonalityEngine.Dimension.MONTH_OF_YEAR, Calendar.MARCH));
+        assertEquals(1, result.getCount(SeasonalityEngine.Dimension.AMOUNT_BUCKET, PnlDistribution.bucketOf(-700)));
+        assertEquals(0, result.getCount(SeasonalityEngine.Dimension.MONTH_OF_YEAR, Calendar.APRIL));
+    }
+
+    @Test
+    public void parallelTotals_matchPlainLoop() {
+        // Thirty years of daily entries, enough rows to split across several leaf tasks
+        Random random = new Random(5);
+        List<Transaction> entries = new ArrayList<>();
+        Calendar cal = Calendar.getInstance();
+        cal.clear();
+        cal.set(1995, Calendar.JANUARY, 1);
+        while (cal.get(Calendar.YEAR) < 2025) {
+            entries.add(entry(cal, random.nextInt(20001) - 10000));
+            cal.add(Calendar.DAY_OF_MONTH, 1);
+        }
+        LedgerSnapshot snapshot = LedgerSnapshot.EMPTY.apply(entries,
+                Collections.nCopies(entries.size(), false), new ArrayList<>());
+
+        // Reference totals straight from each entry's calendar fields
+        SeasonalityEngine.Dimension[] dimensions = SeasonalityEngine.Dimension.values();
+        double[][] sums = new double[dimensions.length][];
+        int[][] counts = new int[dimensions.length][];
+        int[][] wins = new int[dimensions.length][];
+        for (SeasonalityEngine.Dimension dimension : dimensions) {
+            sums[dimension.ordinal()] = new double[dimension.getGroups()];
+            counts[dimension.ordinal()] = new int[dimension.getGroups()];
+            wins[dimension.ordinal()] = new int[dimension.getGroups()];
+        }
+        for (Transaction t : entries) {
+            cal.setTime(t.getDate());
+            int[] groups = {
+                    (cal.get(Calendar.DAY_OF_WEEK) + 5) % 7,  // Monday = 0
+                    (cal.get(Calendar.DAY_OF_MONTH) - 1) / 7,
+                    cal.get(Calendar.MONTH),
+                    PnlDistribution.bucketOf(t.getNetAmount())
+            };
+            for (SeasonalityEngine.Dimension dimension : dimensions) {
+                int d = dimension.ordinal();
+                sums[d][groups[d]] += t.getNetAmount();
+                counts[d][groups[d]]++;
+                wins[d][groups[d]] += t.isProfit() ? 1 : 0;
+            }
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            SeasonalityEngine.Result result = SeasonalityEngine.from(snapshot).run(pool);
+            assertEquals(entries.size(), result.rows);
+            for (SeasonalityEngine.Dimension dimension : dimensions) {
+                int d = dimension.ordinal();
+                for (int g = 0; g < dimension.getGroups(); g++) {
+                    assertEquals(counts[d][g], result.getCount(dimension, g));
+                    assertEquals(sums[d][g], result.getSum(dimension, g), 1e-6);
+                    int winRate = counts[d][g] == 0 ? 0 : Math.round(100f * wins[d][g] / counts[d][g]);
+                    assertEquals(winRate, result.getWinRatePercent(dimension, g));
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
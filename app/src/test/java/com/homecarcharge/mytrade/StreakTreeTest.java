@@ -0,0 +1,99 @@
+package com.homecarcharge.mytrade;
+
+import org.junit.Test;
+
+import java.util.Calendar;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.Assert.*;
+
+public class StreakTreeTest {
+
+    // Brute-force streaks over the traded days in [from, to]
+    private static int[] scan(TreeMap<Integer, Boolean> outcomes, int from, int to) {
+        int win = 0, loss = 0, bestWin = 0, bestLoss = 0;
+        for (boolean isWin : outcomes.subMap(from, true, to, true).values()) {
+            win = isWin ? win + 1 : 0;
+            loss = isWin ? 0 : loss + 1;
+            bestWin = Math.max(bestWin, win);
+            bestLoss = Math.max(bestLoss, loss);
+        }
+        return new int[] {win, loss, bestWin, bestLoss};
+    }
+
+    private static void assertStreaks(int[] expected, StreakTree.Streaks actual) {
+        assertEquals(expected[0], actual.getCurrentWins());
+        assertEquals(expected[1], actual.getCurrentLosses());
+        assertEquals(expected[2], actual.getLongestWins());
+        assertEquals(expected[3], actual.getLongestLosses());
+    }
+
+    @Test
+    public void epochDay_matchesCalendar() {
+        Calendar cal = Calendar.getInstance(java.util.TimeZone.getTimeZone("UTC"));
+        cal.clear();
+        cal.set(1999, Calendar.DECEMBER, 31);
+        for (int i = 0; i < 20_000; i++) {
+            long expected = Math.floorDiv(cal.getTimeInMillis(), 24L * 60 * 60 * 1000);
+            assertEquals(expected, EpochDays.of(cal));
+            cal.add(Calendar.DAY_OF_MONTH, 1);
+        }
+    }
+
+    @Test
+    public void streak_spansMonthBoundary() {
+        StreakTree tree = new StreakTree();
+        tree.set(EpochDays.of(2025, Calendar.JANUARY, 30), true);
+        tree.set(EpochDays.of(2025, Calendar.JANUARY, 31), true);
+        // Weekend in between is not a break
+        tree.set(EpochDays.of(2025, Calendar.FEBRUARY, 3), true);
+
+        assertEquals(3, tree.getAllTime().getCurrentWins());
+        StreakTree.Streaks february = new StreakTree.Streaks();
+        tree.query(EpochDays.of(2025, Calendar.FEBRUARY, 1),
+                EpochDays.of(2025, Calendar.FEBRUARY, 28), february);
+        assertEquals(1, february.getLongestWins());
+    }
+
+    @Test
+    public void randomEdits_matchBruteForce() {
+        Random random = new Random(7);
+        StreakTree tree = new StreakTree();
+        TreeMap<Integer, Boolean> outcomes = new TreeMap<>();
+        StreakTree.Streaks range = new StreakTree.Streaks();
+        int base = EpochDays.of(2020, Calendar.JANUARY, 1);
+        int last = base;
+
+        for (int step = 0; step < 5_000; step++) {
+            int op = random.nextInt(10);
+            if (op < 6) {
+                // Mostly appends, occasionally far ahead
+                last += 1 + (random.nextInt(20) == 0 ? 800 : random.nextInt(3));
+                boolean win = random.nextBoolean();
+                tree.set(last, win);
+                outcomes.put(last, win);
+            } else if (op < 9) {
+                int day = base - 1000 + random.nextInt(last - base + 1001);
+                boolean win = random.nextBoolean();
+                tree.set(day, win);
+                outcomes.put(day, win);
+            } else if (!outcomes.isEmpty()) {
+                Integer day = outcomes.floorKey(base + random.nextInt(last - base + 1));
+                if (day != null) {
+                    tree.remove(day);
+                    outcomes.remove(day);
+                }
+            }
+
+            if (step % 50 == 0) {
+                assertStreaks(scan(outcomes, Integer.MIN_VALUE, Integer.MAX_VALUE), tree.getAllTime());
+                int from = base - 1000 + random.nextInt(last - base + 1001);
+                int to = from + random.nextInt(400);
+                tree.query(from, to, range);
+                assertStreaks(scan(outcomes, from, to), range);
+            }
+        }
+        assertStreaks(scan(outcomes, Integer.MIN_VALUE, Integer.MAX_VALUE), tree.getAllTime());
+    }
+}
@@ -0,0 +1,211 @@
+package com.homecarcharge.mytrade;
+
+import com.google.gson.Gson;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class SyncJournalTest {
+
+    private static Transaction entry(int day, double amount) {
+        Calendar cal = Calendar.getInstance();
+        cal.clear();
+        cal.set(2025, Calendar.MARCH, day);
+        return new Transaction(cal.getTime(), amount, amount >= 0);
+    }
+
+    private static LedgerChange change(int day, Transaction before, Transaction after) {
+        return new LedgerChange(Ledger.monthKey(Calendar.MARCH, 2025), day, before, after);
+    }
+
+    // Writes the pending edits to a local file and reads them back, as another device would
+    private static ChangeLog exportThroughFile(SyncJournal journal) throws IOException {
+        File file = File.createTempFile("changes", ChangeLog.FILE_EXTENSION);
+        try {
+            ChangeLog log = journal.exportPending();
+            try (OutputStream out = new FileOutputStream(file)) {
+                log.write(out);
+            }
+            journal.markExported(log);
+            try (InputStream in = new FileInputStream(file)) {
+                return ChangeLog.read(in);
+            }
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void export_carriesOnlyEditsSinceTheWatermark() throws Exception {
+        LedgerSnapshot existing = LedgerSnapshot.EMPTY.apply(Collections.singletonList(entry(3, 100)),
+                Collections.singletonList(false), new ArrayList<>());
+        SyncJournal phone = SyncJournal.create("main", "phone", existing);
+
+        ChangeLog first = exportThroughFile(phone);
+        assertEquals(1, first.getRecords().size());
+        assertEquals(100, first.getRecords().get(0).toTransaction().getAmount(), 0);
+
+        phone.record(Collections.singletonList(change(4, null, entry(4, -50))));
+        phone.record(Collections.singletonList(change(3, entry(3, 100), null)));
+        ChangeLog second = exportThroughFile(phone);
+        assertEquals(2, second.getFirstSeq());
+        assertEquals(2, second.getRecords().size());
+        assertTrue(second.getRecords().get(1).isDeleted());
+        assertEquals(0, phone.getPendingCount());
+    }
+
+    @Test
+    public void merge_skipsAppliedFilesAndRejectsGaps() throws Exception {
+        SyncJournal phone = SyncJournal.create("main", "phone", LedgerSnapshot.EMPTY);
+        SyncJournal tablet = SyncJournal.create("main", "tablet", LedgerSnapshot.EMPTY);
+
+        phone.record(Collections.singletonList(change(5, null, entry(5, 10))));
+        ChangeLog first = exportThroughFile(phone);
+        phone.record(Collections.singletonList(change(6, null, entry(6, 20))));
+        ChangeLog second = exportThroughFile(phone);
+
+        try {
+            tablet.merge(second);
+            fail("The first file was never imported");
+        } catch (SyncJournal.MissingChangesException expected) {
+            // Expected
+        }
+        assertEquals(1, tablet.merge(first).applied.size());
+        assertEquals(1, tablet.merge(second).applied.size());
+
+        SyncJournal.MergeResult again = tablet.merge(second);
+        assertEquals(0, again.applied.size());
+        assertEquals(1, again.alreadyApplied);
+    }
+
+    @Test
+    public void merge_keepsTheNewerEditOfTheSameDay() throws Exception {
+        SyncJournal phone = SyncJournal.create("main", "phone", LedgerSnapshot.EMPTY);
+        SyncJournal tablet = SyncJournal.create("main", "tablet", LedgerSnapshot.EMPTY);
+
+        // Both edit the 7th; the tablet edits twice, so its last edit is newer
+        phone.record(Collections.singletonList(change(7, null, entry(7, 70))));
+        tablet.record(Collections.singletonList(change(7, null, entry(7, 30))));
+        tablet.record(Collections.singletonList(change(7, entry(7, 30), entry(7, -30))));
+
+        ChangeLog fromPhone = exportThroughFile(phone);
+        ChangeLog fromTablet = exportThroughFile(tablet);
+
+        SyncJournal.MergeResult onPhone = phone.merge(fromTablet);
+        assertEquals(1, onPhone.applied.size());
+        assertEquals(-30, onPhone.applied.get(0).toTransaction().getAmount(), 0);
+
+        SyncJournal.MergeResult onTablet = tablet.merge(fromPhone);
+        assertEquals(0, onTablet.applied.size());
+        assertEquals(1, onTablet.superseded);
+    }
+
+    @Test
+    public void merge_rejectsAnotherAccountsChanges() throws Exception {
+        SyncJournal phone = SyncJournal.create("main", "phone", LedgerSnapshot.EMPTY);
+        SyncJournal tablet = SyncJournal.create("side", "tablet", LedgerSnapshot.EMPTY);
+        phone.record(Collections.singletonList(change(5, null, entry(5, 10))));
+
+        try {
+            tablet.merge(exportThroughFile(phone));
+            fail("Merged another account's changes");
+        } catch (SyncJournal.WrongAccountException expected) {
+            // Expected
+        }
+    }
+
+    @Test
+    public void changeFile_rejectsAnEditedHeader() throws Exception {
+        SyncJournal phone = SyncJournal.create("main", "phone", LedgerSnapshot.EMPTY);
+        phone.record(Collections.singletonList(change(5, null, entry(5, 10))));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        phone.exportPending().write(out);
+        byte[] file = out.toByteArray();
+
+        // Same length, so only the checksum can tell
+        String text = new String(file, StandardCharsets.ISO_8859_1).replace("main", "side");
+        try {
+            ChangeLog.read(new ByteArrayInputStream(text.getBytes(StandardCharsets.ISO_8859_1)));
+            fail("Read a change file whose account was edited");
+        } catch (ChangeLog.CorruptChangeLogException expected) {
+            // Expected
+        }
+        assertEquals("main", ChangeLog.read(new ByteArrayInputStream(file)).getAccountId());
+    }
+
+    @Test
+    public void recreatedJournal_isNotTakenAsAlreadyMerged() throws Exception {
+        SyncJournal phone = SyncJournal.create("main", "phone", LedgerSnapshot.EMPTY);
+        SyncJournal tablet = SyncJournal.create("main", "tablet", LedgerSnapshot.EMPTY);
+        phone.record(Collections.singletonList(change(5, null, entry(5, 10))));
+        phone.record(Collections.singletonList(change(6, null, entry(6, 20))));
+        assertEquals(2, tablet.merge(exportThroughFile(phone)).applied.size());
+
+        // The phone lost its journal; the same install starts over from sequence 1
+        SyncJournal recreated = SyncJournal.create("main", "phone", LedgerSnapshot.EMPTY);
+        assertFalse(phone.getDeviceId().equals(recreated.getDeviceId()));
+        recreated.record(Collections.singletonList(change(5, entry(5, 10), entry(5, 40))));
+
+        SyncJournal.MergeResult result = tablet.merge(exportThroughFile(recreated));
+        assertEquals(1, result.applied.size());
+        assertEquals(40, result.applied.get(0).toTransaction().getAmount(), 0);
+    }
+
+    @Test
+    public void replacingJournal_exportsEntriesAndRemovedDays() throws Exception {
+        SyncJournal phone = SyncJournal.create("main", "phone", LedgerSnapshot.EMPTY);
+        phone.record(Collections.singletonList(change(5, null, entry(5, 10))));
+        phone.record(Collections.singletonList(change(6, null, entry(6, 20))));
+        exportThroughFile(phone);
+
+        // A restore brought back only the 6th, with another amount
+        LedgerSnapshot restored = LedgerSnapshot.EMPTY.apply(Collections.singletonList(entry(6, 60)),
+                Collections.singletonList(false), new ArrayList<>());
+        SyncJournal replaced = SyncJournal.create("main", "phone", restored, phone);
+
+        ChangeLog log = exportThroughFile(replaced);
+        assertEquals(2, log.getRecords().size());
+        assertEquals(60, log.getRecords().get(0).toTransaction().getAmount(), 0);
+        assertTrue(log.getRecords().get(1).isDeleted());
+        assertEquals(EpochDays.of(Ledger.monthKey(Calendar.MARCH, 2025), 5), log.getRecords().get(1).getEpochDay());
+    }
+
+    @Test
+    public void blocks_holdOnlyChangedStampsAndUnexportedEdits() throws Exception {
+        SyncJournal phone = SyncJournal.create("main", "phone", LedgerSnapshot.EMPTY);
+        assertTrue(phone.takeDirtyStampBlocks().isEmpty());
+        phone.record(Collections.singletonList(change(5, null, entry(5, 10))));
+        exportThroughFile(phone);
+        assertEquals(1, phone.takeDirtyStampBlocks().size());
+        phone.record(Collections.singletonList(change(6, null, entry(6, 20))));
+
+        int day6 = EpochDays.of(Ledger.monthKey(Calendar.MARCH, 2025), 6);
+        int block = SyncJournal.stampBlockOf(day6);
+        assertEquals(Collections.singleton(block), phone.takeDirtyStampBlocks());
+        assertTrue(phone.getStampBlock(block).containsKey(day6));
+
+        // Only the edit after the export is pending; a reload skips the exported one
+        List<ChangeLog.Record> pending = phone.getPendingBlock(SyncJournal.pendingBlockOf(2));
+        assertEquals(1, pending.size());
+        assertEquals(2, pending.get(0).seq);
+        SyncJournal reloaded = new Gson().fromJson(new Gson().toJson(phone), SyncJournal.class);
+        reloaded.addPending(phone.getPendingBlock(0));
+        assertEquals(1, reloaded.getPendingCount());
+        assertEquals(2, reloaded.exportPending().getFirstSeq());
+    }
+}
@@ -0,0 +1,169 @@
+package com.homecarcharge.mytrade;
+
+import com.google.gson.Gson;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class TradeBookTest {
+
+    @Test
+    public void add_internsSymbolsAndKeepsTotals() {
+        TradeBook book = new TradeBook();
+        book.add("infy", 100, 10, TradeEntry.Side.BUY, 500);
+        book.add(" INFY ", 101, 5, TradeEntry.Side.SELL, -200);
+        book.add("TCS", 101, 2, TradeEntry.Side.BUY, 300);
+
+        assertEquals(2, book.getSymbols().size());
+        int infy = book.getSymbols().find("Infy");
+        assertEquals(0, infy);
+        assertEquals(300, book.getNet(infy), 1e-9);
+        assertEquals(500, book.getGrossProfit(infy), 1e-9);
+        assertEquals(200, book.getGrossLoss(infy), 1e-9);
+        assertEquals(2, book.getTradeCount(infy));
+        assertEquals(50, book.getWinRatePercent(infy));
+        assertEquals(15, book.getQuantity(infy));
+        assertEquals(-1, book.getSymbols().find("WIPRO"));
+    }
+
+    @Test
+    public void leaderboard_ranksByNetAndSkipsSymbolsWithoutTrades() {
+        TradeBook book = new TradeBook();
+        for (int i = 0; i < 100; i++) {
+            book.add("S" + i, 100 + i, 1, TradeEntry.Side.BUY, (i % 2 == 0 ? 1 : -1) * i * 10.0);
+        }
+
+        int[] best = book.leaderboard(3, true);
+        assertArrayEquals(new int[]{98, 96, 94}, best);
+        int[] worst = book.leaderboard(3, false);
+        assertArrayEquals(new int[]{99, 97, 95}, worst);
+
+        book.remove(book.tradesOf(98)[0]);
+        assertEquals(0, book.getTradeCount(98));
+        assertArrayEquals(new int[]{96, 94, 92}, book.leaderboard(3, true));
+        assertEquals(99, book.size());
+    }
+
+    @Test
+    public void remove_movesLastTradeAndSurvivesJson() {
+        TradeBook book = new TradeBook();
+        book.add("NIFTY", 200, 50, TradeEntry.Side.BUY, 1200);
+        book.add("BANKNIFTY", 199, 25, TradeEntry.Side.SELL, -800);
+        book.add("NIFTY", 201, 50, TradeEntry.Side.SELL, -300);
+
+        int nifty = book.getSymbols().find("NIFTY");
+        int[] trades = book.tradesOf(nifty);
+        assertEquals(201, book.get(trades[0]).getEpochDay());
+        assertEquals(200, book.get(trades[1]).getEpochDay());
+
+        book.remove(0);
+        assertEquals(2, book.size());
+        assertEquals(-300, book.getNet(nifty), 1e-9);
+        assertEquals(TradeEntry.Side.SELL, book.get(0).getSide());
+
+        Gson gson = new Gson();
+        TradeBook loaded = gson.fromJson(gson.toJson(book), TradeBook.class);
+        loaded.rebuildTotals();
+        assertEquals(-300, loaded.getNet(nifty), 1e-9);
+        assertEquals(-800, loaded.getNet(loaded.getSymbols().find("banknifty")), 1e-9);
+        loaded.add("NIFTY", 202, 10, TradeEntry.Side.BUY, 100);
+        assertEquals(nifty, loaded.get(2).getSymbolId());
+        assertEquals(-200, loaded.getNet(nifty), 1e-9);
+    }
+
+    @Test
+    public void tradesOf_matchesAScanAfterRandomEdits() {
+        Random random = new Random(17);
+        TradeBook book = new TradeBook();
+        for (int step = 0; step < 20_000; step++) {
+            if (book.size() > 0 && random.nextInt(3) == 0) {
+                book.remove(random.nextInt(book.size()));
+            } else {
+                book.add("S" + random.nextInt(40), random.nextInt(5000), 1, TradeEntry.Side.BUY,
+                        random.nextInt(201) - 100);
+            }
+        }
+
+        for (int id = 0; id < book.getSymbols().size(); id++) {
+            int[] scanned = new int[book.getTradeCount(id)];
+            int n = 0;
+            for (int i = 0; i < book.size(); i++) {
+                if (book.get(i).getSymbolId() == id) scanned[n++] = i;
+            }
+            assertEquals(scanned.length, n);
+
+            int[] trades = book.tradesOf(id);
+            for (int i = 1; i < trades.length; i++) {
+                assertTrue(book.get(trades[i - 1]).getEpochDay() >= book.get(trades[i]).getEpochDay());
+            }
+            int[] sorted = trades.clone();
+            Arrays.sort(sorted);
+            assertArrayEquals(scanned, sorted);
+        }
+    }
+
+    @Test
+    public void blocks_trackEditsAndRebuildTheBook() {
+        TradeBook book = new TradeBook();
+        for (int i = 0; i < 2 * TradeBook.BLOCK_TRADES + 88; i++) {
+            book.add("S" + (i % 7), 100 + i, 1 + i % 3, TradeEntry.Side.BUY, i % 5 - 2);
+        }
+        BitSet all = new BitSet();
+        all.set(0, 3);
+        assertEquals(3, book.getBlockCount());
+        assertEquals(all, book.takeDirtyBlocks());
+
+        // The last trade moves into the removed one's slot
+        book.remove(10);
+        BitSet moved = new BitSet();
+        moved.set(0);
+        moved.set(2);
+        assertEquals(moved, book.takeDirtyBlocks());
+        assertTrue(book.takeDirtyBlocks().isEmpty());
+
+        Gson gson = new Gson();
+        TradeBook loaded = new TradeBook(gson.fromJson(gson.toJson(book.getSymbols()), SymbolDictionary.class));
+        for (int block = 0; block < book.getBlockCount(); block++) {
+            loaded.appendBlock(gson.fromJson(gson.toJson(book.getBlock(block)), TradeBook.Block.class));
+        }
+        loaded.rebuildTotals();
+        assertEquals(book.size(), loaded.size());
+        for (int i = 0; i < book.size(); i++) {
+            assertEquals(book.get(i).getEpochDay(), loaded.get(i).getEpochDay());
+            assertEquals(book.get(i).getPnl(), loaded.get(i).getPnl(), 0);
+        }
+        for (int id = 0; id < book.getSymbols().size(); id++) {
+            assertEquals(book.getNet(id), loaded.getNet(id), 1e-9);
+            assertArrayEquals(book.tradesOf(id), loaded.tradesOf(id));
+        }
+        assertTrue(loaded.takeDirtyBlocks().isEmpty());
+    }
+
+    @Test
+    public void readOnlyBook_refusesEditsAndKeepsItsTrades() {
+        TradeBook book = new TradeBook();
+        book.add("INFY", 100, 10, TradeEntry.Side.BUY, 500);
+        book.markReadOnly();
+
+        assertTrue(book.isReadOnly());
+        try {
+            book.add("TCS", 101, 2, TradeEntry.Side.BUY, 300);
+            fail("Added a trade to a read-only book");
+        } catch (IllegalStateException expected) {
+            // Expected
+        }
+        try {
+            book.remove(0);
+            fail("Removed a trade from a read-only book");
+        } catch (IllegalStateException expected) {
+            // Expected
+        }
+        assertEquals(1, book.size());
+        assertEquals(500, book.getNet(0), 0);
+    }
+}